@@ -0,0 +1,102 @@
+package pl.regzand.benchmarks;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import pl.regzand.dataparser.DataAnalyser;
+import pl.regzand.dataparser.DataFetcher;
+import pl.regzand.dataparser.DataProvider;
+import pl.regzand.dataparser.Statistic;
+import pl.regzand.dataparser.json.JSONAnalyser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Operations of {@link JSONAnalyser} over json objects with random values, provided in blocks of 90 like responses of NBP API.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class AnalyserBenchmark {
+
+    private static final int BLOCK_SIZE = 90;
+
+    private static final Function<JSONObject, Number> VALUE = object -> object.getDouble("value");
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private List<JSONObject> data;
+
+    @Setup
+    public void createData() {
+        Random random = new Random(42);
+
+        data = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            data.add(new JSONObject().put("id", i).put("value", random.nextDouble()));
+    }
+
+    private JSONAnalyser analyser() {
+        return new JSONAnalyser(new DataProvider<>(new DataFetcher<JSONObject>() {
+            private int next = 0;
+
+            @Override
+            public Collection<JSONObject> fetch() {
+                if (next >= size)
+                    return Collections.emptyList();
+
+                List<JSONObject> block = data.subList(next, Math.min(size, next + BLOCK_SIZE));
+                next += BLOCK_SIZE;
+                return block;
+            }
+        }));
+    }
+
+    @Benchmark
+    public double average() throws IOException {
+        return analyser().average(VALUE);
+    }
+
+    @Benchmark
+    public JSONObject findTheSmallestNumber() throws IOException {
+        return analyser().findTheSmallestNumber(VALUE);
+    }
+
+    @Benchmark
+    public JSONObject findTheBiggestNumber() throws IOException {
+        return analyser().findTheBiggestNumber(VALUE);
+    }
+
+    @Benchmark
+    public JSONObject findRangeNumber() throws IOException {
+        return analyser().findRangeNumber(VALUE);
+    }
+
+    @Benchmark
+    public Object aggregate() throws IOException {
+        return analyser().aggregate(VALUE, EnumSet.allOf(Statistic.class));
+    }
+
+    @Benchmark
+    public List<JSONObject> topN() throws IOException {
+        return analyser().topN(VALUE, 10, DataAnalyser.Order.DESCENDING);
+    }
+
+    @Benchmark
+    public List<JSONObject> sorted() throws IOException {
+        return analyser().sorted(Comparator.comparingDouble(object -> object.getDouble("value")));
+    }
+
+}
@@ -0,0 +1,84 @@
+package pl.regzand.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.regzand.nbpdata.commands.NBPDataCommand;
+import pl.regzand.nbpdata.data.FakeNBPServer;
+import pl.regzand.nbpdata.data.NBPConnector;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Commands executed end to end against local {@link FakeNBPServer}, with their output discarded.
+ * <p>
+ * Rate limit is lifted, and response cache of default connector is disabled, so that every command makes its requests.
+ * Commands backed by rate store read days downloaded by the first execution from disk, same as repeated runs of the program.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandBenchmark {
+
+    @Param({
+            "currency price USD 2017-06-13",
+            "currency graph USD 2017,1,1 2017,3,5",
+            "currency lowest-price 2017-06-13",
+            "currency difference 2017-06-13 5",
+            "currency fluctuations 2017-06-13",
+            "currency records EUR",
+            "gold price 2017-06-13",
+            "gold average 2016-01-01 2017-12-31",
+    })
+    public String command;
+
+    private String[] args;
+
+    private FakeNBPServer server;
+
+    private Path directory;
+
+    private NBPDataCommand nbpdata;
+
+    @Setup
+    public void startServer() throws IOException {
+        server = new FakeNBPServer(0);
+        directory = Files.createTempDirectory("nbpdata-benchmark");
+
+        System.setProperty("nbpdata.api", server.getBaseUrl());
+        System.setProperty("nbpdata.store", directory.resolve("store").toString());
+        System.setProperty("nbpdata.httpcache", directory.resolve("http").toString());
+
+        NBPConnector.getSharedRateLimiter().setRate(1e9, 1_000_000);
+        NBPConnector.getDefault().setCache(null);
+        NBPConnector.getDefault().setHttpCache(null);
+
+        args = command.split(" ");
+
+        nbpdata = new NBPDataCommand();
+        nbpdata.setOut(new NullPrintStream());
+    }
+
+    @TearDown
+    public void stopServer() throws IOException {
+        server.close();
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public void execute() {
+        nbpdata.execute(args);
+    }
+
+}
@@ -0,0 +1,50 @@
+package pl.regzand.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.regzand.dataparser.ApiConnector;
+import pl.regzand.nbpdata.data.FakeNBPServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of single request to local {@link FakeNBPServer}, over connections that are kept alive.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConnectorBenchmark {
+
+    private FakeNBPServer server;
+
+    private ApiConnector connector;
+
+    private final byte[] buffer = new byte[8192];
+
+    @Setup
+    public void startServer() throws IOException {
+        server = new FakeNBPServer(0);
+        connector = new ApiConnector(server.getBaseUrl());
+    }
+
+    @TearDown
+    public void stopServer() {
+        server.close();
+    }
+
+    @Benchmark
+    public long request() throws IOException {
+        long length = 0;
+        try (InputStream stream = connector.makeRequest("cenyzlota/2017-01-10")) {
+            int n;
+            while ((n = stream.read(buffer)) != -1)
+                length += n;
+        }
+        return length;
+    }
+
+}
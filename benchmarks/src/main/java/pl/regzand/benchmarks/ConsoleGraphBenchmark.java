@@ -0,0 +1,39 @@
+package pl.regzand.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.regzand.utils.ConsoleGraph;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of {@link ConsoleGraph}, with output discarded.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConsoleGraphBenchmark {
+
+    @Param({"31", "365"})
+    public int entries;
+
+    private ConsoleGraph graph;
+
+    private final PrintStream out = new NullPrintStream();
+
+    @Setup
+    public void createGraph() {
+        graph = new ConsoleGraph();
+        for (int i = 0; i < entries; i++)
+            graph.addEntry(String.format("2017-%02d-%02d", i / 31 % 12 + 1, i % 31 + 1), 3.5 + Math.sin(i / 10.0) / 2);
+    }
+
+    @Benchmark
+    public void draw() {
+        graph.draw(out, 12, 60);
+    }
+
+}
@@ -0,0 +1,23 @@
+package pl.regzand.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Print stream discarding everything, used in place of standard output, so that benchmarks don't measure terminal.
+ */
+class NullPrintStream extends PrintStream {
+
+    NullPrintStream() {
+        super(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+    }
+
+}
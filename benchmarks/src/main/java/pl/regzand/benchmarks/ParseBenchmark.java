@@ -0,0 +1,82 @@
+package pl.regzand.benchmarks;
+
+import org.json.JSONTokener;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.regzand.dataparser.ApiConnector;
+import pl.regzand.dataparser.json.JSONArrayStream;
+import pl.regzand.dataparser.json.JSONElementParser;
+import pl.regzand.nbpdata.data.FakeNBPServer;
+import pl.regzand.nbpdata.data.GoldPrice;
+import pl.regzand.nbpdata.data.MidRate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of NBP responses, into json tree and with streaming parsers of typed records.
+ * Responses are recorded once from {@link FakeNBPServer}, and parsed from memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    /**
+     * Recorded responses, each as big as single request allows.
+     */
+    public enum Response {
+        TABLE_A("exchangerates/tables/a/2017-01-01/2017-03-31", null, MidRate.TABLE_PARSER),
+        RATES("exchangerates/rates/a/usd/2017-01-01/2017-03-31", "/rates", MidRate.seriesParser("USD")),
+        GOLD("cenyzlota/2017-01-01/2017-12-26", null, GoldPrice.PARSER);
+
+        final String apiUrl;
+        final String jsonPointer;
+        final JSONElementParser<?> parser;
+
+        Response(String apiUrl, String jsonPointer, JSONElementParser<?> parser) {
+            this.apiUrl = apiUrl;
+            this.jsonPointer = jsonPointer;
+            this.parser = parser;
+        }
+    }
+
+    @Param
+    public Response response;
+
+    private byte[] body;
+
+    @Setup
+    public void record() throws IOException {
+        try (FakeNBPServer server = new FakeNBPServer(0);
+             InputStream in = new ApiConnector(server.getBaseUrl()).makeRequest(response.apiUrl)) {
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1)
+                out.write(buffer, 0, n);
+            body = out.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public Object tree() {
+        return new JSONTokener(new ByteArrayInputStream(body)).nextValue();
+    }
+
+    @Benchmark
+    public void stream(Blackhole blackhole) throws IOException {
+        try (JSONArrayStream<?> stream = new JSONArrayStream<>(new ByteArrayInputStream(body), response.jsonPointer, response.parser)) {
+            while (stream.hasNext())
+                blackhole.consume(stream.next());
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package pl.regzand.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.regzand.dataparser.DataFetcher;
+import pl.regzand.dataparser.DataProvider;
+import pl.regzand.dataparser.PrefetchingDataProvider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of iterating over data providers, with data fetched from memory in blocks of given size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProviderBenchmark {
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"1", "90", "1000"})
+    public int blockSize;
+
+    private List<Integer> data;
+
+    @Setup
+    public void createData() {
+        data = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            data.add(i);
+    }
+
+    private DataFetcher<Integer> fetcher() {
+        return new DataFetcher<Integer>() {
+            private int next = 0;
+
+            @Override
+            public Collection<Integer> fetch() {
+                if (next >= size)
+                    return Collections.emptyList();
+
+                List<Integer> block = data.subList(next, Math.min(size, next + blockSize));
+                next += blockSize;
+                return block;
+            }
+        };
+    }
+
+    @Benchmark
+    public void provider(Blackhole blackhole) throws IOException {
+        DataProvider<Integer> provider = new DataProvider<>(fetcher());
+        while (provider.hasNext())
+            blackhole.consume(provider.next());
+    }
+
+    @Benchmark
+    public void prefetchingProvider(Blackhole blackhole) throws IOException {
+        try (PrefetchingDataProvider<Integer> provider = new PrefetchingDataProvider<>(fetcher(), 4)) {
+            while (provider.hasNext())
+                blackhole.consume(provider.next());
+        }
+    }
+
+}
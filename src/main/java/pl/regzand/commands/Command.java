@@ -1,8 +1,10 @@
 package pl.regzand.commands;
 
 import com.sun.istack.internal.Nullable;
+import pl.regzand.metrics.Profiler;
 import pl.regzand.utils.ANSIColors;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -13,6 +15,11 @@ import java.util.stream.Collectors;
  */
 public abstract class Command {
 
+    /**
+     * Global option, accepted anywhere in arguments, that prints time and memory of every phase of command after its output.
+     */
+    public static final String PROFILE_OPTION = "--profile";
+
     private final String name;
     private final String syntax;
     private final String description;
@@ -22,6 +29,17 @@ public abstract class Command {
     private final Command superCommand;
     private final List<Command> subCommands;
 
+    // output of whole command path, set only on the first command in path
+    @Nullable
+    private PrintStream out;
+
+    // exception handled during the last execution of command path, set only on the first command in path
+    @Nullable
+    private Exception failure;
+
+    // whether profiler can be started, set only on the first command in path
+    private boolean profilingAllowed = true;
+
     /**
      * Creates new command.
      *
@@ -71,10 +89,29 @@ public abstract class Command {
 
     /**
      * Executes command with given arguments, firstly checking if first argument doesn't match any sub command and if not executing this command itself.
+     * If arguments contain {@value #PROFILE_OPTION}, command is profiled with {@link Profiler}, and its profile is printed after its output,
+     * unless other command is profiled at the same time, or profiling is not allowed, see {@link #setProfilingAllowed(boolean)}.
      *
      * @param args command arguments
      */
     public void execute(String[] args) {
+        if (this.superCommand == null)
+            this.failure = null;
+
+        // global options
+        if (Arrays.asList(args).contains(PROFILE_OPTION)) {
+            args = Arrays.stream(args).filter(arg -> !arg.equals(PROFILE_OPTION)).toArray(String[]::new);
+
+            if (!getRoot().profilingAllowed) {
+                getOut().println("Option " + PROFILE_OPTION + " is ignored when commands run at the same time");
+            } else {
+                Profiler profiler = Profiler.tryStart();
+                if (profiler != null) {
+                    executeProfiled(profiler, args);
+                    return;
+                }
+            }
+        }
 
         // check if there is matching sub command to execute
         if (args.length > 0) {
@@ -99,6 +136,22 @@ public abstract class Command {
             handleCommand(args);
         } catch (Exception e) {
             handleException(e);
+            getRoot().failure = e;
+        }
+    }
+
+    /**
+     * Executes command with given arguments while profiling it, and prints profile to output of this command.
+     *
+     * @param profiler profiler started on calling thread
+     * @param args     command arguments, without global options
+     */
+    private void executeProfiled(Profiler profiler, String[] args) {
+        try {
+            execute(args);
+        } finally {
+            profiler.stop();
+            profiler.report(getOut());
         }
     }
 
@@ -108,14 +161,15 @@ public abstract class Command {
     // ==============================================================================
 
     /**
-     * Writes usage of this command to standard output.
+     * Writes usage of this command to output of this command.
      * Usage contains: usage, description, all sum commands with their descriptions, details.
      * Sections that are {@code null} will not be rendered.
      */
     public void displayUsage() {
+        PrintStream out = getOut();
 
         // syntax
-        System.out.format("%n%s%n\t%s %s %s%n",
+        out.format("%n%s%n\t%s %s %s%n",
                 ANSIColors.highlite("Usage"),
                 this.getCommandPath(),
                 this.getName(),
@@ -124,7 +178,7 @@ public abstract class Command {
 
         // description
         if (!this.getDescription().isEmpty()) {
-            System.out.format("%n%s%n\t%s%n",
+            out.format("%n%s%n\t%s%n",
                     ANSIColors.highlite("Description"),
                     this.getDescription()
             );
@@ -132,14 +186,14 @@ public abstract class Command {
 
         // sub commands
         if (!this.getSubCommands().isEmpty()) {
-            System.out.format("%n%s%n", ANSIColors.highlite("Available commands"));
+            out.format("%n%s%n", ANSIColors.highlite("Available commands"));
             for (Command c : this.getSubCommands())
-                System.out.format("\t%-20s %s%n", c.getName(), c.getDescription());
+                out.format("\t%-20s %s%n", c.getName(), c.getDescription());
         }
 
         // details
         if (!this.getDetails().isEmpty()) {
-            System.out.format("%n%s%n%s%n",
+            out.format("%n%s%n%s%n",
                     ANSIColors.highlite("Details"),
                     this.getDetails()
             );
@@ -193,6 +247,63 @@ public abstract class Command {
         return details;
     }
 
+    /**
+     * Returns stream that this command writes its output to, the same for all commands in command path.
+     *
+     * @return output of this command, standard output if it wasn't set
+     */
+    public PrintStream getOut() {
+        if (this.superCommand != null)
+            return this.superCommand.getOut();
+
+        return this.out != null ? this.out : System.out;
+    }
+
+    /**
+     * Sets stream that this command, and all its sub commands, write their output to.
+     * Commands that run at the same time, e.g. for different clients, have to be separate instances with their own outputs.
+     *
+     * @param out output of commands, {@code null} for standard output
+     *
+     * @throws IllegalStateException if this command is not the first in command path
+     */
+    public void setOut(@Nullable PrintStream out) {
+        if (this.superCommand != null)
+            throw new IllegalStateException("Output can be set only for the first command in command path");
+
+        this.out = out;
+    }
+
+    /**
+     * Sets whether this command, and all its sub commands, can be profiled with {@value #PROFILE_OPTION}.
+     * {@link Profiler} records everything that happens in JVM, so it has to be disallowed for commands that run
+     * at the same time as others, otherwise their profiles would include requests of other commands.
+     *
+     * @param profilingAllowed {@code false} if {@value #PROFILE_OPTION} should be ignored
+     *
+     * @throws IllegalStateException if this command is not the first in command path
+     */
+    public void setProfilingAllowed(boolean profilingAllowed) {
+        if (this.superCommand != null)
+            throw new IllegalStateException("Profiling can be allowed only for the first command in command path");
+
+        this.profilingAllowed = profilingAllowed;
+    }
+
+    /**
+     * Returns exception that was thrown, and handled, during the last execution of command path.
+     *
+     * @return exception thrown by the last execution, {@code null} if it succeeded
+     */
+    @Nullable
+    public Exception getFailure() {
+        return getRoot().failure;
+    }
+
+    private Command getRoot() {
+        return this.superCommand == null ? this : this.superCommand.getRoot();
+    }
+
     /**
      * Returns super command of this command, can be null if this command is first in command path
      *
@@ -212,6 +323,28 @@ public abstract class Command {
         return subCommands;
     }
 
+    /**
+     * Returns command that would handle given arguments, i.e. the last command in path whose name matches them,
+     * the same way as {@link #execute(String[])} matches sub commands.
+     *
+     * @param args command arguments
+     *
+     * @return this command or one of its sub commands, that handles given arguments
+     */
+    public Command resolve(String[] args) {
+        Command command = this;
+        for (String arg : args) {
+            if (arg.equals(PROFILE_OPTION))
+                continue;
+
+            Command next = command.subCommands.stream().filter(cmd -> cmd.getName().equalsIgnoreCase(arg)).findFirst().orElse(null);
+            if (next == null)
+                break;
+            command = next;
+        }
+        return command;
+    }
+
     /**
      * Returns list of all its ancestors in command path
      *
@@ -0,0 +1,205 @@
+package pl.regzand.dataparser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Limit of requests in flight, that adapts to latency and errors of api (additive increase, multiplicative decrease).
+ * <p>
+ * Latency and result of every request are sampled, and after each window of samples the limit is adjusted:
+ * </p>
+ * <ul>
+ * <li>if any request failed, limit is multiplied by {@value #FAILURE_BACKOFF},</li>
+ * <li>if p99 latency of window rose above {@value #LATENCY_TOLERANCE} times the baseline, limit is multiplied by {@value #LATENCY_BACKOFF},</li>
+ * <li>otherwise limit grows by one.</li>
+ * </ul>
+ * <p>
+ * Baseline follows lower latencies immediately and higher ones slowly, so that it tracks latency of not overloaded api.
+ * Limit is thread safe and can be shared by several connectors, see {@link ApiConnector#setConcurrencyLimit}.
+ * </p>
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double FAILURE_BACKOFF = 0.5;
+    private static final double LATENCY_BACKOFF = 0.8;
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    // how fast baseline follows higher latencies
+    private static final double BASELINE_DRIFT = 0.1;
+
+    private static final int HISTORY_SIZE = 256;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private double limit;
+
+    private final long[] window;
+    private int samples;
+    private boolean failed;
+
+    private long baseline;
+    private long lastP99;
+
+    private final Deque<Change> history = new ArrayDeque<>();
+    private long changes;
+
+    /**
+     * Creates adaptive limit.
+     *
+     * @param initialLimit limit before any samples
+     * @param minLimit     the lowest possible limit
+     * @param maxLimit     the highest possible limit
+     * @param windowSize   number of samples after which limit is adjusted
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, int windowSize) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit)
+            throw new IllegalArgumentException("Limits have to satisfy 1 <= minLimit <= initialLimit <= maxLimit");
+        if (windowSize < 1)
+            throw new IllegalArgumentException("Window size has to be positive");
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.window = new long[windowSize];
+
+        record();
+    }
+
+    /**
+     * Returns current limit of requests in flight.
+     *
+     * @return current limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Records result of single request.
+     *
+     * @param latencyNanos time from start of request to its completion
+     * @param failure      {@code true} if request failed
+     */
+    public synchronized void onSample(long latencyNanos, boolean failure) {
+        window[samples++] = latencyNanos;
+        failed |= failure;
+
+        if (samples < window.length)
+            return;
+
+        long[] sorted = Arrays.copyOf(window, samples);
+        Arrays.sort(sorted);
+        long p99 = sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * 0.99) - 1)];
+
+        int previous = (int) limit;
+
+        if (failed)
+            limit = Math.max(minLimit, limit * FAILURE_BACKOFF);
+        else if (baseline > 0 && p99 > baseline * LATENCY_TOLERANCE)
+            limit = Math.max(minLimit, limit * LATENCY_BACKOFF);
+        else
+            limit = Math.min(maxLimit, limit + 1);
+
+        if (!failed)
+            baseline = baseline == 0 || p99 < baseline ? p99 : baseline + (long) ((p99 - baseline) * BASELINE_DRIFT);
+
+        lastP99 = p99;
+        samples = 0;
+        failed = false;
+
+        if ((int) limit != previous) {
+            changes++;
+            record();
+        }
+    }
+
+    private void record() {
+        if (history.size() == HISTORY_SIZE)
+            history.removeFirst();
+        history.addLast(new Change(System.currentTimeMillis(), (int) limit));
+    }
+
+    /**
+     * Returns p99 latency of the last complete window of samples.
+     *
+     * @return p99 latency in nanoseconds, 0 if there was no complete window yet
+     */
+    public synchronized long getLastP99Nanos() {
+        return lastP99;
+    }
+
+    /**
+     * Returns latency considered normal for not overloaded api.
+     *
+     * @return baseline latency in nanoseconds, 0 if there was no successful window yet
+     */
+    public synchronized long getBaselineNanos() {
+        return baseline;
+    }
+
+    /**
+     * Returns number of changes of limit, including ones that are no longer in history.
+     *
+     * @return number of changes
+     */
+    public synchronized long getChangeCount() {
+        return changes;
+    }
+
+    /**
+     * Returns recent changes of limit, the oldest first, starting with initial limit.
+     *
+     * @return history of limit
+     */
+    public synchronized List<Change> getHistory() {
+        return new ArrayList<>(history);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("AdaptiveConcurrencyLimit[limit=%d, p99=%.1fms, baseline=%.1fms]", (int) limit, lastP99 / 1e6, baseline / 1e6);
+    }
+
+
+    /**
+     * Change of limit.
+     */
+    public static class Change {
+
+        private final long time;
+        private final int limit;
+
+        Change(long time, int limit) {
+            this.time = time;
+            this.limit = limit;
+        }
+
+        /**
+         * Returns time of change in milliseconds since epoch
+         *
+         * @return time of change
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Returns limit set by change
+         *
+         * @return new limit
+         */
+        public int getLimit() {
+            return limit;
+        }
+
+        @Override
+        public String toString() {
+            return limit + "@" + time;
+        }
+    }
+
+}
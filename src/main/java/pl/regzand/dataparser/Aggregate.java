@@ -0,0 +1,190 @@
+package pl.regzand.dataparser;
+
+import java.util.EnumSet;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Statistics of data calculated in a single pass by {@link DataAnalyser#aggregate(ToDoubleFunction, EnumSet)}.
+ * <p>
+ * Mean and variance are updated using Welford's method, so they stay accurate for long series of similar values.
+ * Getters of statistics that were not requested throw {@link IllegalStateException}.
+ * </p>
+ *
+ * @param <T> type of aggregated data
+ */
+public class Aggregate<T> {
+
+    private final EnumSet<Statistic> statistics;
+
+    private long count;
+    private double sum;
+    private double mean;
+    private double m2;
+
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private T minElement;
+    private T maxElement;
+
+    private T first;
+    private T last;
+
+    Aggregate(EnumSet<Statistic> statistics) {
+        this.statistics = EnumSet.copyOf(statistics);
+        if (this.statistics.contains(Statistic.VARIANCE))
+            this.statistics.add(Statistic.MEAN);
+    }
+
+    /**
+     * Adds single element to statistics.
+     *
+     * @param element data element
+     * @param value   numeric value of element
+     */
+    void add(T element, double value) {
+        count++;
+
+        if (count == 1)
+            first = element;
+        last = element;
+
+        sum += value;
+
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        if (count == 1 || value < min) {
+            min = value;
+            minElement = element;
+        }
+        if (count == 1 || value > max) {
+            max = value;
+            maxElement = element;
+        }
+    }
+
+    /**
+     * Returns set of statistics that are available in this aggregate.
+     *
+     * @return set of available statistics
+     */
+    public EnumSet<Statistic> getStatistics() {
+        return EnumSet.copyOf(statistics);
+    }
+
+    /**
+     * Returns number of aggregated elements.
+     *
+     * @return number of aggregated elements
+     */
+    public long getCount() {
+        check(Statistic.COUNT);
+        return count;
+    }
+
+    /**
+     * Returns sum of values.
+     *
+     * @return sum of values
+     */
+    public double getSum() {
+        check(Statistic.SUM);
+        return sum;
+    }
+
+    /**
+     * Returns arithmetic mean of values, NaN if there was no data.
+     *
+     * @return mean of values
+     */
+    public double getMean() {
+        check(Statistic.MEAN);
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Returns population variance of values, NaN if there was no data.
+     *
+     * @return variance of values
+     */
+    public double getVariance() {
+        check(Statistic.VARIANCE);
+        return count == 0 ? Double.NaN : m2 / count;
+    }
+
+    /**
+     * Returns population standard deviation of values, NaN if there was no data.
+     *
+     * @return standard deviation of values
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Returns the smallest value, NaN if there was no data.
+     *
+     * @return the smallest value
+     */
+    public double getMin() {
+        check(Statistic.MIN);
+        return min;
+    }
+
+    /**
+     * Returns the first element with the smallest value, {@code null} if there was no data.
+     *
+     * @return element with the smallest value
+     */
+    public T getMinElement() {
+        check(Statistic.MIN);
+        return minElement;
+    }
+
+    /**
+     * Returns the biggest value, NaN if there was no data.
+     *
+     * @return the biggest value
+     */
+    public double getMax() {
+        check(Statistic.MAX);
+        return max;
+    }
+
+    /**
+     * Returns the first element with the biggest value, {@code null} if there was no data.
+     *
+     * @return element with the biggest value
+     */
+    public T getMaxElement() {
+        check(Statistic.MAX);
+        return maxElement;
+    }
+
+    /**
+     * Returns the first element, {@code null} if there was no data.
+     *
+     * @return the first element
+     */
+    public T getFirst() {
+        check(Statistic.FIRST);
+        return first;
+    }
+
+    /**
+     * Returns the last element, {@code null} if there was no data.
+     *
+     * @return the last element
+     */
+    public T getLast() {
+        check(Statistic.LAST);
+        return last;
+    }
+
+    private void check(Statistic statistic) {
+        if (!statistics.contains(statistic))
+            throw new IllegalStateException("Statistic " + statistic + " was not requested");
+    }
+
+}
@@ -1,19 +1,54 @@
 package pl.regzand.dataparser;
 
+import pl.regzand.dataparser.events.Events;
+import pl.regzand.dataparser.events.HttpRequestEvent;
 import pl.regzand.dataparser.exceptions.UnexpectedHttpStatusCodeException;
+import pl.regzand.metrics.MetricsRegistry;
+import pl.regzand.metrics.Profiler;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
+import java.io.InterruptedIOException;
 import java.net.URL;
+import java.util.Arrays;
 
 /**
  * Class responsible for making requests to JSON HTTP API
+ * <p>
+ * Requests are made with {@link Transport}, by default {@link HttpTransport}.
+ * Connections are kept alive and reused by the JVM wide connection pool,
+ * as long as every returned stream is closed after use.
+ * </p>
  */
 public class ApiConnector {
 
     private final String baseUrl;
 
+    private volatile Transport transport = new HttpTransport();
+
+    private volatile HttpCache httpCache;
+
+    private volatile int connectTimeout = 10_000;
+    private volatile int readTimeout = 30_000;
+
+    private volatile RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+
+    private volatile RequestListener requestListener;
+
+    private volatile RateLimiter rateLimiter;
+
+    private volatile Hedging hedging;
+
+    private volatile AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private volatile MetricsRegistry metrics;
+
+    // metrics of endpoints that were requested, replaced when new endpoint appears
+    private volatile EndpointMetrics[] endpoints = new EndpointMetrics[0];
+
+    // metrics of all endpoints above the limit, created when the limit is reached
+    private volatile EndpointMetrics otherEndpoints;
+
     /**
      * Create new api connector with specified base api url
      *
@@ -24,7 +59,13 @@ public class ApiConnector {
     }
 
     /**
-     * Returns InputStream containing response form API
+     * Returns InputStream containing response form API.
+     * Returned stream has to be closed, so that underlying connection can be reused.
+     * <p>
+     * Failed attempts are retried according to {@link RetryPolicy} of this connector,
+     * errors while reading returned stream are not.
+     * Slow requests are hedged if connector has {@link Hedging} set.
+     * </p>
      *
      * @param apiUrl url that will be added to baseUrl to create request url
      *
@@ -33,24 +74,399 @@ public class ApiConnector {
      * @throws UnexpectedHttpStatusCodeException if response had different response code then 200
      */
     public InputStream makeRequest(String apiUrl) throws IOException, UnexpectedHttpStatusCodeException {
-
-        // create connection
         URL url = new URL(baseUrl + apiUrl);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        EndpointMetrics endpoint = getEndpointMetrics(apiUrl);
+
+        try (Profiler.Section ignored = Profiler.begin("request")) {
+            Hedging hedging = this.hedging;
+            if (hedging != null)
+                return hedging.execute(leg -> makeRequest(url, leg, endpoint));
+
+            return makeRequest(url, null, endpoint);
+        }
+    }
+
+    /**
+     * Makes request with retries.
+     *
+     * @param url      url of request
+     * @param leg      copy of hedged request, {@code null} if request is not hedged
+     * @param endpoint metrics of requested endpoint, {@code null} if metrics are not recorded
+     */
+    private InputStream makeRequest(URL url, Hedging.Leg leg, EndpointMetrics endpoint) throws IOException, UnexpectedHttpStatusCodeException {
+        RetryPolicy retryPolicy = this.retryPolicy;
+
+        for (int attempt = 1; ; attempt++) {
+            RateLimiter rateLimiter = this.rateLimiter;
+            if (rateLimiter != null)
+                rateLimiter.acquire();
 
-        // set connection properties
-        connection.setRequestMethod("GET");
-        connection.setRequestProperty("Accept", "application/json");
+            if (leg != null && leg.isCancelled())
+                throw new InterruptedIOException("Hedged request to '" + url + "' was cancelled");
+
+            long start = System.nanoTime();
+            HttpRequestEvent event = Events.beginHttpRequest(url, attempt);
+            try {
+                InputStream stream = makeAttempt(url, true, leg, endpoint, event);
+                notifyListener(url, attempt, start, null);
+                recordAttempt(endpoint, start, false);
+                sampleAttempt(leg, start, null);
+
+                if (event != null)
+                    stream = event.succeeded(stream);
+
+                Profiler profiler = Profiler.getActive();
+                return profiler == null ? stream : profiler.requestSucceeded(url.toString(), attempt, start, stream);
+            } catch (IOException e) {
+                notifyListener(url, attempt, start, e);
+                recordAttempt(endpoint, start, true);
+                sampleAttempt(leg, start, e);
+
+                if (event != null)
+                    event.failed(e);
+
+                Profiler profiler = Profiler.getActive();
+                if (profiler != null)
+                    profiler.requestFailed(url.toString(), attempt, start, e instanceof UnexpectedHttpStatusCodeException
+                            ? "HTTP " + ((UnexpectedHttpStatusCodeException) e).getCode()
+                            : e.getClass().getSimpleName());
+
+                if (leg != null && leg.isCancelled())
+                    throw e;
+                if (!retryPolicy.shouldRetry(e, attempt))
+                    throw e;
+            }
+
+            // wait before retry
+            try {
+                Thread.sleep(retryPolicy.getDelay(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry request to '" + url + "'");
+            }
+        }
+    }
+
+    private void notifyListener(URL url, int attempt, long start, IOException error) {
+        RequestListener listener = this.requestListener;
+        if (listener != null)
+            listener.onAttempt(url, attempt, System.nanoTime() - start, error);
+    }
+
+    private void recordAttempt(EndpointMetrics endpoint, long start, boolean failure) {
+        if (endpoint == null)
+            return;
+
+        endpoint.requests.increment();
+        endpoint.latency.record(System.nanoTime() - start);
+        if (failure)
+            endpoint.failures.increment();
+    }
+
+    /**
+     * Reports latency of attempt to concurrency limit, measured after rate limiter, so that waiting for it isn't taken for load of api.
+     * Responses like 404 are answers of api, so only server errors, too many requests, and I/O errors are failures.
+     */
+    private void sampleAttempt(Hedging.Leg leg, long start, IOException error) {
+        AdaptiveConcurrencyLimit limit = this.concurrencyLimit;
+        if (limit == null || leg != null && leg.isCancelled())
+            return;
+
+        boolean failure = error != null;
+        if (error instanceof UnexpectedHttpStatusCodeException) {
+            int code = ((UnexpectedHttpStatusCodeException) error).getCode();
+            failure = code >= 500 || code == 429;
+        }
+
+        limit.onSample(System.nanoTime() - start, failure);
+    }
+
+    private InputStream makeAttempt(URL url, boolean revalidate, Hedging.Leg leg, EndpointMetrics endpoint, HttpRequestEvent event) throws IOException, UnexpectedHttpStatusCodeException {
+
+        // create exchange
+        Transport.Exchange exchange = transport.open(url);
+        if (leg != null)
+            leg.setExchange(exchange);
+
+        // set request properties
+        exchange.setTimeouts(connectTimeout, readTimeout);
+        exchange.setHeader("Accept", "application/json");
+
+        // revalidate stored response
+        HttpCache cache = this.httpCache;
+        HttpCache.Validators stored = cache == null || !revalidate ? null : cache.getValidators(url);
+        if (stored != null) {
+            if (stored.etag != null)
+                exchange.setHeader("If-None-Match", stored.etag);
+            if (stored.lastModified != null)
+                exchange.setHeader("If-Modified-Since", stored.lastModified);
+        }
 
         // making request
-        connection.connect();
+        int code = exchange.send();
+        if (event != null)
+            event.setStatus(code);
 
         // check response code
-        if (connection.getResponseCode() != 200)
-            throw new UnexpectedHttpStatusCodeException(connection.getResponseCode(), url);
+        if (code == 304 && stored != null) {
+            new ResponseInputStream(exchange.getBody()).close();
+
+            InputStream body = cache.getBody(url);
+            if (body != null)
+                return body;
+
+            // stored body was removed in the meantime
+            return makeAttempt(url, false, leg, endpoint, event);
+        }
+        if (code != 200) {
+
+            // consume error body, so that connection can go back to the pool
+            new ResponseInputStream(exchange.getBody()).close();
+
+            throw new UnexpectedHttpStatusCodeException(code, url);
+        }
+
+        // returning response, stored while it is read if it can be revalidated later
+        InputStream response = exchange.getBody();
+        InputStream body = response;
+        if (cache != null) {
+            HttpCache.Validators validators = new HttpCache.Validators(exchange.getHeader("ETag"), exchange.getHeader("Last-Modified"));
+            try {
+                body = cache.store(url, validators, response);
+            } catch (IOException ignored) {
+                // response is returned without storing it
+            }
+        }
+
+        // stored body has to be read to the end, even if caller closes it early
+        return new ResponseInputStream(body, endpoint == null ? null : endpoint.bytes, body != response);
+    }
+
+    /**
+     * Returns base url of api, that urls of requests are added to.
+     *
+     * @return base url of api
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Sets transport used to make requests, by default {@link HttpTransport}.
+     *
+     * @param transport transport used to make requests
+     */
+    public void setTransport(Transport transport) {
+        if (transport == null)
+            throw new IllegalArgumentException("Transport can not be null");
+
+        this.transport = transport;
+    }
+
+    /**
+     * Returns transport used to make requests.
+     *
+     * @return transport used to make requests
+     */
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets timeouts of connecting to api and of waiting for data, {@code 0} means no timeout.
+     *
+     * @param connectTimeout timeout of connecting in milliseconds
+     * @param readTimeout    timeout of waiting for data in milliseconds, applies also to reading returned streams
+     */
+    public void setTimeouts(int connectTimeout, int readTimeout) {
+        if (connectTimeout < 0 || readTimeout < 0)
+            throw new IllegalArgumentException("Timeouts can not be negative");
+
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Sets policy of retrying failed requests, by default {@link RetryPolicy#DEFAULT}.
+     *
+     * @param retryPolicy policy of retrying failed requests
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        if (retryPolicy == null)
+            throw new IllegalArgumentException("Retry policy can not be null");
+
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Sets listener notified about every attempt of request.
+     *
+     * @param requestListener listener of attempts, {@code null} to remove it
+     */
+    public void setRequestListener(RequestListener requestListener) {
+        this.requestListener = requestListener;
+    }
+
+    /**
+     * Returns listener notified about every attempt of request.
+     *
+     * @return listener of attempts, {@code null} if there is none
+     */
+    public RequestListener getRequestListener() {
+        return requestListener;
+    }
+
+    /**
+     * Sets rate limiter that every attempt of request has to pass, it can be shared with other connectors.
+     *
+     * @param rateLimiter rate limiter, {@code null} to make requests without limit
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Returns rate limiter that every attempt of request has to pass.
+     *
+     * @return rate limiter, {@code null} if requests are not limited
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Sets hedging of slow requests, it can be shared with other connectors of the same api.
+     *
+     * @param hedging hedging of requests, {@code null} to disable it
+     */
+    public void setHedging(Hedging hedging) {
+        this.hedging = hedging;
+    }
+
+    /**
+     * Returns hedging of slow requests.
+     *
+     * @return hedging of requests, {@code null} if requests are not hedged
+     */
+    public Hedging getHedging() {
+        return hedging;
+    }
+
+    /**
+     * Sets adaptive limit of requests in flight, that is sampled with latency and result of every attempt of request.
+     * Connector doesn't enforce the limit, it is used by callers making concurrent requests to decide how many to make,
+     * like {@link pl.regzand.dataparser.json.JSONDateRangeFetcher}. It can be shared with other connectors of the same api.
+     *
+     * @param concurrencyLimit adaptive limit, {@code null} to disable it
+     */
+    public void setConcurrencyLimit(AdaptiveConcurrencyLimit concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    /**
+     * Returns adaptive limit of requests in flight.
+     *
+     * @return adaptive limit, {@code null} if there is none
+     */
+    public AdaptiveConcurrencyLimit getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    /**
+     * Sets registry of metrics, where request counts, failures, latencies and received bytes are recorded for every endpoint of api.
+     *
+     * @param metrics registry of metrics, {@code null} to stop recording
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        synchronized (this) {
+            this.endpoints = new EndpointMetrics[0];
+            this.otherEndpoints = null;
+            this.metrics = metrics;
+        }
+    }
+
+    /**
+     * Returns registry of metrics of this connector.
+     *
+     * @return registry of metrics, {@code null} if metrics are not recorded
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns metrics of endpoint of given request, they are created once for every endpoint up to {@link EndpointMetrics#MAX_ENDPOINTS}.
+     */
+    private EndpointMetrics getEndpointMetrics(String apiUrl) {
+        if (metrics == null)
+            return null;
+
+        int length = EndpointMetrics.endpointLength(apiUrl);
+        for (EndpointMetrics endpoint : endpoints) {
+            if (endpoint.matches(apiUrl, length))
+                return endpoint;
+        }
+
+        EndpointMetrics other = otherEndpoints;
+        if (other != null)
+            return other;
+
+        synchronized (this) {
+            MetricsRegistry metrics = this.metrics;
+            if (metrics == null)
+                return null;
+
+            EndpointMetrics[] endpoints = this.endpoints;
+            for (EndpointMetrics endpoint : endpoints) {
+                if (endpoint.matches(apiUrl, length))
+                    return endpoint;
+            }
+
+            if (endpoints.length >= EndpointMetrics.MAX_ENDPOINTS) {
+                if (otherEndpoints == null)
+                    otherEndpoints = new EndpointMetrics(metrics, EndpointMetrics.OTHER);
+                return otherEndpoints;
+            }
+
+            EndpointMetrics endpoint = new EndpointMetrics(metrics, apiUrl.substring(0, length));
+            EndpointMetrics[] extended = Arrays.copyOf(endpoints, endpoints.length + 1);
+            extended[endpoints.length] = endpoint;
+            this.endpoints = extended;
+
+            return endpoint;
+        }
+    }
+
+    /**
+     * Sets on disk cache used to revalidate responses with conditional requests.
+     *
+     * @param httpCache cache of http responses, {@code null} to disable it
+     */
+    public void setHttpCache(HttpCache httpCache) {
+        this.httpCache = httpCache;
+    }
+
+    /**
+     * Returns on disk cache used to revalidate responses with conditional requests.
+     *
+     * @return cache of http responses, {@code null} if it is disabled
+     */
+    public HttpCache getHttpCache() {
+        return httpCache;
+    }
+
+    /**
+     * Sets maximum number of idle connections that will be kept alive per host.
+     * Has to be called before first request is made, as JVM reads this value only once.
+     *
+     * @param maxConnections maximum number of idle connections kept per host
+     */
+    public static void setMaxConnections(int maxConnections) {
+        if (maxConnections < 1)
+            throw new IllegalArgumentException("Pool size has to be positive");
 
-        // returning response
-        return connection.getInputStream();
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", Integer.toString(maxConnections));
     }
 
 }
@@ -0,0 +1,275 @@
+package pl.regzand.dataparser;
+
+import pl.regzand.dataparser.events.AnalysisEvent;
+import pl.regzand.dataparser.events.Events;
+import pl.regzand.metrics.Profiler;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Class with functionality to perform analysis on data from provider.
+ * Numeric values are taken from data as primitive doubles, so that analysis doesn't box them.
+ *
+ * @param <T> type of analysed data
+ */
+public class DataAnalyser<T> {
+
+    private final DataProvider<T> provider;
+
+    private boolean used;
+
+    /**
+     * Creates analyser that uses data from given provider.
+     *
+     * @param provider provider of data to analyse
+     */
+    public DataAnalyser(DataProvider<T> provider) {
+        this.provider = provider;
+        this.used = false;
+    }
+
+    /**
+     * Calculates average numeric value from all remaining data.
+     *
+     * @param getter function that returns numeric value from data
+     *
+     * @return average numeric value from all remaining data
+     * @throws IOException           if provider throw an IOException
+     * @throws IllegalStateException if all data from this analyser was already used, or there was no data
+     */
+    public double average(ToDoubleFunction<? super T> getter) throws IOException {
+        use();
+
+        try (Profiler.Section ignored = Profiler.begin("analysis"); AnalysisEvent event = Events.beginAnalysis("average")) {
+            double sum = 0;
+            int n = 0;
+
+            while (provider.hasNext()) {
+                sum += getter.applyAsDouble(provider.next());
+                n++;
+            }
+
+            if (n == 0)
+                throw new IllegalStateException("Analyser found no data to perform average calculation");
+
+            return sum / n;
+        }
+    }
+
+    /**
+     * Returns data element that has the smallest numeric value.
+     *
+     * @param getter function that returns numeric value from data
+     *
+     * @return data element that has the smallest numeric value, {@code null} if there is no data
+     * @throws IOException if provider throw an IOException
+     */
+    public T findTheSmallest(ToDoubleFunction<? super T> getter) throws IOException {
+        Range<T> range = findRange(getter);
+        return range == null ? null : range.getMin();
+    }
+
+    /**
+     * Returns data element that has the biggest numeric value.
+     *
+     * @param getter function that returns numeric value from data
+     *
+     * @return data element that has the biggest numeric value, {@code null} if there is no data
+     * @throws IOException if provider throw an IOException
+     */
+    public T findTheBiggest(ToDoubleFunction<? super T> getter) throws IOException {
+        Range<T> range = findRange(getter);
+        return range == null ? null : range.getMax();
+    }
+
+    /**
+     * Returns data elements that have the smallest and the biggest numeric value.
+     * If several elements have the same value, the first one is returned.
+     *
+     * @param getter function that returns numeric value from data
+     *
+     * @return data elements with the smallest and the biggest value, {@code null} if there is no data
+     * @throws IOException if provider throw an IOException
+     */
+    public Range<T> findRange(ToDoubleFunction<? super T> getter) throws IOException {
+        use();
+
+        try (Profiler.Section ignored = Profiler.begin("analysis"); AnalysisEvent event = Events.beginAnalysis("findRange")) {
+            if (!provider.hasNext())
+                return null;
+
+            T biggest = provider.next();
+            T smallest = biggest;
+            double bNum = getter.applyAsDouble(biggest);
+            double sNum = bNum;
+
+            while (provider.hasNext()) {
+                T next = provider.next();
+                double nextNum = getter.applyAsDouble(next);
+
+                if (nextNum > bNum) {
+                    biggest = next;
+                    bNum = nextNum;
+                }
+
+                if (nextNum < sNum) {
+                    smallest = next;
+                    sNum = nextNum;
+                }
+            }
+
+            return new Range<>(smallest, biggest);
+        }
+    }
+
+    /**
+     * Calculates all requested statistics of numeric values from all remaining data, in a single pass over the data.
+     *
+     * @param getter     function that returns numeric value from data
+     * @param statistics statistics to calculate
+     *
+     * @return aggregate with requested statistics
+     * @throws IOException              if provider throw an IOException
+     * @throws IllegalArgumentException if no statistics were requested
+     */
+    public Aggregate<T> aggregate(ToDoubleFunction<? super T> getter, EnumSet<Statistic> statistics) throws IOException {
+        if (statistics.isEmpty())
+            throw new IllegalArgumentException("At least one statistic has to be requested");
+
+        use();
+
+        try (Profiler.Section ignored = Profiler.begin("analysis"); AnalysisEvent event = Events.beginAnalysis("aggregate")) {
+            Aggregate<T> aggregate = new Aggregate<>(statistics);
+
+            while (provider.hasNext()) {
+                T next = provider.next();
+                aggregate.add(next, getter.applyAsDouble(next));
+            }
+
+            return aggregate;
+        }
+    }
+
+    /**
+     * Returns {@code n} data elements with the smallest or the biggest numeric values, ordered by these values.
+     * <p>
+     * Data is not collected nor sorted as a whole, only a bounded heap of {@code n} best elements is kept.
+     * Elements with equal values keep their order from provider, so the result is deterministic.
+     * Elements with NaN values come after all other elements in both orders.
+     * </p>
+     *
+     * @param getter function that returns numeric value from data
+     * @param n      maximum number of returned elements
+     * @param order  {@link Order#ASCENDING} for the smallest values, {@link Order#DESCENDING} for the biggest
+     *
+     * @return up to {@code n} elements ordered by their values
+     * @throws IOException              if provider throw an IOException
+     * @throws IllegalArgumentException if {@code n} is negative
+     */
+    public List<T> topN(ToDoubleFunction<? super T> getter, int n, Order order) throws IOException {
+        if (n < 0)
+            throw new IllegalArgumentException("Number of elements can not be negative");
+
+        use();
+
+        try (Profiler.Section ignored = Profiler.begin("analysis"); AnalysisEvent event = Events.beginAnalysis("topN")) {
+            TopHeap<T> heap = new TopHeap<>(n, order == Order.DESCENDING);
+
+            while (provider.hasNext()) {
+                T next = provider.next();
+                heap.offer(next, getter.applyAsDouble(next));
+            }
+
+            return heap.drain();
+        }
+    }
+
+    /**
+     * Returns data sorted using given comparator.
+     *
+     * @param comparator used to sort data
+     *
+     * @return data sorted using given comparator
+     * @throws IOException if provider throw an IOException
+     */
+    public List<T> sorted(Comparator<? super T> comparator) throws IOException {
+        use();
+
+        try (Profiler.Section ignored = Profiler.begin("analysis"); AnalysisEvent event = Events.beginAnalysis("sorted")) {
+            List<T> data = provider.getAll();
+
+            data.sort(comparator);
+
+            return data;
+        }
+    }
+
+    /**
+     * Marks data of this analyser as used.
+     *
+     * @throws IllegalStateException if all data from this analyser was already used
+     */
+    protected void use() {
+        if (used)
+            throw new IllegalStateException("Data from this analyser was already used");
+
+        used = true;
+    }
+
+    /**
+     * Returns provider of analysed data.
+     *
+     * @return provider of analysed data
+     */
+    protected DataProvider<T> getProvider() {
+        return provider;
+    }
+
+
+    /**
+     * Order of elements returned by {@link #topN(ToDoubleFunction, int, Order)}.
+     */
+    public enum Order {
+        ASCENDING,
+        DESCENDING
+    }
+
+    /**
+     * Pair of data elements with the smallest and the biggest value.
+     *
+     * @param <T> type of data
+     */
+    public static class Range<T> {
+
+        private final T min;
+        private final T max;
+
+        Range(T min, T max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * Returns element with the smallest value
+         *
+         * @return element with the smallest value
+         */
+        public T getMin() {
+            return min;
+        }
+
+        /**
+         * Returns element with the biggest value
+         *
+         * @return element with the biggest value
+         */
+        public T getMax() {
+            return max;
+        }
+    }
+
+}
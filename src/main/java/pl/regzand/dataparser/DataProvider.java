@@ -1,10 +1,19 @@
 package pl.regzand.dataparser;
 
+import pl.regzand.dataparser.events.Events;
+import pl.regzand.dataparser.events.FetchEvent;
+import pl.regzand.metrics.Counter;
+import pl.regzand.metrics.MetricsRegistry;
+import pl.regzand.metrics.Profiler;
+
 import java.io.IOException;
 import java.util.*;
 
 /**
  * Class responsible for providing data in form of an iterator
+ * <p>
+ * Number of provided records is counted in default {@link MetricsRegistry}, as {@code fetcher.<class of fetcher>.records}.
+ * </p>
  *
  * @param <T> type of provided data
  */
@@ -16,13 +25,33 @@ public class DataProvider<T> {
     // data fetcher
     private final DataFetcher<T> fetcher;
 
+    // name of class of fetcher, as records are counted
+    private final String source;
+
+    // number of fetched records
+    private final Counter records;
+
     /**
      * Creates new DataProvider that provides data from given DataFetcher.
      *
      * @param fetcher that fetches data for this provider
      */
     public DataProvider(DataFetcher<T> fetcher) {
+        this(fetcher, fetcher.getClass());
+    }
+
+    /**
+     * Creates new DataProvider that provides data from given DataFetcher, counting records as fetched by given class.
+     *
+     * @param fetcher that fetches data for this provider
+     * @param source  class of fetcher that records are counted for
+     */
+    DataProvider(DataFetcher<T> fetcher, Class<?> source) {
         this.fetcher = fetcher;
+
+        String name = source.getName();
+        this.source = name.substring(name.lastIndexOf('.') + 1);
+        this.records = MetricsRegistry.getDefault().counter("fetcher." + this.source + ".records");
     }
 
     /**
@@ -34,8 +63,16 @@ public class DataProvider<T> {
      * @throws IOException when used data fetcher throw IOException
      */
     public boolean hasNext() throws IOException {
-        if (queue.isEmpty())
-            queue.addAll(fetcher.fetch());
+        if (queue.isEmpty()) {
+            Collection<T> block;
+            try (Profiler.Section ignored = Profiler.begin("fetch"); FetchEvent event = Events.beginFetch(source)) {
+                block = fetcher.fetch();
+                if (event != null)
+                    event.setRecords(block.size());
+            }
+            records.add(block.size());
+            queue.addAll(block);
+        }
 
         return !queue.isEmpty();
     }
@@ -0,0 +1,96 @@
+package pl.regzand.dataparser;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over api urls of consecutive windows of date range.
+ */
+public class DateRangeUrls implements Iterator<String> {
+
+    private final Calendar start;
+    private final Calendar end;
+
+    private final int stepType;
+    private final int step;
+
+    private final String format;
+
+    /**
+     * Creates iterator over api urls of consecutive windows of date range.
+     *
+     * @param start    begin of range
+     * @param end      end of range
+     * @param stepType unit type of step (int code from {@link java.util.Calendar Calendar})
+     * @param step     how many of stepType take in each window
+     * @param format   format of api url, will be parsed using String.format() with begin date as first argument and end date as second
+     */
+    public DateRangeUrls(Date start, Date end, int stepType, int step, String format) {
+        this.stepType = stepType;
+        this.step = step;
+        this.format = format;
+
+        this.start = new GregorianCalendar();
+        this.end = new GregorianCalendar();
+        this.start.setTime(start);
+        this.end.setTime(end);
+    }
+
+    /**
+     * Creates iterator over api urls of consecutive windows of date range.
+     * Given start calendar is moved forward as windows are iterated.
+     *
+     * @param start    begin of range
+     * @param end      end of range
+     * @param stepType unit type of step (int code from {@link java.util.Calendar Calendar})
+     * @param step     how many of stepType take in each window
+     * @param format   format of api url, will be parsed using String.format() with begin date as first argument and end date as second
+     */
+    public DateRangeUrls(Calendar start, Calendar end, int stepType, int step, String format) {
+        this.start = start;
+        this.end = end;
+        this.stepType = stepType;
+        this.step = step;
+        this.format = format;
+    }
+
+    /**
+     * Returns {@code true} if there is another window left in range.
+     *
+     * @return {@code true} if there is another window left in range
+     */
+    @Override
+    public boolean hasNext() {
+        return !start.after(end);
+    }
+
+    /**
+     * Returns api url of next window, moving start of range past it.
+     *
+     * @return api url of next window
+     * @throws NoSuchElementException if there is nothing left in range
+     */
+    @Override
+    public String next() {
+
+        // if there is nothing left throw
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        // get range
+        Date from = start.getTime();
+        start.add(stepType, step);
+        Date to = start.getTime();
+        start.add(stepType, 1);
+
+        // if range expands after end trim it
+        if (to.after(end.getTime()))
+            to = end.getTime();
+
+        return String.format(format, from, to);
+    }
+
+}
@@ -0,0 +1,77 @@
+package pl.regzand.dataparser;
+
+import pl.regzand.metrics.Counter;
+import pl.regzand.metrics.Histogram;
+import pl.regzand.metrics.MetricsRegistry;
+
+/**
+ * Metrics of requests to single endpoint of api, recorded by {@link ApiConnector}.
+ * <p>
+ * Endpoint is the part of request url before first path segment starting with a digit, e.g. requests to
+ * {@code exchangerates/tables/a/2018-01-02/2018-03-01} are recorded as endpoint {@code exchangerates/tables/a}.
+ * Endpoints can contain arguments, like currency codes, so only the first {@value #MAX_ENDPOINTS} endpoints get
+ * their own metrics, and requests to further ones are recorded together as endpoint {@value #OTHER}.
+ * </p>
+ */
+class EndpointMetrics {
+
+    /**
+     * Maximum number of endpoints with separate metrics, per connector.
+     */
+    static final int MAX_ENDPOINTS = 32;
+
+    /**
+     * Name of endpoint that requests to endpoints above the limit are recorded as.
+     */
+    static final String OTHER = "other";
+
+    final String name;
+
+    final Counter requests;
+    final Counter failures;
+    final Counter bytes;
+    final Histogram latency;
+
+    EndpointMetrics(MetricsRegistry registry, String name) {
+        this.name = name;
+        this.requests = registry.counter("http.requests." + name);
+        this.failures = registry.counter("http.failures." + name);
+        this.bytes = registry.counter("http.bytes." + name);
+        this.latency = registry.histogram("http.latency." + name + ".nanos");
+    }
+
+    /**
+     * Returns {@code true} if request url belongs to this endpoint.
+     *
+     * @param apiUrl url of request
+     * @param length length of endpoint in url, as returned by {@link #endpointLength(String)}
+     */
+    boolean matches(String apiUrl, int length) {
+        return name.length() == length && apiUrl.regionMatches(0, name, 0, length);
+    }
+
+    /**
+     * Returns length of endpoint at the beginning of request url.
+     *
+     * @param apiUrl url of request
+     *
+     * @return length of endpoint, without trailing slash
+     */
+    static int endpointLength(String apiUrl) {
+        int segment = 0;
+
+        for (int i = 0; i < apiUrl.length(); i++) {
+            char c = apiUrl.charAt(i);
+
+            if (i == segment && c >= '0' && c <= '9')
+                return Math.max(0, segment - 1);
+            if (c == '?')
+                return i > 0 && apiUrl.charAt(i - 1) == '/' ? i - 1 : i;
+            if (c == '/')
+                segment = i + 1;
+        }
+
+        return segment == apiUrl.length() && segment > 0 ? segment - 1 : apiUrl.length();
+    }
+
+}
@@ -0,0 +1,367 @@
+package pl.regzand.dataparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hedging of requests of {@link ApiConnector}, that cuts tail latency caused by occasional slow responses.
+ * <p>
+ * When request is not answered within given percentile of recent latencies, duplicate request is sent,
+ * and whichever responds first is used. The other one is cancelled, its connection is closed.
+ * Hedged requests can take at most given percentage of all requests, so that slow api isn't flooded with duplicates.
+ * Until enough latencies are sampled requests are not hedged.
+ * </p>
+ * <p>
+ * Hedging is thread safe and can be shared by several connectors of the same api.
+ * </p>
+ */
+public class Hedging {
+
+    // number of latencies sampled before requests are hedged
+    private static final int MIN_SAMPLES = 10;
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    // executor shared by all hedging instances, running both copies of hedged requests
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "hedged-request-" + THREADS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final double percentile;
+    private final double budget;
+
+    // ring buffer of recent latencies
+    private final long[] latencies;
+    private int samples;
+    private int next;
+
+    private long requests;
+    private long hedges;
+
+    private final LongAdder hedgesWon = new LongAdder();
+    private final LongAdder cancelledLegs = new LongAdder();
+
+    /**
+     * Creates hedging.
+     *
+     * @param percentile percentile of recent latencies after which duplicate request is sent, between 0 and 1, e.g. {@code 0.95}
+     * @param budget     maximum percentage of requests that can be hedged, e.g. {@code 5}
+     * @param window     number of recent latencies taken into account
+     */
+    public Hedging(double percentile, double budget, int window) {
+        if (!(percentile > 0 && percentile < 1))
+            throw new IllegalArgumentException("Percentile has to be between 0 and 1");
+        if (!(budget >= 0 && budget <= 100))
+            throw new IllegalArgumentException("Budget has to be between 0 and 100 percent");
+        if (window < MIN_SAMPLES)
+            throw new IllegalArgumentException("Window has to hold at least " + MIN_SAMPLES + " latencies");
+
+        this.percentile = percentile;
+        this.budget = budget;
+        this.latencies = new long[window];
+    }
+
+    /**
+     * Executes request, hedging it if it is slow.
+     *
+     * @param request request that can be executed twice at the same time
+     *
+     * @return response of request that was answered first
+     * @throws IOException if both copies of request failed, exception of the first one is thrown
+     */
+    InputStream execute(Request request) throws IOException {
+        long delay = countRequest();
+
+        // not enough samples, request is made in calling thread
+        if (delay < 0) {
+            long start = System.nanoTime();
+            InputStream response = request.execute(null);
+            sample(System.nanoTime() - start);
+            return response;
+        }
+
+        Leg primary = new Leg(request);
+        try {
+            return await(primary.future, delay);
+        } catch (TimeoutException e) {
+            // primary is slow
+        } catch (IOException | RuntimeException e) {
+            // caller was interrupted, or primary failed and cancelling it does nothing
+            primary.cancel();
+            throw e;
+        }
+
+        if (!tryHedge()) {
+            try {
+                return await(primary.future);
+            } catch (IOException | RuntimeException e) {
+                primary.cancel();
+                throw e;
+            }
+        }
+
+        Leg secondary = new Leg(request);
+        CompletableFuture<Leg> winner = race(primary, secondary);
+        try {
+            Leg won = await(winner);
+            Leg lost = won == primary ? secondary : primary;
+            lost.cancel();
+
+            if (won == secondary)
+                hedgesWon.increment();
+
+            return won.future.getNow(null);
+        } catch (IOException | RuntimeException e) {
+            primary.cancel();
+            secondary.cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns future completed with the first leg that succeeded, or exceptionally with error of primary leg if both failed.
+     */
+    private static CompletableFuture<Leg> race(Leg primary, Leg secondary) {
+        CompletableFuture<Leg> winner = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(2);
+        AtomicReference<Throwable> primaryError = new AtomicReference<>();
+
+        for (Leg leg : new Leg[]{primary, secondary}) {
+            leg.future.whenComplete((response, e) -> {
+                if (e == null) {
+                    if (!winner.complete(leg))
+                        closeQuietly(response);
+                    return;
+                }
+
+                if (leg == primary)
+                    primaryError.set(e);
+                if (remaining.decrementAndGet() == 0)
+                    winner.completeExceptionally(primaryError.get() != null ? primaryError.get() : e);
+            });
+        }
+
+        return winner;
+    }
+
+    /**
+     * Counts request and returns delay after which it can be hedged.
+     *
+     * @return delay in nanoseconds, or {@code -1} if there are not enough samples
+     */
+    private synchronized long countRequest() {
+        requests++;
+        return getDelayNanos();
+    }
+
+    private synchronized boolean tryHedge() {
+        if (hedges + 1 > requests * budget / 100)
+            return false;
+
+        hedges++;
+        return true;
+    }
+
+    private synchronized void sample(long latency) {
+        latencies[next] = latency;
+        next = (next + 1) % latencies.length;
+        samples = Math.min(samples + 1, latencies.length);
+    }
+
+    /**
+     * Returns delay after which request is hedged, based on recent latencies.
+     *
+     * @return delay in nanoseconds, or {@code -1} if there are not enough samples yet
+     */
+    public synchronized long getDelayNanos() {
+        if (samples < MIN_SAMPLES)
+            return -1;
+
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        return sorted[Math.min(samples - 1, (int) Math.ceil(samples * percentile) - 1)];
+    }
+
+    /**
+     * Returns number of requests made through this hedging.
+     *
+     * @return number of requests
+     */
+    public synchronized long getRequestCount() {
+        return requests;
+    }
+
+    /**
+     * Returns number of requests that were hedged, by sending duplicate request.
+     *
+     * @return number of hedged requests
+     */
+    public synchronized long getHedgedCount() {
+        return hedges;
+    }
+
+    /**
+     * Returns number of hedged requests where duplicate request responded first.
+     *
+     * @return number of hedges that won
+     */
+    public long getHedgesWonCount() {
+        return hedgesWon.sum();
+    }
+
+    /**
+     * Returns number of copies of requests that were cancelled, because the other copy responded first.
+     *
+     * @return number of cancelled requests
+     */
+    public long getCancelledCount() {
+        return cancelledLegs.sum();
+    }
+
+    private static <T> T await(CompletableFuture<T> future, long delay) throws IOException, TimeoutException {
+        try {
+            return future.get(delay, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for response");
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for response");
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private static IOException rethrow(Throwable cause) {
+        if (cause instanceof IOException)
+            return (IOException) cause;
+        if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+        if (cause instanceof Error)
+            throw (Error) cause;
+        return new IOException(cause);
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // response is not needed anyway
+        }
+    }
+
+
+    /**
+     * Request that can be hedged.
+     */
+    @FunctionalInterface
+    interface Request {
+
+        /**
+         * Executes request.
+         *
+         * @param leg copy of hedged request that is executed, it has to be given every opened exchange; {@code null} if request is not hedged
+         *
+         * @return response
+         * @throws IOException if request failed
+         */
+        InputStream execute(Leg leg) throws IOException;
+    }
+
+    /**
+     * One of copies of hedged request, running on shared executor.
+     */
+    class Leg {
+
+        private final CompletableFuture<InputStream> future = new CompletableFuture<>();
+
+        private volatile boolean cancelled;
+        private volatile Transport.Exchange exchange;
+
+        Leg(Request request) {
+            try {
+                EXECUTOR.execute(() -> run(request));
+            } catch (RuntimeException e) {
+                // executor rejected request
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void run(Request request) {
+            if (cancelled)
+                return;
+
+            long start = System.nanoTime();
+            try {
+                InputStream response = request.execute(this);
+                if (!cancelled)
+                    sample(System.nanoTime() - start);
+                if (!future.complete(response))
+                    closeQuietly(response);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * Returns {@code true} if this copy was cancelled and shouldn't be retried.
+         *
+         * @return {@code true} if cancelled
+         */
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Sets exchange currently made by this copy, it is aborted if copy is cancelled.
+         *
+         * @param exchange opened exchange
+         */
+        void setExchange(Transport.Exchange exchange) {
+            this.exchange = exchange;
+            if (cancelled)
+                exchange.abort();
+        }
+
+        private void cancel() {
+            if (cancelled)
+                return;
+
+            cancelled = true;
+            if (future.isDone()) {
+                // response that arrived just before cancelling is not used
+                future.thenAccept(Hedging::closeQuietly);
+                return;
+            }
+
+            cancelledLegs.increment();
+            future.cancel(false);
+
+            Transport.Exchange exchange = this.exchange;
+            if (exchange != null)
+                exchange.abort();
+        }
+    }
+
+}
@@ -0,0 +1,333 @@
+package pl.regzand.dataparser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * On disk cache of http responses, used by {@link ApiConnector} to revalidate responses with conditional requests.
+ * <p>
+ * Responses that have {@code ETag} or {@code Last-Modified} header are stored while they are read,
+ * and following requests for the same url send {@code If-None-Match} and {@code If-Modified-Since} headers.
+ * When server responds with 304 Not Modified, stored body is returned instead.
+ * Body is stored only if it was read to the end, so partially read responses never replace complete ones;
+ * {@link ApiConnector} reads the rest of stored body when it is closed early.
+ * </p>
+ * <p>
+ * Each response is kept in two files named after SHA-256 of its url, one with body and one with validators.
+ * Files are replaced atomically, so cache can be shared by threads and processes.
+ * When total size of stored bodies exceeds the budget, the least recently used responses are removed.
+ * Failures of writing to disk only make response not stored, reading of response never fails because of them.
+ * </p>
+ */
+public class HttpCache {
+
+    private static final int META_VERSION = 1;
+
+    /**
+     * Default budget of cache, in bytes of stored bodies.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+
+    private final Path directory;
+    private final long maxBytes;
+
+    // estimated total size of stored bodies, recalculated when responses are evicted
+    private final AtomicLong bytes;
+
+    private final LongAdder revalidated = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * Creates cache kept in given directory.
+     *
+     * @param directory directory of cache, created if it doesn't exist
+     * @param maxBytes  maximum total size of stored bodies
+     *
+     * @throws IOException if directory couldn't be created or read
+     */
+    public HttpCache(Path directory, long maxBytes) throws IOException {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("Cache size can not be negative");
+
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        this.bytes = new AtomicLong(bodies().stream().mapToLong(body -> body.size).sum());
+    }
+
+    /**
+     * Creates cache kept in given directory, with budget of {@link #DEFAULT_MAX_BYTES}.
+     *
+     * @param directory directory of cache, created if it doesn't exist
+     *
+     * @throws IOException if directory couldn't be created or read
+     */
+    public HttpCache(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Returns validators of stored response to given url.
+     *
+     * @param url url of request
+     *
+     * @return validators of stored response, {@code null} if nothing is stored
+     */
+    Validators getValidators(URL url) {
+        String key = key(url);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(directory.resolve(key + ".meta"))))) {
+            if (in.readInt() != META_VERSION || !in.readUTF().equals(url.toString()))
+                return null;
+
+            String etag = in.readUTF();
+            String lastModified = in.readUTF();
+
+            return new Validators(etag.isEmpty() ? null : etag, lastModified.isEmpty() ? null : lastModified);
+        } catch (IOException e) {
+            // nothing stored, or stored file is broken and will be replaced
+            return null;
+        }
+    }
+
+    /**
+     * Returns stored body of response to given url, after server responded that it wasn't modified.
+     *
+     * @param url url of request
+     *
+     * @return stream with stored body, {@code null} if it was removed in the meantime
+     */
+    InputStream getBody(URL url) throws IOException {
+        try {
+            Path path = directory.resolve(key(url) + ".body");
+            InputStream body = Files.newInputStream(path);
+            revalidated.increment();
+
+            // modification time orders responses for eviction
+            try {
+                Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException ignored) {
+                // response is just evicted earlier
+            }
+
+            return body;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns stream that stores given response body while it is read, if response has validators.
+     *
+     * @param url        url of request
+     * @param validators validators of response
+     * @param body       response body
+     *
+     * @return stream returning the same data as response body
+     */
+    InputStream store(URL url, Validators validators, InputStream body) throws IOException {
+        if (validators.etag == null && validators.lastModified == null)
+            return body;
+
+        return new StoringInputStream(url, validators, body);
+    }
+
+    /**
+     * Returns number of responses served from disk after server responded with 304 Not Modified.
+     *
+     * @return number of revalidated responses
+     */
+    public long getRevalidatedCount() {
+        return revalidated.sum();
+    }
+
+    /**
+     * Returns number of response bodies stored on disk.
+     *
+     * @return number of stored responses
+     */
+    public long getStoredCount() {
+        return stored.sum();
+    }
+
+    /**
+     * Returns number of responses removed from disk to keep cache within its budget.
+     *
+     * @return number of evicted responses
+     */
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    /**
+     * Adds size of newly stored body, and evicts the least recently used responses if budget is exceeded.
+     */
+    private void charge(long size) {
+        if (bytes.addAndGet(size) <= maxBytes)
+            return;
+
+        synchronized (this) {
+            if (bytes.get() <= maxBytes)
+                return;
+
+            try {
+                List<StoredBody> bodies = bodies();
+                bodies.sort(Comparator.comparing(body -> body.modified));
+
+                long total = bodies.stream().mapToLong(body -> body.size).sum();
+                for (Iterator<StoredBody> iterator = bodies.iterator(); total > maxBytes && iterator.hasNext(); ) {
+                    StoredBody body = iterator.next();
+                    String name = body.path.getFileName().toString();
+
+                    // validators first, so that body is never revalidated after it is removed
+                    Files.deleteIfExists(body.path.resolveSibling(name.substring(0, name.length() - ".body".length()) + ".meta"));
+                    Files.deleteIfExists(body.path);
+
+                    total -= body.size;
+                    evicted.increment();
+                }
+                bytes.set(total);
+            } catch (IOException ignored) {
+                // retried when next response is stored
+            }
+        }
+    }
+
+    /**
+     * Returns all stored bodies, including ones stored by other processes.
+     */
+    private List<StoredBody> bodies() throws IOException {
+        List<StoredBody> bodies = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*.body")) {
+            for (Path path : paths) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    bodies.add(new StoredBody(path, attributes.size(), attributes.lastModifiedTime()));
+                } catch (NoSuchFileException ignored) {
+                    // removed in the meantime
+                }
+            }
+        }
+        return bodies;
+    }
+
+    /**
+     * Returns name of files of given url, also used by {@link RecordingTransport}.
+     */
+    static String key(URL url) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(url.toString().getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder key = new StringBuilder();
+            for (byte b : hash)
+                key.append(String.format("%02x", b));
+
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+
+    /**
+     * Validators of http response.
+     */
+    static class Validators {
+
+        final String etag;
+        final String lastModified;
+
+        Validators(String etag, String lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Body file found on disk, with its size and time of last use.
+     */
+    private static class StoredBody {
+
+        final Path path;
+        final long size;
+        final FileTime modified;
+
+        StoredBody(Path path, long size, FileTime modified) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+
+    /**
+     * Stream that copies response body to temporary file, and stores it in cache when end of body is reached.
+     */
+    private class StoringInputStream extends TeeInputStream {
+
+        private final URL url;
+        private final Validators validators;
+
+        StoringInputStream(URL url, Validators validators, InputStream in) throws IOException {
+            super(in, directory, "body");
+            this.url = url;
+            this.validators = validators;
+        }
+
+        /**
+         * Moves complete body to cache, and writes its validators.
+         */
+        @Override
+        protected void commit(Path copy, long size) throws IOException {
+            String key = key(url);
+            Path body = directory.resolve(key + ".body");
+            Path meta = directory.resolve(key + ".meta");
+            boolean moved = false;
+
+            Path metaTemp = Files.createTempFile(directory, "meta", ".tmp");
+            try {
+                try (DataOutputStream metaOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(metaTemp)))) {
+                    metaOut.writeInt(META_VERSION);
+                    metaOut.writeUTF(url.toString());
+                    metaOut.writeUTF(validators.etag == null ? "" : validators.etag);
+                    metaOut.writeUTF(validators.lastModified == null ? "" : validators.lastModified);
+                }
+
+                Files.move(copy, body, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                moved = true;
+                Files.move(metaTemp, meta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // validators of previous body must not be used with the new one
+                if (moved)
+                    Files.deleteIfExists(meta);
+                throw e;
+            } finally {
+                Files.deleteIfExists(metaTemp);
+            }
+
+            stored.increment();
+            charge(size);
+        }
+    }
+
+}
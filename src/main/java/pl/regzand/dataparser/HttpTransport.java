@@ -0,0 +1,83 @@
+package pl.regzand.dataparser;
+
+import pl.regzand.metrics.Profiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Transport making requests over network with {@link HttpURLConnection}.
+ * <p>
+ * Connections are kept alive and reused by the JVM wide connection pool, see {@link ApiConnector#setMaxConnections(int)}.
+ * </p>
+ */
+public class HttpTransport implements Transport {
+
+    @Override
+    public Exchange open(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("GET");
+        connection.setRequestProperty("Connection", "keep-alive");
+
+        return new HttpExchange(connection);
+    }
+
+
+    /**
+     * Exchange backed by http connection.
+     */
+    private static class HttpExchange implements Exchange {
+
+        private final HttpURLConnection connection;
+
+        private int code;
+
+        HttpExchange(HttpURLConnection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void setTimeouts(int connectTimeout, int readTimeout) {
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            connection.setRequestProperty(name, value);
+        }
+
+        @Override
+        public int send() throws IOException {
+
+            // resolving host and opening connection, unless one is reused from pool
+            try (Profiler.Section ignored = Profiler.begin("connect")) {
+                connection.connect();
+            }
+
+            // sending request and waiting for response headers
+            try (Profiler.Section ignored = Profiler.begin("response")) {
+                code = connection.getResponseCode();
+            }
+            return code;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        }
+
+        @Override
+        public void abort() {
+            connection.disconnect();
+        }
+    }
+
+}
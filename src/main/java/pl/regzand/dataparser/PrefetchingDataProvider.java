@@ -0,0 +1,166 @@
+package pl.regzand.dataparser;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * DataProvider that fetches following data blocks in background, while current block is being processed.
+ * <p>
+ * Data is provided in exactly the same order and blocks as by {@link DataProvider}.
+ * Provider should be closed if not all data was used, so that background fetching stops.
+ * </p>
+ *
+ * @param <T> type of provided data
+ */
+public class PrefetchingDataProvider<T> extends DataProvider<T> implements AutoCloseable {
+
+    private final Prefetcher<T> prefetcher;
+
+    /**
+     * Creates new DataProvider that provides data from given DataFetcher, fetching up to {@code readAhead} blocks ahead.
+     *
+     * @param fetcher   that fetches data for this provider
+     * @param readAhead maximum number of blocks fetched ahead and waiting to be used
+     */
+    public PrefetchingDataProvider(DataFetcher<T> fetcher, int readAhead) {
+        this(new Prefetcher<>(fetcher, readAhead));
+    }
+
+    private PrefetchingDataProvider(Prefetcher<T> prefetcher) {
+        super(prefetcher, prefetcher.fetcher.getClass());
+        this.prefetcher = prefetcher;
+        this.prefetcher.start();
+    }
+
+    /**
+     * Stops background fetching and drops all blocks fetched ahead.
+     */
+    @Override
+    public void close() {
+        prefetcher.close();
+    }
+
+
+    /**
+     * Fetcher that takes blocks fetched by background thread.
+     *
+     * @param <T> type of fetched data
+     */
+    private static class Prefetcher<T> implements DataFetcher<T>, Runnable {
+
+        private final DataFetcher<T> fetcher;
+
+        private final BlockingQueue<Block<T>> blocks;
+
+        private final Thread thread;
+
+        private volatile boolean closed;
+
+        // block that ended fetching, returned for every following call
+        private Block<T> last;
+
+        Prefetcher(DataFetcher<T> fetcher, int readAhead) {
+            if (readAhead < 1)
+                throw new IllegalArgumentException("Read ahead has to be positive");
+
+            this.fetcher = fetcher;
+            this.blocks = new ArrayBlockingQueue<>(readAhead);
+            this.thread = new Thread(this, "data-prefetcher");
+            this.thread.setDaemon(true);
+            this.closed = false;
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void close() {
+            closed = true;
+            thread.interrupt();
+            blocks.clear();
+        }
+
+        /**
+         * Fetches blocks until fetcher runs out of data, fails or prefetcher is closed.
+         */
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    Block<T> block;
+                    try {
+                        block = new Block<>(fetcher.fetch(), null);
+                    } catch (Throwable e) {
+                        // errors end fetching as well, otherwise consumer would wait for next block forever
+                        block = new Block<>(null, e);
+                    }
+
+                    blocks.put(block);
+
+                    if (block.isLast())
+                        return;
+                }
+            } catch (InterruptedException ignored) {
+                // closed while waiting for consumer
+            }
+        }
+
+        /**
+         * Returns next block fetched in background, waiting for it if necessary.
+         *
+         * @return next data block
+         */
+        @Override
+        public Collection<T> fetch() throws IOException {
+            if (closed)
+                throw new IllegalStateException("Provider was already closed");
+
+            Block<T> block = last;
+            if (block == null) {
+                try {
+                    block = blocks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for data", e);
+                }
+
+                if (block.isLast())
+                    last = block;
+            }
+
+            if (block.error instanceof IOException)
+                throw (IOException) block.error;
+            if (block.error instanceof RuntimeException)
+                throw (RuntimeException) block.error;
+            if (block.error instanceof Error)
+                throw (Error) block.error;
+            if (block.error != null)
+                throw new IllegalStateException("Fetching of data failed", block.error);
+
+            return block.data;
+        }
+    }
+
+    /**
+     * Data block, or exception or error thrown while fetching it.
+     *
+     * @param <T> type of fetched data
+     */
+    private static class Block<T> {
+
+        final Collection<T> data;
+        final Throwable error;
+
+        Block(Collection<T> data, Throwable error) {
+            this.data = data;
+            this.error = error;
+        }
+
+        boolean isLast() {
+            return error != null || data.isEmpty();
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package pl.regzand.dataparser;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket limiting rate of requests, that can be shared by any number of connectors and threads.
+ * <p>
+ * Bucket holds up to {@code burst} tokens and is refilled with {@code permitsPerSecond} tokens per second.
+ * Every request takes one token, waiting if there is none. Tokens are reserved in order of calls,
+ * so waiting callers get their tokens one after another at the configured rate, and the rate is never exceeded.
+ * </p>
+ */
+public class RateLimiter {
+
+    private double permitsPerSecond;
+    private int burst;
+
+    // may be negative, when tokens are reserved by waiting callers
+    private double tokens;
+    private long lastRefill;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    /**
+     * Creates rate limiter with full bucket.
+     *
+     * @param permitsPerSecond number of requests per second
+     * @param burst            maximum number of requests that can be made at once after idle period
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        setRate(permitsPerSecond, burst);
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Changes rate of requests. Tokens that are already in bucket are kept, up to new burst.
+     *
+     * @param permitsPerSecond number of requests per second
+     * @param burst            maximum number of requests that can be made at once after idle period
+     */
+    public synchronized void setRate(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0) || burst < 1)
+            throw new IllegalArgumentException("Rate and burst have to be positive");
+
+        refill(System.nanoTime());
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.tokens = Math.min(tokens, burst);
+    }
+
+    /**
+     * Takes one token, waiting until it is available.
+     *
+     * @return time spent waiting in nanoseconds
+     * @throws InterruptedIOException if thread was interrupted while waiting
+     */
+    public long acquire() throws InterruptedIOException {
+        long wait = reserve();
+
+        acquired.increment();
+        if (wait > 0) {
+            delayed.increment();
+            waitNanos.add(wait);
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for rate limiter");
+            }
+        }
+
+        return wait;
+    }
+
+    /**
+     * Reserves one token.
+     *
+     * @return time after which reserved token is available, in nanoseconds
+     */
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        refill(now);
+
+        tokens -= 1;
+        if (tokens >= 0)
+            return 0;
+
+        return (long) Math.ceil(-tokens / permitsPerSecond * 1e9);
+    }
+
+    private void refill(long now) {
+        if (permitsPerSecond > 0)
+            tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerSecond / 1e9);
+        lastRefill = now;
+    }
+
+    /**
+     * Returns number of tokens taken.
+     *
+     * @return number of acquired tokens
+     */
+    public long getAcquiredCount() {
+        return acquired.sum();
+    }
+
+    /**
+     * Returns number of callers that had to wait for their token.
+     *
+     * @return number of delayed callers
+     */
+    public long getDelayedCount() {
+        return delayed.sum();
+    }
+
+    /**
+     * Returns total time callers spent waiting for tokens.
+     *
+     * @return total waiting time in nanoseconds
+     */
+    public long getTotalWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("RateLimiter[rate=%.1f/s, burst=%d, acquired=%d, delayed=%d, waited=%dms]",
+                permitsPerSecond, burst, getAcquiredCount(), getDelayedCount(), getTotalWaitNanos() / 1_000_000);
+    }
+
+}
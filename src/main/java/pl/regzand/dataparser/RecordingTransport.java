@@ -0,0 +1,161 @@
+package pl.regzand.dataparser;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transport that passes requests to other transport, and records their responses to disk so that they can be replayed by {@link ReplayTransport}.
+ * <p>
+ * Status and body of every response are kept in a file named after SHA-256 of its url, latest response replaces older ones.
+ * Response is recorded only if its body was read to the end, and 304 Not Modified responses are not recorded at all,
+ * as they have no body to replay, so requests that are recorded shouldn't be revalidated with {@link HttpCache}.
+ * Failures of writing recordings never fail requests.
+ * </p>
+ */
+public class RecordingTransport implements Transport {
+
+    static final int VERSION = 1;
+    static final String EXTENSION = ".response";
+
+    private final Transport transport;
+    private final Path directory;
+
+    private final LongAdder recorded = new LongAdder();
+
+    /**
+     * Creates transport recording responses to given directory.
+     *
+     * @param transport transport making requests
+     * @param directory directory of recordings, created if it doesn't exist
+     *
+     * @throws IOException if directory couldn't be created
+     */
+    public RecordingTransport(Transport transport, Path directory) throws IOException {
+        this.transport = transport;
+        this.directory = Files.createDirectories(directory);
+    }
+
+    @Override
+    public Exchange open(URL url) throws IOException {
+        return new RecordingExchange(url, transport.open(url));
+    }
+
+    /**
+     * Returns number of responses recorded to disk.
+     *
+     * @return number of recorded responses
+     */
+    public long getRecordedCount() {
+        return recorded.sum();
+    }
+
+    /**
+     * Writes recording of response, replacing previous one.
+     */
+    private void record(URL url, int code, Path body) throws IOException {
+        Path temp = Files.createTempFile(directory, "response", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(VERSION);
+                out.writeUTF(url.toString());
+                out.writeInt(code);
+                if (body != null)
+                    Files.copy(body, out);
+            }
+            Files.move(temp, directory.resolve(HttpCache.key(url) + EXTENSION), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            recorded.increment();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+
+    /**
+     * Exchange recording response of other exchange.
+     */
+    private class RecordingExchange implements Exchange {
+
+        private final URL url;
+        private final Exchange exchange;
+
+        private int code;
+
+        RecordingExchange(URL url, Exchange exchange) {
+            this.url = url;
+            this.exchange = exchange;
+        }
+
+        @Override
+        public void setTimeouts(int connectTimeout, int readTimeout) {
+            exchange.setTimeouts(connectTimeout, readTimeout);
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            exchange.setHeader(name, value);
+        }
+
+        @Override
+        public int send() throws IOException {
+            code = exchange.send();
+            return code;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return exchange.getHeader(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            InputStream body = exchange.getBody();
+            if (code == 304)
+                return body;
+
+            // failure of recording never fails the request
+            try {
+                if (body == null)
+                    record(url, code, null);
+                else
+                    return new RecordingInputStream(url, code, body);
+            } catch (IOException ignored) {
+                // response is returned without recording it
+            }
+
+            return body;
+        }
+
+        @Override
+        public void abort() {
+            exchange.abort();
+        }
+    }
+
+    /**
+     * Stream that copies response body to temporary file, and records it when end of body is reached.
+     */
+    private class RecordingInputStream extends TeeInputStream {
+
+        private final URL url;
+        private final int code;
+
+        RecordingInputStream(URL url, int code, InputStream in) throws IOException {
+            super(in, directory, "body");
+            this.url = url;
+            this.code = code;
+        }
+
+        @Override
+        protected void commit(Path copy, long size) throws IOException {
+            record(url, code, copy);
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package pl.regzand.dataparser;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transport that replays responses recorded by {@link RecordingTransport}, without using network.
+ * <p>
+ * Requests for urls that weren't recorded fail with {@link FileNotFoundException}, which is never retried.
+ * Request headers are ignored, so recorded response is returned also to conditional requests.
+ * </p>
+ */
+public class ReplayTransport implements Transport {
+
+    private final Path directory;
+
+    private final LongAdder replayed = new LongAdder();
+
+    /**
+     * Creates transport replaying responses from given directory.
+     *
+     * @param directory directory of recordings
+     */
+    public ReplayTransport(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Exchange open(URL url) {
+        return new ReplayExchange(url);
+    }
+
+    /**
+     * Returns number of responses replayed from disk.
+     *
+     * @return number of replayed responses
+     */
+    public long getReplayedCount() {
+        return replayed.sum();
+    }
+
+
+    /**
+     * Exchange replaying recorded response.
+     */
+    private class ReplayExchange implements Exchange {
+
+        private final URL url;
+
+        private DataInputStream recording;
+
+        ReplayExchange(URL url) {
+            this.url = url;
+        }
+
+        @Override
+        public void setTimeouts(int connectTimeout, int readTimeout) {
+            // there is nothing to wait for
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            // recorded response doesn't depend on headers
+        }
+
+        @Override
+        public int send() throws IOException {
+            try {
+                recording = new DataInputStream(new BufferedInputStream(Files.newInputStream(directory.resolve(HttpCache.key(url) + RecordingTransport.EXTENSION))));
+            } catch (NoSuchFileException e) {
+                throw new FileNotFoundException("There is no recorded response to '" + url + "'");
+            }
+
+            try {
+                if (recording.readInt() != RecordingTransport.VERSION || !recording.readUTF().equals(url.toString()))
+                    throw new IOException("Recorded response to '" + url + "' is broken");
+
+                int code = recording.readInt();
+                replayed.increment();
+                return code;
+            } catch (IOException e) {
+                recording.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return null;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return recording;
+        }
+
+        @Override
+        public void abort() {
+            // replayed response is never slow
+        }
+    }
+
+}
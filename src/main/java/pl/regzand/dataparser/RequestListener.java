@@ -0,0 +1,23 @@
+package pl.regzand.dataparser;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Listener notified about every attempt of request made by {@link ApiConnector}.
+ */
+@FunctionalInterface
+public interface RequestListener {
+
+    /**
+     * Called after attempt of request ended, before it is retried.
+     * Time of successful attempt covers only waiting for response headers, as body is read by caller.
+     *
+     * @param url           url of request
+     * @param attempt       number of attempt, starting from 1
+     * @param durationNanos duration of attempt in nanoseconds
+     * @param error         exception that ended attempt, {@code null} if it succeeded
+     */
+    void onAttempt(URL url, int attempt, long durationNanos, IOException error);
+
+}
@@ -0,0 +1,99 @@
+package pl.regzand.dataparser;
+
+import pl.regzand.dataparser.exceptions.UnexpectedHttpStatusCodeException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request listener counting attempts of requests, their failures and time.
+ */
+public class RequestStatistics implements RequestListener {
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    @Override
+    public void onAttempt(URL url, int attempt, long durationNanos, IOException error) {
+        attempts.increment();
+        nanos.add(durationNanos);
+
+        if (attempt > 1)
+            retries.increment();
+
+        if (error instanceof UnexpectedHttpStatusCodeException && ((UnexpectedHttpStatusCodeException) error).getCode() == 404)
+            notFound.increment();
+        else if (error != null)
+            failures.increment();
+
+        if (error instanceof SocketTimeoutException)
+            timeouts.increment();
+    }
+
+    /**
+     * Returns number of all attempts.
+     *
+     * @return number of attempts
+     */
+    public long getAttemptCount() {
+        return attempts.sum();
+    }
+
+    /**
+     * Returns number of attempts that were retries of failed ones.
+     *
+     * @return number of retries
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * Returns number of attempts that failed, not counting 404 responses.
+     *
+     * @return number of failed attempts
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Returns number of attempts that timed out.
+     *
+     * @return number of timed out attempts
+     */
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Returns number of attempts that ended with 404, meaning there is no requested data.
+     *
+     * @return number of 404 responses
+     */
+    public long getNotFoundCount() {
+        return notFound.sum();
+    }
+
+    /**
+     * Returns total time of all attempts in nanoseconds.
+     *
+     * @return total time of attempts
+     */
+    public long getTotalNanos() {
+        return nanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RequestStatistics[attempts=%d, retries=%d, failures=%d, timeouts=%d, notFound=%d, time=%dms]",
+                getAttemptCount(), getRetryCount(), getFailureCount(), getTimeoutCount(), getNotFoundCount(), getTotalNanos() / 1_000_000);
+    }
+
+}
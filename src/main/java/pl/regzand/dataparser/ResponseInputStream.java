@@ -0,0 +1,91 @@
+package pl.regzand.dataparser;
+
+import pl.regzand.metrics.Counter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stream wrapping http response body, that on close reads what is left of response,
+ * so that connection can be returned to keep-alive pool instead of being dropped.
+ * Only small remainders are read, unless body is being stored by {@link HttpCache}, which needs it to the end.
+ * Bytes read from stream can be counted.
+ */
+class ResponseInputStream extends FilterInputStream {
+
+    // how many bytes are worth draining instead of dropping the connection
+    private static final int MAX_DRAIN = 64 * 1024;
+
+    private boolean closed;
+
+    private final Counter bytes;
+
+    // whether whole remainder is read on close, not only up to MAX_DRAIN
+    private final boolean drainFully;
+
+    /**
+     * Creates stream wrapping given response body.
+     *
+     * @param in response body, can be {@code null} if response had no body
+     */
+    ResponseInputStream(InputStream in) {
+        this(in, null, false);
+    }
+
+    /**
+     * Creates stream wrapping given response body, counting read bytes.
+     *
+     * @param in         response body, can be {@code null} if response had no body
+     * @param bytes      counter of read bytes, {@code null} if they are not counted
+     * @param drainFully whether whole remainder of body is read on close, e.g. so that it is stored in {@link HttpCache}
+     */
+    ResponseInputStream(InputStream in, Counter bytes, boolean drainFully) {
+        super(in);
+        this.closed = false;
+        this.bytes = bytes;
+        this.drainFully = drainFully;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1 && bytes != null)
+            bytes.increment();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0 && bytes != null)
+            bytes.add(n);
+        return n;
+    }
+
+    /**
+     * Drains remaining response body and closes the stream.
+     *
+     * @throws IOException if there was an I/O error while closing
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed || in == null)
+            return;
+
+        closed = true;
+
+        try {
+            byte[] buffer = new byte[4096];
+            int drained = 0;
+            int n;
+            while ((drainFully || drained < MAX_DRAIN) && (n = in.read(buffer)) != -1)
+                drained += n;
+        } catch (IOException ignored) {
+            // connection is broken anyway, it won't be reused
+        } finally {
+            in.close();
+        }
+    }
+
+}
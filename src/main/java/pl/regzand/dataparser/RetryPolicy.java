@@ -0,0 +1,100 @@
+package pl.regzand.dataparser;
+
+import pl.regzand.dataparser.exceptions.UnexpectedHttpStatusCodeException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Policy of retrying failed requests of {@link ApiConnector}.
+ * <p>
+ * Requests are retried after I/O errors (including timeouts), server errors (5xx) and 429 Too Many Requests.
+ * Other status codes, like 404 that means there is no data, are never retried.
+ * Delay before n-th retry is random between zero and {@code baseDelay * 2^(n-1)}, but not longer than {@code maxDelay},
+ * so that clients failing at the same time don't retry at the same time.
+ * </p>
+ */
+public class RetryPolicy {
+
+    /**
+     * Policy that never retries requests.
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    /**
+     * Policy used by connectors by default, up to 3 attempts with delays up to 200ms and 400ms.
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 200, 5000);
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+
+    /**
+     * Creates retry policy.
+     *
+     * @param maxAttempts maximum number of attempts of single request, including the first one
+     * @param baseDelay   maximum delay before first retry in milliseconds
+     * @param maxDelay    maximum delay before any retry in milliseconds
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay) {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("Number of attempts has to be positive");
+        if (baseDelay < 0 || maxDelay < baseDelay)
+            throw new IllegalArgumentException("Delays have to satisfy 0 <= baseDelay <= maxDelay");
+
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * Returns {@code true} if request that failed with given exception should be retried.
+     *
+     * @param e       exception thrown by attempt
+     * @param attempt number of failed attempt, starting from 1
+     *
+     * @return {@code true} if request should be retried
+     */
+    public boolean shouldRetry(IOException e, int attempt) {
+        if (attempt >= maxAttempts)
+            return false;
+
+        // missing resource, e.g. response that wasn't recorded, won't appear on retry
+        if (e instanceof FileNotFoundException)
+            return false;
+
+        if (e instanceof UnexpectedHttpStatusCodeException) {
+            int code = ((UnexpectedHttpStatusCodeException) e).getCode();
+            return code >= 500 || code == 429;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns delay before retrying request.
+     *
+     * @param attempt number of failed attempt, starting from 1
+     *
+     * @return delay in milliseconds
+     */
+    public long getDelay(int attempt) {
+        long delay = baseDelay << Math.min(attempt - 1, 30);
+        if (delay <= 0 || delay > maxDelay)
+            delay = maxDelay;
+
+        return delay == 0 ? 0 : ThreadLocalRandom.current().nextLong(delay + 1);
+    }
+
+    /**
+     * Returns maximum number of attempts of single request.
+     *
+     * @return maximum number of attempts
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+}
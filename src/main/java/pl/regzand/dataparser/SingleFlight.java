@@ -0,0 +1,168 @@
+package pl.regzand.dataparser;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with the same key, so that only the first one is executed and others share its result.
+ * <p>
+ * Call is in flight from its start until it completes, calls with the same key made after that are executed again.
+ * Failures are shared as well, every caller gets the same exception.
+ * </p>
+ *
+ * @param <K> type of keys
+ * @param <V> type of results
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * Call that can be executed.
+     *
+     * @param <V> type of result
+     */
+    @FunctionalInterface
+    public interface Call<V> {
+
+        /**
+         * Executes call.
+         *
+         * @return result of call
+         * @throws IOException if call failed
+         */
+        V call() throws IOException;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * Executes call in calling thread, or waits for call with the same key that is already in flight.
+     *
+     * @param key  key of call
+     * @param call call to execute
+     *
+     * @return result of call
+     * @throws IOException if call failed
+     */
+    public V execute(K key, Call<V> call) throws IOException {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+
+        if (existing != null) {
+            shared.increment();
+            return await(existing);
+        }
+
+        executed.increment();
+        try {
+            V result = call.call();
+            inFlight.remove(key, future);
+            future.complete(result);
+            return result;
+        } catch (IOException | RuntimeException | Error e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Starts asynchronous call, or shares call with the same key that is already in flight.
+     * Returned future is separate for every caller, so cancelling it doesn't affect others.
+     *
+     * @param key  key of call
+     * @param call supplier starting asynchronous call
+     *
+     * @return future completed with result of call, or exceptionally with exception thrown by call
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+
+        if (existing != null) {
+            shared.increment();
+            return copy(existing);
+        }
+
+        executed.increment();
+        CompletableFuture<V> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException e) {
+            started = new CompletableFuture<>();
+            started.completeExceptionally(e);
+        }
+
+        started.whenComplete((result, e) -> {
+            inFlight.remove(key, future);
+            if (e != null)
+                future.completeExceptionally(unwrap(e));
+            else
+                future.complete(result);
+        });
+
+        return copy(future);
+    }
+
+    /**
+     * Returns number of calls that were executed.
+     *
+     * @return number of executed calls
+     */
+    public long getExecutedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * Returns number of calls that shared result of call already in flight, instead of being executed.
+     *
+     * @return number of saved calls
+     */
+    public long getSharedCount() {
+        return shared.sum();
+    }
+
+    private static <V> CompletableFuture<V> copy(CompletableFuture<V> future) {
+        CompletableFuture<V> copy = new CompletableFuture<>();
+        future.whenComplete((result, e) -> {
+            if (e != null)
+                copy.completeExceptionally(unwrap(e));
+            else
+                copy.complete(result);
+        });
+        return copy;
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for request in flight", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        } catch (CancellationException e) {
+            throw new IOException("Request in flight was cancelled", e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+}
@@ -0,0 +1,48 @@
+package pl.regzand.dataparser;
+
+/**
+ * Statistics that can be calculated by {@link DataAnalyser#aggregate(java.util.function.ToDoubleFunction, java.util.EnumSet)}.
+ */
+public enum Statistic {
+
+    /**
+     * Number of data elements.
+     */
+    COUNT,
+
+    /**
+     * Sum of values.
+     */
+    SUM,
+
+    /**
+     * Arithmetic mean of values.
+     */
+    MEAN,
+
+    /**
+     * The smallest value and the first element that holds it.
+     */
+    MIN,
+
+    /**
+     * The biggest value and the first element that holds it.
+     */
+    MAX,
+
+    /**
+     * Population variance of values, implies {@link #MEAN}.
+     */
+    VARIANCE,
+
+    /**
+     * The first data element.
+     */
+    FIRST,
+
+    /**
+     * The last data element.
+     */
+    LAST
+
+}
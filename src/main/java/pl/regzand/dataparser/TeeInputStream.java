@@ -0,0 +1,131 @@
+package pl.regzand.dataparser;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Stream that copies data it reads to temporary file, and commits the file when end of data is reached,
+ * used to store response bodies by {@link HttpCache} and {@link RecordingTransport}.
+ * <p>
+ * Failures of writing or committing the copy only abandon it, reading never fails because of them.
+ * Copy of data that wasn't read to the end is never committed, and temporary file is always removed.
+ * </p>
+ */
+abstract class TeeInputStream extends FilterInputStream {
+
+    private final Path temp;
+    private OutputStream out;
+    private long written;
+
+    /**
+     * Creates stream copying given stream to new temporary file in given directory.
+     *
+     * @param in        stream to copy
+     * @param directory directory of temporary file
+     * @param prefix    prefix of name of temporary file
+     *
+     * @throws IOException if temporary file couldn't be created
+     */
+    TeeInputStream(InputStream in, Path directory, String prefix) throws IOException {
+        super(in);
+        this.temp = Files.createTempFile(directory, prefix, ".tmp");
+        try {
+            this.out = new BufferedOutputStream(Files.newOutputStream(temp));
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Commits complete copy of data, temporary file is removed afterwards if it is still there.
+     *
+     * @param copy temporary file with complete copy of data
+     * @param size size of data in bytes
+     *
+     * @throws IOException if copy couldn't be committed, it is abandoned then
+     */
+    protected abstract void commit(Path copy, long size) throws IOException;
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b == -1) {
+            finish();
+        } else if (out != null) {
+            try {
+                out.write(b);
+                written++;
+            } catch (IOException e) {
+                abandon();
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n == -1) {
+            finish();
+        } else if (out != null) {
+            try {
+                out.write(b, off, n);
+                written += n;
+            } catch (IOException e) {
+                abandon();
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            abandon();
+        }
+    }
+
+    private void finish() {
+        if (out == null)
+            return;
+
+        try {
+            out.close();
+            out = null;
+            commit(temp, written);
+        } catch (IOException e) {
+            // data was read anyway
+        } finally {
+            abandon();
+        }
+    }
+
+    /**
+     * Stops copying data, and removes temporary file.
+     */
+    private void abandon() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // temporary file is removed anyway
+            }
+            out = null;
+        }
+
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException ignored) {
+            // left for the operating system to clean up
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package pl.regzand.dataparser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bounded heap that keeps elements with the best keys, used by {@link DataAnalyser#topN}.
+ * <p>
+ * Keys are kept in primitive array next to elements and their arrival numbers, root of the heap is the worst kept element.
+ * Element is better if its key is smaller (or bigger when reversed), equal keys are ordered by arrival,
+ * and NaN keys are worse than any other key in both orders.
+ * Arrays grow as elements arrive, so capacity can be much bigger than number of offered elements.
+ * </p>
+ *
+ * @param <T> type of kept elements
+ */
+class TopHeap<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int capacity;
+    private final boolean reversed;
+
+    private double[] keys;
+    private long[] arrivals;
+    private Object[] elements;
+
+    private int size;
+    private long arrived;
+
+    TopHeap(int capacity, boolean reversed) {
+        this.capacity = capacity;
+        this.reversed = reversed;
+        this.keys = new double[Math.min(capacity, INITIAL_CAPACITY)];
+        this.arrivals = new long[keys.length];
+        this.elements = new Object[keys.length];
+        this.size = 0;
+        this.arrived = 0;
+    }
+
+    /**
+     * Offers element to the heap, it is kept if it is better than the worst kept element.
+     *
+     * @param element element to offer
+     * @param key     key of element
+     */
+    void offer(T element, double key) {
+        long arrival = arrived++;
+
+        if (size < capacity) {
+            if (size == keys.length)
+                grow();
+            set(size, key, arrival, element);
+            siftUp(size++);
+        } else if (size > 0 && compare(key, arrival, keys[0], arrivals[0]) < 0) {
+            set(0, key, arrival, element);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Removes all elements from heap.
+     *
+     * @return removed elements, from the best one
+     */
+    @SuppressWarnings("unchecked")
+    List<T> drain() {
+        List<T> result = new ArrayList<>(size);
+
+        while (size > 0) {
+            result.add((T) elements[0]);
+            size--;
+            set(0, keys[size], arrivals[size], elements[size]);
+            elements[size] = null;
+            siftDown(0);
+        }
+
+        Collections.reverse(result);
+        return result;
+    }
+
+    private void grow() {
+        int length = (int) Math.min(capacity, 2L * keys.length);
+        keys = Arrays.copyOf(keys, length);
+        arrivals = Arrays.copyOf(arrivals, length);
+        elements = Arrays.copyOf(elements, length);
+    }
+
+    // positive if first entry is worse than second one
+    private int compare(double key1, long arrival1, double key2, long arrival2) {
+        int result;
+        if (Double.isNaN(key1) || Double.isNaN(key2))
+            result = Boolean.compare(Double.isNaN(key1), Double.isNaN(key2));
+        else
+            result = reversed ? Double.compare(key2, key1) : Double.compare(key1, key2);
+        return result != 0 ? result : Long.compare(arrival1, arrival2);
+    }
+
+    private int compare(int i, int j) {
+        return compare(keys[i], arrivals[i], keys[j], arrivals[j]);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (compare(i, parent) <= 0)
+                return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int worst = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+
+            if (left < size && compare(left, worst) > 0)
+                worst = left;
+            if (right < size && compare(right, worst) > 0)
+                worst = right;
+            if (worst == i)
+                return;
+
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void set(int i, double key, long arrival, Object element) {
+        keys[i] = key;
+        arrivals[i] = arrival;
+        elements[i] = element;
+    }
+
+    private void swap(int i, int j) {
+        double key = keys[i];
+        long arrival = arrivals[i];
+        Object element = elements[i];
+        set(i, keys[j], arrivals[j], elements[j]);
+        set(j, key, arrival, element);
+    }
+
+}
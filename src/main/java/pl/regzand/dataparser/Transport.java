@@ -0,0 +1,80 @@
+package pl.regzand.dataparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+/**
+ * Transport used by {@link ApiConnector} to exchange http requests and responses with api.
+ * <p>
+ * Besides {@link HttpTransport} that talks to api over network, responses can be recorded to disk with {@link RecordingTransport}
+ * and later replayed without network with {@link ReplayTransport}.
+ * Implementations have to be thread safe, every request gets its own exchange.
+ * </p>
+ */
+public interface Transport {
+
+    /**
+     * Prepares exchange with given url, request is not sent until {@link Exchange#send()} is called.
+     *
+     * @param url url of request
+     *
+     * @return exchange that can be configured and sent
+     * @throws IOException if exchange couldn't be prepared
+     */
+    Exchange open(URL url) throws IOException;
+
+    /**
+     * Single GET request and its response.
+     */
+    interface Exchange {
+
+        /**
+         * Sets timeouts of request, {@code 0} means no timeout.
+         *
+         * @param connectTimeout timeout of connecting in milliseconds
+         * @param readTimeout    timeout of waiting for data in milliseconds
+         */
+        void setTimeouts(int connectTimeout, int readTimeout);
+
+        /**
+         * Sets header of request.
+         *
+         * @param name  name of header
+         * @param value value of header
+         */
+        void setHeader(String name, String value);
+
+        /**
+         * Sends request and waits for status of response.
+         *
+         * @return http status code of response
+         * @throws IOException if request couldn't be sent or there was no response
+         */
+        int send() throws IOException;
+
+        /**
+         * Returns header of response.
+         *
+         * @param name name of header
+         *
+         * @return value of header, {@code null} if response doesn't have it
+         */
+        String getHeader(String name);
+
+        /**
+         * Returns body of response, also for error responses.
+         *
+         * @return body of response, {@code null} if response has no body
+         * @throws IOException if body couldn't be opened
+         */
+        InputStream getBody() throws IOException;
+
+        /**
+         * Aborts exchange from other thread, closing its connection.
+         * Blocked {@link #send()} or reading body fails with {@link IOException}.
+         */
+        void abort();
+    }
+
+}
@@ -0,0 +1,35 @@
+package pl.regzand.dataparser.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event of operation of {@link pl.regzand.dataparser.DataAnalyser}, also made through {@link pl.regzand.dataparser.json.JSONAnalyser}.
+ * Operation pulls data from provider, so event covers fetching of the data too.
+ */
+@Name("pl.regzand.nbpdata.Analysis")
+@Label("Analysis")
+@Category({"NBP Data", "Analysis"})
+@Enabled(false)
+@Description("Operation of data analyser, including fetching of analysed data")
+public class AnalysisEvent extends Event implements AutoCloseable {
+
+    @Label("Operation")
+    String operation;
+
+    AnalysisEvent() {
+    }
+
+    /**
+     * Ends event.
+     */
+    @Override
+    public void close() {
+        commit();
+    }
+
+}
@@ -0,0 +1,118 @@
+package pl.regzand.dataparser.events;
+
+import java.net.URL;
+
+/**
+ * Factory of Java Flight Recorder events of data parser.
+ * <p>
+ * Every method returns event that has already begun, or {@code null} if the event is not recorded,
+ * either because it is disabled or because this JVM has no Flight Recorder (Java 8 before update 262).
+ * Event classes are loaded only when Flight Recorder is available, so callers have to check for {@code null}
+ * and must not touch event classes otherwise.
+ * </p>
+ * <p>
+ * Events are disabled by default, they are enabled by {@code nbpdata.jfc} configuration, e.g.
+ * {@code -XX:StartFlightRecording=settings=default,settings=jfr/nbpdata.jfc,filename=nbpdata.jfr}.
+ * </p>
+ */
+public final class Events {
+
+    private static final boolean AVAILABLE = isAvailable();
+
+    private Events() {
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Begins event of single attempt of http request.
+     *
+     * @param url     url of request
+     * @param attempt number of attempt, starting from 1
+     *
+     * @return begun event, {@code null} if it is not recorded
+     */
+    public static HttpRequestEvent beginHttpRequest(URL url, int attempt) {
+        if (!AVAILABLE)
+            return null;
+
+        HttpRequestEvent event = new HttpRequestEvent();
+        if (!event.isEnabled())
+            return null;
+
+        event.url = url.toString();
+        event.attempt = attempt;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begins event of parsing of json response.
+     *
+     * @param apiUrl   url of request, relative to base url of connector
+     * @param streamed {@code true} if elements are parsed one by one, as they are read
+     *
+     * @return begun event, {@code null} if it is not recorded
+     */
+    public static JSONParseEvent beginJSONParse(String apiUrl, boolean streamed) {
+        if (!AVAILABLE)
+            return null;
+
+        JSONParseEvent event = new JSONParseEvent();
+        if (!event.isEnabled())
+            return null;
+
+        event.url = apiUrl;
+        event.streamed = streamed;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begins event of fetching of single block of data.
+     *
+     * @param fetcher name of fetcher
+     *
+     * @return begun event, {@code null} if it is not recorded
+     */
+    public static FetchEvent beginFetch(String fetcher) {
+        if (!AVAILABLE)
+            return null;
+
+        FetchEvent event = new FetchEvent();
+        if (!event.isEnabled())
+            return null;
+
+        event.fetcher = fetcher;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begins event of operation of data analyser.
+     *
+     * @param operation name of operation
+     *
+     * @return begun event, {@code null} if it is not recorded
+     */
+    public static AnalysisEvent beginAnalysis(String operation) {
+        if (!AVAILABLE)
+            return null;
+
+        AnalysisEvent event = new AnalysisEvent();
+        if (!event.isEnabled())
+            return null;
+
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+
+}
@@ -0,0 +1,44 @@
+package pl.regzand.dataparser.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event of fetching of single block of data by {@link pl.regzand.dataparser.DataFetcher}, for {@link pl.regzand.dataparser.DataProvider}.
+ */
+@Name("pl.regzand.nbpdata.Fetch")
+@Label("Fetch")
+@Category({"NBP Data", "Fetching"})
+@Enabled(false)
+public class FetchEvent extends Event implements AutoCloseable {
+
+    @Label("Fetcher")
+    String fetcher;
+
+    @Label("Records")
+    int records;
+
+    FetchEvent() {
+    }
+
+    /**
+     * Sets number of records in fetched block.
+     *
+     * @param records number of records
+     */
+    public void setRecords(int records) {
+        this.records = records;
+    }
+
+    /**
+     * Ends event.
+     */
+    @Override
+    public void close() {
+        commit();
+    }
+
+}
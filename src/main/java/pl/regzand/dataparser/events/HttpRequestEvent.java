@@ -0,0 +1,107 @@
+package pl.regzand.dataparser.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import pl.regzand.dataparser.exceptions.UnexpectedHttpStatusCodeException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Event of single attempt of http request made by {@link pl.regzand.dataparser.ApiConnector}.
+ * Event of successful attempt lasts until its response body is closed, so it covers transfer of the body.
+ */
+@Name("pl.regzand.nbpdata.HttpRequest")
+@Label("HTTP Request")
+@Category({"NBP Data", "Requests"})
+@Enabled(false)
+@Description("Attempt of request to API, until response body was closed")
+public class HttpRequestEvent extends Event {
+
+    @Label("URL")
+    String url;
+
+    @Label("Attempt")
+    int attempt;
+
+    @Label("Status")
+    @Description("HTTP status code, 0 if no response was received")
+    int status;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Error")
+    String error;
+
+    HttpRequestEvent() {
+    }
+
+    /**
+     * Sets status code of received response.
+     *
+     * @param status http status code
+     */
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    /**
+     * Ends event of failed attempt.
+     *
+     * @param e exception that ended attempt
+     */
+    public void failed(IOException e) {
+        if (e instanceof UnexpectedHttpStatusCodeException)
+            status = ((UnexpectedHttpStatusCodeException) e).getCode();
+        error = e.toString();
+        commit();
+    }
+
+    /**
+     * Returns body of successful response, that ends this event when closed.
+     *
+     * @param body body of response
+     *
+     * @return body that has to be used instead of given one
+     */
+    public InputStream succeeded(InputStream body) {
+        return new FilterInputStream(body) {
+
+            private boolean committed;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0)
+                    bytes++;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int count = super.read(buffer, offset, length);
+                if (count > 0)
+                    bytes += count;
+                return count;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!committed) {
+                    committed = true;
+                    commit();
+                }
+                super.close();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,66 @@
+package pl.regzand.dataparser.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event of parsing of json response by {@link pl.regzand.dataparser.json.JSONConnector}.
+ * Parsing reads response body, so event covers its transfer too.
+ */
+@Name("pl.regzand.nbpdata.JSONParse")
+@Label("JSON Parse")
+@Category({"NBP Data", "Parsing"})
+@Enabled(false)
+@Description("Parsing of JSON response, including reading of its body")
+public class JSONParseEvent extends Event implements AutoCloseable {
+
+    @Label("URL")
+    @Description("URL relative to base URL of API")
+    String url;
+
+    @Label("Streamed")
+    @Description("Elements of array were parsed one by one, as they were read")
+    boolean streamed;
+
+    @Label("Bytes")
+    @Description("Size of response, 0 if it wasn't counted")
+    @DataAmount
+    long bytes;
+
+    @Label("Elements")
+    @Description("Number of parsed elements of streamed array")
+    int elements;
+
+    JSONParseEvent() {
+    }
+
+    /**
+     * Sets size of parsed response.
+     *
+     * @param bytes size of response in bytes
+     */
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Counts element of streamed array.
+     */
+    public void countElement() {
+        elements++;
+    }
+
+    /**
+     * Ends event.
+     */
+    @Override
+    public void close() {
+        commit();
+    }
+
+}
@@ -0,0 +1,29 @@
+package pl.regzand.dataparser.json;
+
+/**
+ * Policy deciding how long responses can be kept in {@link ResponseCache}.
+ */
+@FunctionalInterface
+public interface CachePolicy {
+
+    /**
+     * Time to live of responses that should not be cached.
+     */
+    long NO_CACHE = 0;
+
+    /**
+     * Time to live of responses that never change.
+     */
+    long FOREVER = Long.MAX_VALUE;
+
+    /**
+     * Returns for how long response to given request can be served from cache.
+     *
+     * @param apiUrl url of request, without base url of connector
+     * @param now    current time in milliseconds since epoch
+     *
+     * @return time to live of response in milliseconds, {@link #NO_CACHE} or {@link #FOREVER}
+     */
+    long getTimeToLive(String apiUrl, long now);
+
+}
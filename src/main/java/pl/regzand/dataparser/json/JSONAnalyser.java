@@ -1,21 +1,25 @@
 package pl.regzand.dataparser.json;
 
 import org.json.JSONObject;
+import pl.regzand.dataparser.Aggregate;
+import pl.regzand.dataparser.DataAnalyser;
 import pl.regzand.dataparser.DataProvider;
+import pl.regzand.dataparser.Statistic;
 
 import java.io.IOException;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Class with functionality to perform analysis on JSON data from provider.
+ * For analysis without boxing numeric values use {@link DataAnalyser} directly.
  */
 public class JSONAnalyser {
 
-    private final DataProvider<JSONObject> provider;
-
-    private boolean used;
+    private final DataAnalyser<JSONObject> analyser;
 
     /**
      * Creates analyser that used data from given provider.
@@ -23,8 +27,7 @@ public class JSONAnalyser {
      * @param provider provider of JSON data to analyse
      */
     public JSONAnalyser(DataProvider<JSONObject> provider) {
-        this.provider = provider;
-        this.used = false;
+        this.analyser = new DataAnalyser<>(provider);
     }
 
     /**
@@ -37,23 +40,7 @@ public class JSONAnalyser {
      * @throws IllegalStateException if all data from this analyser was already used
      */
     public double average(Function<JSONObject, Number> getter) throws IOException {
-        if (used)
-            throw new IllegalStateException("Data from this analyser was already used");
-
-        used = true;
-
-        double sum = 0;
-        int n = 0;
-
-        while (provider.hasNext()) {
-            sum += getter.apply(provider.next()).doubleValue();
-            n++;
-        }
-
-        if (n == 0)
-            throw new IllegalStateException("Analyser found no data to perform average calculation");
-
-        return sum / n;
+        return analyser.average(unbox(getter));
     }
 
     /**
@@ -65,28 +52,7 @@ public class JSONAnalyser {
      * @throws IOException if provider throw an IOException
      */
     public JSONObject findTheSmallestNumber(Function<JSONObject, Number> getter) throws IOException {
-        if (used)
-            throw new IllegalStateException("Data from this analyser was already used");
-
-        used = true;
-
-        if (!provider.hasNext())
-            return null;
-
-        JSONObject smallest = provider.next();
-        double num = getter.apply(smallest).doubleValue();
-
-        while (provider.hasNext()) {
-            JSONObject next = provider.next();
-            double nextNum = getter.apply(next).doubleValue();
-
-            if (nextNum < num) {
-                smallest = next;
-                num = nextNum;
-            }
-        }
-
-        return smallest;
+        return analyser.findTheSmallest(unbox(getter));
     }
 
     /**
@@ -98,28 +64,7 @@ public class JSONAnalyser {
      * @throws IOException if provider throw an IOException
      */
     public JSONObject findTheBiggestNumber(Function<JSONObject, Number> getter) throws IOException {
-        if (used)
-            throw new IllegalStateException("Data from this analyser was already used");
-
-        used = true;
-
-        if (!provider.hasNext())
-            return null;
-
-        JSONObject biggest = provider.next();
-        double num = getter.apply(biggest).doubleValue();
-
-        while (provider.hasNext()) {
-            JSONObject next = provider.next();
-            double nextNum = getter.apply(next).doubleValue();
-
-            if (nextNum > num) {
-                biggest = next;
-                num = nextNum;
-            }
-        }
-
-        return biggest;
+        return analyser.findTheBiggest(unbox(getter));
     }
 
     /**
@@ -135,41 +80,45 @@ public class JSONAnalyser {
      * @throws IOException if provider throw an IOException
      */
     public JSONObject findRangeNumber(Function<JSONObject, Number> getter) throws IOException {
-        if (used)
-            throw new IllegalStateException("Data from this analyser was already used");
+        DataAnalyser.Range<JSONObject> range = analyser.findRange(unbox(getter));
 
-        used = true;
-
-        if (!provider.hasNext())
+        if (range == null)
             return null;
 
-        JSONObject biggest = provider.next();
-        JSONObject smallest = provider.next();
-        double bNum = getter.apply(biggest).doubleValue();
-        double sNum = getter.apply(smallest).doubleValue();
-
-        while (provider.hasNext()) {
-            JSONObject next = provider.next();
-            double nextNum = getter.apply(next).doubleValue();
-
-            if (nextNum > bNum) {
-                biggest = next;
-                bNum = nextNum;
-            }
-
-            if (nextNum < sNum) {
-                smallest = next;
-                sNum = nextNum;
-            }
-        }
-
         JSONObject res = new JSONObject();
-        res.put("max", biggest);
-        res.put("min", smallest);
+        res.put("max", range.getMax());
+        res.put("min", range.getMin());
 
         return res;
     }
 
+    /**
+     * Calculates all requested statistics of numeric values from all remaining data, in a single pass over the data.
+     *
+     * @param getter     function that takes json object and returns numeric value from it
+     * @param statistics statistics to calculate
+     *
+     * @return aggregate with requested statistics
+     * @throws IOException if provider throw an IOException
+     */
+    public Aggregate<JSONObject> aggregate(Function<JSONObject, Number> getter, EnumSet<Statistic> statistics) throws IOException {
+        return analyser.aggregate(unbox(getter), statistics);
+    }
+
+    /**
+     * Returns {@code n} json objects with the smallest or the biggest numeric values, ordered by these values.
+     *
+     * @param getter function that takes json object and returns numeric value from it
+     * @param n      maximum number of returned objects
+     * @param order  order of returned objects
+     *
+     * @return up to {@code n} json objects ordered by their values
+     * @throws IOException if provider throw an IOException
+     */
+    public List<JSONObject> topN(Function<JSONObject, Number> getter, int n, DataAnalyser.Order order) throws IOException {
+        return analyser.topN(unbox(getter), n, order);
+    }
+
     /**
      * Returns data sorted using given comparator.
      *
@@ -179,16 +128,11 @@ public class JSONAnalyser {
      * @throws IOException if provider throw an IOException
      */
     public List<JSONObject> sorted(Comparator<JSONObject> comparator) throws IOException {
-        if (used)
-            throw new IllegalStateException("Data from this analyser was already used");
-
-        used = true;
-
-        List<JSONObject> data = provider.getAll();
-
-        data.sort(comparator);
+        return analyser.sorted(comparator);
+    }
 
-        return data;
+    private static ToDoubleFunction<JSONObject> unbox(Function<JSONObject, Number> getter) {
+        return jsonObject -> getter.apply(jsonObject).doubleValue();
     }
 
 }
@@ -0,0 +1,112 @@
+package pl.regzand.dataparser.json;
+
+import org.json.JSONException;
+import pl.regzand.dataparser.events.JSONParseEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.NoSuchElementException;
+
+/**
+ * Stream of elements of JSON array, that are parsed one by one as they are read from underlying stream.
+ *
+ * @param <T> type of elements
+ */
+public class JSONArrayStream<T> implements Closeable {
+
+    private final JSONPullParser parser;
+
+    private final JSONElementParser<T> elementParser;
+
+    // if next token was already read by hasNext()
+    private boolean advanced;
+
+    // event ended when stream is closed, null if parsing is not recorded
+    private JSONParseEvent event;
+
+    /**
+     * Creates stream of elements of json array pointed by json pointer.
+     *
+     * @param stream        stream providing JSON document
+     * @param jsonPointer   path in json to array containing data, {@code null} if root of document is the array
+     * @param elementParser function reading single element
+     *
+     * @throws IOException   if reading from stream failed
+     * @throws JSONException if document doesn't contain array pointed by json pointer
+     */
+    public JSONArrayStream(InputStream stream, String jsonPointer, JSONElementParser<T> elementParser) throws IOException, JSONException {
+        this(stream, jsonPointer, elementParser, null);
+    }
+
+    /**
+     * Creates stream of elements of json array pointed by json pointer, that records parsed elements in flight recorder event.
+     *
+     * @param stream        stream providing JSON document
+     * @param jsonPointer   path in json to array containing data, {@code null} if root of document is the array
+     * @param elementParser function reading single element
+     * @param event         event ended when this stream is closed, {@code null} if parsing is not recorded
+     *
+     * @throws IOException   if reading from stream failed
+     * @throws JSONException if document doesn't contain array pointed by json pointer
+     */
+    JSONArrayStream(InputStream stream, String jsonPointer, JSONElementParser<T> elementParser, JSONParseEvent event) throws IOException, JSONException {
+        this.event = event;
+        this.parser = new JSONPullParser(stream);
+        this.elementParser = elementParser;
+        this.advanced = false;
+
+        if (!parser.seek(jsonPointer) || parser.current() != JSONPullParser.Event.START_ARRAY)
+            throw new JSONException("There is no JSON array at '" + (jsonPointer == null ? "" : jsonPointer) + "'");
+    }
+
+    /**
+     * Returns {@code true} if there is another element in the array.
+     *
+     * @return {@code true} if there is another element in the array
+     * @throws IOException if reading from stream failed
+     */
+    public boolean hasNext() throws IOException {
+        if (!advanced) {
+            if (parser.current() != JSONPullParser.Event.END_ARRAY)
+                parser.next();
+            advanced = true;
+        }
+
+        return parser.current() != JSONPullParser.Event.END_ARRAY;
+    }
+
+    /**
+     * Reads and returns next element of the array.
+     *
+     * @return next element of the array
+     * @throws IOException            if reading from stream failed
+     * @throws NoSuchElementException if there are no more elements
+     */
+    public T next() throws IOException {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        advanced = false;
+        T element = elementParser.parse(parser);
+
+        if (event != null)
+            event.countElement();
+        return element;
+    }
+
+    /**
+     * Closes underlying stream.
+     *
+     * @throws IOException if closing failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (event != null) {
+            event.close();
+            event = null;
+        }
+        parser.close();
+    }
+
+}
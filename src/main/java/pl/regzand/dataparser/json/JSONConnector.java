@@ -5,17 +5,48 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 import pl.regzand.dataparser.ApiConnector;
+import pl.regzand.dataparser.SingleFlight;
+import pl.regzand.dataparser.events.Events;
+import pl.regzand.dataparser.events.JSONParseEvent;
 import pl.regzand.dataparser.exceptions.UnexpectedHttpStatusCodeException;
+import pl.regzand.metrics.MetricsRegistry;
+import pl.regzand.metrics.Profiler;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * Class extending ApiConnector with functionality to parse response to JSON
+ * <p>
+ * Concurrent json object or json array requests for the same url are coalesced, they share one request and its parsed response.
+ * Shared responses must not be modified.
+ * </p>
  */
 public class JSONConnector extends ApiConnector {
 
+    // executor shared by all connectors that were not given their own
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory());
+
+    private volatile Executor executor;
+
+    private volatile ResponseCache cache;
+
+    // concurrent requests for the same url share one response
+    private final SingleFlight<String, JSONObject> objectRequests = new SingleFlight<>();
+    private final SingleFlight<String, JSONArray> arrayRequests = new SingleFlight<>();
+
     public JSONConnector(String baseUrl) {
         super(baseUrl);
+        this.executor = DEFAULT_EXECUTOR;
     }
 
     /**
@@ -29,7 +60,11 @@ public class JSONConnector extends ApiConnector {
      * @throws JSONException                     if there was an problem with parsing data as json
      */
     public JSONObject makeJSONObjectRequest(String apiUrl) throws IOException, UnexpectedHttpStatusCodeException, JSONException {
-        return new JSONObject(new JSONTokener(this.makeRequest(apiUrl)));
+        JSONObject cached = getCached(apiUrl, JSONObject.class);
+        if (cached != null)
+            return cached;
+
+        return objectRequests.execute(apiUrl, () -> request(apiUrl, JSONObject::new));
     }
 
     /**
@@ -43,7 +78,253 @@ public class JSONConnector extends ApiConnector {
      * @throws JSONException                     if there was an problem with parsing data as json
      */
     public JSONArray makeJSONArrayRequest(String apiUrl) throws IOException, UnexpectedHttpStatusCodeException, JSONException {
-        return new JSONArray(new JSONTokener(this.makeRequest(apiUrl)));
+        JSONArray cached = getCached(apiUrl, JSONArray.class);
+        if (cached != null)
+            return cached;
+
+        return arrayRequests.execute(apiUrl, () -> request(apiUrl, JSONArray::new));
+    }
+
+    /**
+     * Returns stream of elements of json array in response from api, that are parsed as they arrive.
+     * Returned stream has to be closed.
+     *
+     * @param apiUrl        url that will be added to baseUrl to create request url
+     * @param jsonPointer   path in json returned by api to json array containing data, {@code null} if response is the array
+     * @param elementParser function reading single element of array
+     *
+     * @return stream of elements of json array
+     * @throws IOException                       if there was some sort of I/O error with connection
+     * @throws UnexpectedHttpStatusCodeException if response had different response code then 200
+     * @throws JSONException                     if response doesn't contain json array pointed by json pointer
+     */
+    public <T> JSONArrayStream<T> makeJSONArrayStreamRequest(String apiUrl, String jsonPointer, JSONElementParser<T> elementParser) throws IOException, UnexpectedHttpStatusCodeException, JSONException {
+        InputStream stream = this.makeRequest(apiUrl);
+        JSONParseEvent event = Events.beginJSONParse(apiUrl, true);
+        try {
+            return new JSONArrayStream<>(stream, jsonPointer, elementParser, event);
+        } catch (IOException | RuntimeException e) {
+            stream.close();
+            if (event != null)
+                event.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Makes request and parses response, putting it into cache.
+     *
+     * @param apiUrl url that will be added to baseUrl to create request url
+     * @param parser constructor of json object or array
+     *
+     * @return parsed response
+     */
+    private <T> T request(String apiUrl, Function<JSONTokener, T> parser) throws IOException, UnexpectedHttpStatusCodeException, JSONException {
+        try (CountingInputStream stream = new CountingInputStream(this.makeRequest(apiUrl))) {
+            long start = System.nanoTime();
+            T response;
+            try (Profiler.Section ignored = Profiler.begin("parse"); JSONParseEvent event = Events.beginJSONParse(apiUrl, false)) {
+                response = parser.apply(new JSONTokener(stream));
+                if (event != null)
+                    event.setBytes(stream.getCount());
+            }
+
+            MetricsRegistry metrics = getMetrics();
+            if (metrics != null)
+                metrics.histogram("json.parse.nanos").record(System.nanoTime() - start);
+
+            ResponseCache cache = this.cache;
+            if (cache != null)
+                cache.put(apiUrl, response, stream.getCount());
+
+            return response;
+        }
+    }
+
+    // ==============================================================================
+    // === CACHE
+    // ==============================================================================
+
+    /**
+     * Sets cache of parsed responses, used by json object and json array requests.
+     * Streamed requests are never cached.
+     *
+     * @param cache cache of responses, {@code null} to disable caching
+     */
+    public void setCache(ResponseCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Returns cache of parsed responses.
+     *
+     * @return cache of responses, {@code null} if caching is disabled
+     */
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    private <T> T getCached(String apiUrl, Class<T> type) {
+        ResponseCache cache = this.cache;
+        return cache == null ? null : cache.get(apiUrl, type);
+    }
+
+    // ==============================================================================
+    // === COALESCING
+    // ==============================================================================
+
+    /**
+     * Returns number of json object and json array requests that were sent to api.
+     * Requests served from cache are not counted.
+     *
+     * @return number of requests sent to api
+     */
+    public long getExecutedRequestCount() {
+        return objectRequests.getExecutedCount() + arrayRequests.getExecutedCount();
+    }
+
+    /**
+     * Returns number of json object and json array requests that shared response of identical request already in flight,
+     * instead of being sent to api.
+     *
+     * @return number of coalesced requests
+     */
+    public long getCoalescedRequestCount() {
+        return objectRequests.getSharedCount() + arrayRequests.getSharedCount();
+    }
+
+    // ==============================================================================
+    // === ASYNCHRONOUS REQUESTS
+    // ==============================================================================
+
+    /**
+     * Returns future that will be completed with response from api parsed to JSONObject.
+     * Request is made on executor of this connector, calling thread is not blocked.
+     *
+     * @param apiUrl url that will be added to baseUrl to create request url
+     *
+     * @return future completed with json object, or exceptionally with the same exceptions as {@link #makeJSONObjectRequest(String)}
+     */
+    public CompletableFuture<JSONObject> makeJSONObjectRequestAsync(String apiUrl) {
+        JSONObject cached = getCached(apiUrl, JSONObject.class);
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+
+        return objectRequests.executeAsync(apiUrl, () -> supplyAsync(() -> this.request(apiUrl, JSONObject::new)));
+    }
+
+    /**
+     * Returns future that will be completed with response from api parsed to JSONArray.
+     * Request is made on executor of this connector, calling thread is not blocked.
+     *
+     * @param apiUrl url that will be added to baseUrl to create request url
+     *
+     * @return future completed with json array, or exceptionally with the same exceptions as {@link #makeJSONArrayRequest(String)}
+     */
+    public CompletableFuture<JSONArray> makeJSONArrayRequestAsync(String apiUrl) {
+        JSONArray cached = getCached(apiUrl, JSONArray.class);
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+
+        return arrayRequests.executeAsync(apiUrl, () -> supplyAsync(() -> this.request(apiUrl, JSONArray::new)));
+    }
+
+    /**
+     * Sets executor used to make asynchronous requests.
+     * By default all connectors share pool of daemon threads that grows with number of requests in flight.
+     *
+     * @param executor executor used to make asynchronous requests
+     */
+    public void setExecutor(Executor executor) {
+        if (executor == null)
+            throw new IllegalArgumentException("Executor can not be null");
+
+        this.executor = executor;
+    }
+
+    /**
+     * Returns executor used to make asynchronous requests.
+     *
+     * @return executor used to make asynchronous requests
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Runs given request on executor of this connector.
+     *
+     * @param request request to run
+     *
+     * @return future completed with result of request, or exceptionally with exception thrown by it
+     */
+    private <T> CompletableFuture<T> supplyAsync(Callable<T> request) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        try {
+            executor.execute(() -> {
+                if (future.isDone())
+                    return;
+
+                try {
+                    future.complete(request.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // executor rejected request
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Stream counting bytes read from response.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1)
+                count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                count += n;
+            return n;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Thread factory creating daemon threads, so that pending requests don't keep JVM alive.
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "json-connector-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
     }
 
 }
@@ -4,10 +4,14 @@ import com.sun.istack.internal.NotNull;
 import com.sun.istack.internal.Nullable;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import pl.regzand.dataparser.AdaptiveConcurrencyLimit;
 import pl.regzand.dataparser.DataFetcher;
+import pl.regzand.dataparser.DateRangeUrls;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * DataFetcher that fetches data from JSON API in portions specified by date/time
@@ -16,17 +20,18 @@ public class JSONDateRangeFetcher implements DataFetcher<JSONObject> {
 
     private final JSONConnector connector;
 
-    private final Calendar start;
-    private final Calendar end;
-
-    private final int stepType;
-    private final int step;
-
-    private final String format;
+    private final DateRangeUrls apiUrls;
 
     private final boolean isArray;
     private final String jsonPointer;
 
+    private int parallelism = 1;
+
+    // windows requested ahead, oldest first
+    private final Queue<CompletableFuture<Collection<JSONObject>>> inFlight = new ArrayDeque<>();
+
+    // completed exceptionally when any window fails
+    private final CompletableFuture<Void> failure = new CompletableFuture<>();
 
     /**
      * Creates new data fetcher that fetches data from date range in some portions.
@@ -42,16 +47,9 @@ public class JSONDateRangeFetcher implements DataFetcher<JSONObject> {
      */
     public JSONDateRangeFetcher(@NotNull JSONConnector connector, @NotNull Date start, @NotNull Date end, int stepType, int step, @NotNull String format, boolean isArray, @Nullable String jsonPointer) {
         this.connector = connector;
-        this.stepType = stepType;
-        this.step = step;
-        this.format = format;
+        this.apiUrls = new DateRangeUrls(start, end, stepType, step, format);
         this.isArray = isArray;
         this.jsonPointer = jsonPointer;
-
-        this.start = new GregorianCalendar();
-        this.end = new GregorianCalendar();
-        this.start.setTime(start);
-        this.end.setTime(end);
     }
 
     /**
@@ -68,15 +66,28 @@ public class JSONDateRangeFetcher implements DataFetcher<JSONObject> {
      */
     public JSONDateRangeFetcher(@NotNull JSONConnector connector, @NotNull Calendar start, @NotNull Calendar end, int stepType, int step, @NotNull String format, boolean isArray, @Nullable String jsonPointer) {
         this.connector = connector;
-        this.start = start;
-        this.end = end;
-        this.stepType = stepType;
-        this.step = step;
-        this.format = format;
+        this.apiUrls = new DateRangeUrls(start, end, stepType, step, format);
         this.isArray = isArray;
         this.jsonPointer = jsonPointer;
     }
 
+    /**
+     * Sets how many windows of date range can be fetched concurrently.
+     * With parallelism greater than one windows are requested ahead using asynchronous requests of connector,
+     * but still returned in chronological order. At most {@code parallelism} windows are held in memory at once.
+     * If connector has {@link pl.regzand.dataparser.ApiConnector#setConcurrencyLimit adaptive limit}, it can lower number of windows in flight.
+     * When any window fails, its exception is thrown without waiting for older windows, and no further windows are requested,
+     * but requests already in flight are not aborted.
+     *
+     * @param parallelism maximum number of windows fetched at once, 1 means fetching one window at a time
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism has to be positive");
+
+        this.parallelism = parallelism;
+    }
+
     /**
      * Returns next data block
      *
@@ -84,39 +95,135 @@ public class JSONDateRangeFetcher implements DataFetcher<JSONObject> {
      */
     @Override
     public Collection<JSONObject> fetch() throws IOException {
+        if (parallelism > 1)
+            return fetchParallel();
 
         // if there is nothing left return empty
-        if (start.after(end))
+        String apiUrl = nextApiUrl();
+        if (apiUrl == null)
             return new ArrayList<>();
 
-        // get range
-        Date from = start.getTime();
-        start.add(stepType, step);
-        Date to = start.getTime();
-        start.add(stepType, 1);
+        // make request
+        if (isArray)
+            return extract(connector.makeJSONArrayRequest(apiUrl));
+        else
+            return extract(connector.makeJSONObjectRequest(apiUrl));
+    }
 
-        // if range expands after end trim it
-        if (to.after(end.getTime()))
-            to = end.getTime();
+    /**
+     * Returns next data block, keeping requests for following blocks in flight.
+     *
+     * @return next data block
+     * @throws IOException if request for any of windows in flight failed
+     */
+    private Collection<JSONObject> fetchParallel() throws IOException {
+
+        // request following windows
+        AdaptiveConcurrencyLimit concurrencyLimit = connector.getConcurrencyLimit();
+        int limit = concurrencyLimit != null ? Math.min(concurrencyLimit.getLimit(), parallelism) : parallelism;
+        String apiUrl;
+        while (inFlight.size() < limit && (apiUrl = nextApiUrl()) != null) {
+            CompletableFuture<Collection<JSONObject>> window;
+
+            if (isArray)
+                window = connector.makeJSONArrayRequestAsync(apiUrl).thenApply(this::extract);
+            else
+                window = connector.makeJSONObjectRequestAsync(apiUrl).thenApply(this::extract);
+
+            // any failure ends whole fetching
+            window.whenComplete((data, e) -> {
+                if (e != null)
+                    failure.completeExceptionally(e);
+            });
+
+            inFlight.add(window);
+        }
 
-        JSONArray array;
+        // if there is nothing left return empty
+        if (inFlight.isEmpty())
+            return new ArrayList<>();
 
-        // make request
-        if (isArray) {
-            array = connector.makeJSONArrayRequest(String.format(format, from, to));
-
-            // get data from request
-            if (jsonPointer != null)
-                array = (JSONArray) array.optQuery(jsonPointer);
-        } else {
-            array = (JSONArray) connector.makeJSONObjectRequest(String.format(format, from, to)).optQuery(jsonPointer);
+        // wait for the oldest window, or for any window to fail
+        CompletableFuture<Collection<JSONObject>> oldest = inFlight.remove();
+        try {
+            CompletableFuture.anyOf(oldest, failure).join();
+            if (failure.isCompletedExceptionally())
+                failure.join();
+
+            return oldest.join();
+        } catch (CompletionException e) {
+            // requests can't be aborted, windows in flight still complete in background, and connector can cache them
+            inFlight.clear();
+
+            throw unwrap(e);
         }
+    }
+
+    /**
+     * Returns url of next window of date range.
+     *
+     * @return api url of next window, or {@code null} if there is nothing left
+     */
+    private String nextApiUrl() {
+        return apiUrls.hasNext() ? apiUrls.next() : null;
+    }
+
+    /**
+     * Returns data pointed by json pointer in given api response.
+     *
+     * @param response json array returned by api
+     *
+     * @return data pointed by json pointer
+     */
+    private Collection<JSONObject> extract(JSONArray response) {
+        if (jsonPointer != null)
+            response = (JSONArray) response.optQuery(jsonPointer);
 
-        // copy data
+        return copy(response);
+    }
+
+    /**
+     * Returns data pointed by json pointer in given api response.
+     *
+     * @param response json object returned by api
+     *
+     * @return data pointed by json pointer
+     */
+    private Collection<JSONObject> extract(JSONObject response) {
+        return copy((JSONArray) response.optQuery(jsonPointer));
+    }
+
+    /**
+     * Copies json objects from given array to list.
+     *
+     * @param array json array to copy
+     *
+     * @return list of json objects
+     */
+    private static List<JSONObject> copy(JSONArray array) {
         List<JSONObject> result = new ArrayList<>();
         for (Object obj : array)
             result.add((JSONObject) obj);
 
         return result;
     }
+
+    /**
+     * Returns exception that caused asynchronous request to fail.
+     *
+     * @param e exception thrown while waiting for request
+     *
+     * @return IOException thrown by request
+     * @throws RuntimeException if request failed with unchecked exception
+     */
+    private static IOException unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+
+        if (cause instanceof IOException)
+            return (IOException) cause;
+        if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+
+        return new IOException(cause);
+    }
 }
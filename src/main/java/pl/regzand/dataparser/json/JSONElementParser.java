@@ -0,0 +1,24 @@
+package pl.regzand.dataparser.json;
+
+import java.io.IOException;
+
+/**
+ * Interface of function that reads single element from {@link JSONPullParser}.
+ *
+ * @param <T> type of read element
+ */
+@FunctionalInterface
+public interface JSONElementParser<T> {
+
+    /**
+     * Reads element starting at current token of parser.
+     * After this method returns, current token of parser has to be the last token of element.
+     *
+     * @param parser parser positioned at first token of element
+     *
+     * @return read element
+     * @throws IOException if parser failed to read from underlying stream
+     */
+    public T parse(JSONPullParser parser) throws IOException;
+
+}
@@ -0,0 +1,535 @@
+package pl.regzand.dataparser.json;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Event based JSON parser, that reads JSON document token by token without building whole tree in memory.
+ * <p>
+ * Parser is lenient about separators, it skips commas and colons without checking their placement.
+ * </p>
+ */
+public class JSONPullParser implements Closeable {
+
+    /**
+     * Event returned by parser for each token of JSON document.
+     */
+    public enum Event {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, KEY, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    // powers of ten that are exactly representable as double
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Reader reader;
+
+    private final char[] buffer = new char[8192];
+    private int position = 0;
+    private int limit = 0;
+
+    // text of current key, string or number
+    private final StringBuilder text = new StringBuilder();
+
+    // number of current token, if it is simple enough to skip Double.parseDouble
+    private boolean simpleNumber;
+    private long mantissa;
+    private int scale;
+
+    private boolean bool;
+
+    // open containers, true for objects
+    private boolean[] containers = new boolean[16];
+    private int depth = 0;
+    private boolean expectKey = false;
+
+    private Event current;
+
+    /**
+     * Creates parser reading JSON from given reader.
+     *
+     * @param reader reader providing JSON document
+     */
+    public JSONPullParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Creates parser reading UTF-8 encoded JSON from given stream.
+     *
+     * @param stream stream providing JSON document
+     */
+    public JSONPullParser(InputStream stream) {
+        this(new InputStreamReader(stream, StandardCharsets.UTF_8));
+    }
+
+    // ==============================================================================
+    // === EVENTS
+    // ==============================================================================
+
+    /**
+     * Reads next token of document.
+     *
+     * @return event describing read token
+     * @throws IOException   if reading from underlying reader failed
+     * @throws JSONException if document is malformed
+     */
+    public Event next() throws IOException {
+        int c = nextClean();
+
+        switch (c) {
+            case -1:
+                if (depth != 0)
+                    throw new JSONException("Unexpected end of JSON document");
+                return current = Event.END_DOCUMENT;
+
+            case '{':
+                push(true);
+                return current = Event.START_OBJECT;
+
+            case '[':
+                push(false);
+                return current = Event.START_ARRAY;
+
+            case '}':
+            case ']':
+                if (depth == 0 || containers[depth - 1] != (c == '}'))
+                    throw new JSONException("Unexpected '" + (char) c + "'");
+                depth--;
+                valueRead();
+                return current = (c == '}' ? Event.END_OBJECT : Event.END_ARRAY);
+
+            case '"':
+                readString();
+                if (expectKey) {
+                    expectKey = false;
+                    return current = Event.KEY;
+                }
+                valueRead();
+                return current = Event.STRING;
+
+            case 't':
+                expect("rue");
+                bool = true;
+                valueRead();
+                return current = Event.BOOLEAN;
+
+            case 'f':
+                expect("alse");
+                bool = false;
+                valueRead();
+                return current = Event.BOOLEAN;
+
+            case 'n':
+                expect("ull");
+                valueRead();
+                return current = Event.NULL;
+
+            default:
+                if (c != '-' && (c < '0' || c > '9'))
+                    throw new JSONException("Unexpected character '" + (char) c + "'");
+                readNumber((char) c);
+                valueRead();
+                return current = Event.NUMBER;
+        }
+    }
+
+    /**
+     * Returns event of last read token.
+     *
+     * @return event of last read token, {@code null} if nothing was read yet
+     */
+    public Event current() {
+        return current;
+    }
+
+    // ==============================================================================
+    // === VALUES
+    // ==============================================================================
+
+    /**
+     * Returns text of current key, string or number.
+     *
+     * @return text of current token
+     */
+    public String getString() {
+        checkCurrent(Event.KEY, Event.STRING, Event.NUMBER);
+        return text.toString();
+    }
+
+    /**
+     * Returns if text of current key, string or number equals given string, without creating new String.
+     *
+     * @param string text to compare with
+     *
+     * @return true if text of current token equals given string
+     */
+    public boolean textEquals(String string) {
+        if (text.length() != string.length())
+            return false;
+
+        for (int i = 0; i < string.length(); i++)
+            if (text.charAt(i) != string.charAt(i))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Returns text of current key, string or number as sequence of chars.
+     * Returned sequence is valid only until next token is read.
+     *
+     * @return text of current token
+     */
+    public CharSequence getText() {
+        checkCurrent(Event.KEY, Event.STRING, Event.NUMBER);
+        return text;
+    }
+
+    /**
+     * Returns value of current number.
+     *
+     * @return value of current number
+     */
+    public double getDouble() {
+        checkCurrent(Event.NUMBER);
+
+        // exact for up to 15 digits, as both operands and quotient are correctly rounded
+        if (simpleNumber)
+            return scale == 0 ? (double) mantissa : mantissa / POWERS_OF_TEN[scale];
+
+        return Double.parseDouble(text.toString());
+    }
+
+    /**
+     * Returns value of current number as object of the same type as {@link JSONObject} would return.
+     *
+     * @return value of current number
+     */
+    public Object getNumber() {
+        checkCurrent(Event.NUMBER);
+        return JSONObject.stringToValue(text.toString());
+    }
+
+    /**
+     * Returns value of current boolean.
+     *
+     * @return value of current boolean
+     */
+    public boolean getBoolean() {
+        checkCurrent(Event.BOOLEAN);
+        return bool;
+    }
+
+    // ==============================================================================
+    // === NAVIGATION
+    // ==============================================================================
+
+    /**
+     * Reads value starting at current token and returns it in the same form as {@link JSONObject} would.
+     *
+     * @return JSONObject, JSONArray, String, Number, Boolean or {@link JSONObject#NULL}
+     * @throws IOException   if reading from underlying reader failed
+     * @throws JSONException if document is malformed or current token doesn't start value
+     */
+    public Object readValue() throws IOException {
+        switch (current) {
+            case START_OBJECT:
+                JSONObject object = new JSONObject();
+                while (next() != Event.END_OBJECT) {
+                    String key = getString();
+                    next();
+                    object.put(key, readValue());
+                }
+                return object;
+
+            case START_ARRAY:
+                JSONArray array = new JSONArray();
+                while (next() != Event.END_ARRAY)
+                    array.put(readValue());
+                return array;
+
+            case STRING:
+                return getString();
+
+            case NUMBER:
+                return getNumber();
+
+            case BOOLEAN:
+                return bool;
+
+            case NULL:
+                return JSONObject.NULL;
+
+            default:
+                throw new JSONException("Expected value, but found " + current);
+        }
+    }
+
+    /**
+     * Reads object starting at current token.
+     *
+     * @return read object
+     * @throws IOException   if reading from underlying reader failed
+     * @throws JSONException if document is malformed or current token doesn't start object
+     */
+    public JSONObject readObject() throws IOException {
+        checkCurrent(Event.START_OBJECT);
+        return (JSONObject) readValue();
+    }
+
+    /**
+     * Skips value starting at current token, so that next read token is the one following it.
+     *
+     * @throws IOException   if reading from underlying reader failed
+     * @throws JSONException if document is malformed
+     */
+    public void skipValue() throws IOException {
+        if (current != Event.START_OBJECT && current != Event.START_ARRAY)
+            return;
+
+        int target = depth - 1;
+        while (depth > target)
+            if (next() == Event.END_DOCUMENT)
+                throw new JSONException("Unexpected end of JSON document");
+    }
+
+    /**
+     * Reads document up to value pointed by given json pointer, skipping everything before it.
+     * Afterwards current token is the first token of pointed value.
+     *
+     * @param jsonPointer json pointer, {@code null} or empty for root of document
+     *
+     * @return true if value was found, false if document doesn't contain it
+     * @throws IOException   if reading from underlying reader failed
+     * @throws JSONException if document is malformed
+     */
+    public boolean seek(String jsonPointer) throws IOException {
+        next();
+
+        if (jsonPointer == null || jsonPointer.isEmpty())
+            return true;
+
+        if (jsonPointer.charAt(0) != '/')
+            throw new IllegalArgumentException("JSON pointer has to start with '/'");
+
+        for (String token : jsonPointer.substring(1).split("/", -1)) {
+            token = token.replace("~1", "/").replace("~0", "~");
+
+            if (current == Event.START_OBJECT) {
+                if (!seekKey(token))
+                    return false;
+            } else if (current == Event.START_ARRAY) {
+                if (!seekIndex(token))
+                    return false;
+            } else {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean seekKey(String key) throws IOException {
+        while (next() != Event.END_OBJECT) {
+            boolean found = textEquals(key);
+            next();
+
+            if (found)
+                return true;
+
+            skipValue();
+        }
+        return false;
+    }
+
+    private boolean seekIndex(String token) throws IOException {
+        int index;
+        try {
+            index = Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        for (int i = 0; i <= index; i++) {
+            if (next() == Event.END_ARRAY)
+                return false;
+            if (i < index)
+                skipValue();
+        }
+        return true;
+    }
+
+    /**
+     * Closes underlying reader.
+     *
+     * @throws IOException if closing failed
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // ==============================================================================
+    // === TOKENIZER
+    // ==============================================================================
+
+    private void push(boolean object) {
+        if (depth == containers.length) {
+            boolean[] bigger = new boolean[depth * 2];
+            System.arraycopy(containers, 0, bigger, 0, depth);
+            containers = bigger;
+        }
+        containers[depth++] = object;
+        expectKey = object;
+    }
+
+    private void valueRead() {
+        expectKey = depth > 0 && containers[depth - 1];
+    }
+
+    private void checkCurrent(Event... expected) {
+        for (Event e : expected)
+            if (current == e)
+                return;
+
+        throw new JSONException("Unexpected " + current);
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private int nextClean() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == ',' || c == ':');
+        return c;
+    }
+
+    private void expect(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++)
+            if (read() != rest.charAt(i))
+                throw new JSONException("Unexpected literal");
+    }
+
+    private void readString() throws IOException {
+        text.setLength(0);
+
+        while (true) {
+            int c = read();
+            switch (c) {
+                case -1:
+                    throw new JSONException("Unterminated string");
+                case '"':
+                    return;
+                case '\\':
+                    c = read();
+                    switch (c) {
+                        case 'b':
+                            text.append('\b');
+                            break;
+                        case 'f':
+                            text.append('\f');
+                            break;
+                        case 'n':
+                            text.append('\n');
+                            break;
+                        case 'r':
+                            text.append('\r');
+                            break;
+                        case 't':
+                            text.append('\t');
+                            break;
+                        case 'u':
+                            int code = 0;
+                            for (int i = 0; i < 4; i++) {
+                                int digit = Character.digit(read(), 16);
+                                if (digit < 0)
+                                    throw new JSONException("Illegal unicode escape");
+                                code = code * 16 + digit;
+                            }
+                            text.append((char) code);
+                            break;
+                        case '"':
+                        case '\\':
+                        case '/':
+                            text.append((char) c);
+                            break;
+                        default:
+                            throw new JSONException("Illegal escape");
+                    }
+                    break;
+                default:
+                    text.append((char) c);
+            }
+        }
+    }
+
+    private void readNumber(char first) throws IOException {
+        text.setLength(0);
+        text.append(first);
+
+        simpleNumber = true;
+        mantissa = 0;
+        scale = 0;
+
+        int digits = 0;
+        boolean fraction = false;
+        boolean negative = first == '-';
+        if (!negative) {
+            mantissa = first - '0';
+            digits = 1;
+        }
+
+        while (true) {
+            if (position == limit && read() != -1)
+                position--;
+            if (position == limit)
+                break;
+
+            char c = buffer[position];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fraction)
+                    scale++;
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c == 'e' || c == 'E' || c == '+' || c == '-' || c == '.') {
+                simpleNumber = false;
+            } else {
+                break;
+            }
+
+            text.append(c);
+            position++;
+        }
+
+        if (digits == 0 || digits > 15 || scale >= POWERS_OF_TEN.length || (negative && mantissa == 0))
+            simpleNumber = false;
+
+        if (negative)
+            mantissa = -mantissa;
+    }
+
+}
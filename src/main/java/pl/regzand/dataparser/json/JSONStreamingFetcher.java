@@ -0,0 +1,119 @@
+package pl.regzand.dataparser.json;
+
+import pl.regzand.dataparser.DataFetcher;
+import pl.regzand.metrics.Profiler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Fetcher that streams elements of JSON arrays returned by consecutive api requests.
+ * <p>
+ * Each fetch returns single element, read from response as soon as it arrives,
+ * so that no more than one element is held in memory at once.
+ * Same as {@link JSONDateRangeFetcher}, response with empty array ends fetching.
+ * </p>
+ *
+ * @param <T> type of fetched elements
+ */
+public class JSONStreamingFetcher<T> implements DataFetcher<T>, Closeable {
+
+    private final JSONConnector connector;
+
+    private final Iterator<String> apiUrls;
+
+    private final String jsonPointer;
+
+    private final JSONElementParser<T> elementParser;
+
+    private JSONArrayStream<T> stream;
+
+    /**
+     * Creates fetcher that streams elements of arrays returned by requests to given api urls.
+     *
+     * @param connector     connector providing connection to JSON API
+     * @param apiUrls       api urls to request in order, will be added to base url of connector
+     * @param jsonPointer   path in json returned by api to json array containing data, {@code null} if response is the array
+     * @param elementParser function reading single element of array
+     */
+    public JSONStreamingFetcher(JSONConnector connector, Iterator<String> apiUrls, String jsonPointer, JSONElementParser<T> elementParser) {
+        this.connector = connector;
+        this.apiUrls = apiUrls;
+        this.jsonPointer = jsonPointer;
+        this.elementParser = elementParser;
+    }
+
+    /**
+     * Returns next element, as single element block.
+     * When reading of response fails, response is closed before exception is thrown.
+     *
+     * @return next data block
+     */
+    @Override
+    public Collection<T> fetch() throws IOException {
+        try {
+            return fetchNext();
+        } catch (Throwable e) {
+            // response can't be continued after failure
+            try {
+                close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    private Collection<T> fetchNext() throws IOException {
+
+        // continue current response
+        Collection<T> block = stream != null ? parseNext() : null;
+        if (block != null)
+            return block;
+
+        // if there is nothing left return empty
+        close();
+        if (!apiUrls.hasNext())
+            return new ArrayList<>();
+
+        // make request
+        stream = connector.makeJSONArrayStreamRequest(apiUrls.next(), jsonPointer, elementParser);
+        block = parseNext();
+        if (block != null)
+            return block;
+
+        close();
+        return new ArrayList<>();
+    }
+
+    /**
+     * Parses next element of current response, reading it from connection as needed.
+     *
+     * @return single element block, {@code null} if there are no more elements in response
+     */
+    private Collection<T> parseNext() throws IOException {
+        try (Profiler.Section ignored = Profiler.begin("parse")) {
+            return stream.hasNext() ? Collections.singletonList(stream.next()) : null;
+        }
+    }
+
+    /**
+     * Closes response that is currently streamed.
+     *
+     * @throws IOException if closing failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (stream == null)
+            return;
+
+        JSONArrayStream<T> closed = stream;
+        stream = null;
+        closed.close();
+    }
+
+}
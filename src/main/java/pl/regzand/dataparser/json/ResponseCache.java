@@ -0,0 +1,196 @@
+package pl.regzand.dataparser.json;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size bounded, least recently used cache of parsed responses of {@link JSONConnector}.
+ * <p>
+ * Size of entries is measured as number of bytes of response body, and least recently used entries are evicted
+ * when total size exceeds the budget. Parsed json takes several times more heap than its body,
+ * so the budget has to be scaled down accordingly to limit memory. How long entries stay valid is decided by {@link CachePolicy}.
+ * Cached json objects and arrays are shared by all callers, so they must not be modified.
+ * Cache is thread safe.
+ * </p>
+ */
+public class ResponseCache {
+
+    private final long maxBytes;
+
+    private final CachePolicy policy;
+
+    // access ordered, the least recently used entry first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates empty cache.
+     *
+     * @param maxBytes maximum total size of response bodies kept in cache
+     * @param policy   policy deciding how long responses are valid
+     */
+    public ResponseCache(long maxBytes, CachePolicy policy) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("Cache size can not be negative");
+
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+    }
+
+    /**
+     * Returns cached response to given request, if it is still valid and of given type.
+     *
+     * @param apiUrl url of request
+     * @param type   expected type of response
+     *
+     * @return cached response, {@code null} if there is none
+     */
+    synchronized <T> T get(String apiUrl, Class<T> type) {
+        Entry entry = entries.get(apiUrl);
+
+        if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+            remove(apiUrl);
+            entry = null;
+        }
+
+        if (entry == null || !type.isInstance(entry.value)) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return type.cast(entry.value);
+    }
+
+    /**
+     * Puts response to cache if policy allows it, evicting the least recently used entries if needed.
+     *
+     * @param apiUrl url of request
+     * @param value  parsed response
+     * @param size   size of response body in bytes
+     */
+    synchronized void put(String apiUrl, Object value, long size) {
+        long now = System.currentTimeMillis();
+        long ttl = policy.getTimeToLive(apiUrl, now);
+
+        if (ttl <= 0 || size > maxBytes)
+            return;
+
+        remove(apiUrl);
+
+        long expiresAt = ttl > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + ttl;
+        entries.put(apiUrl, new Entry(value, size, expiresAt));
+        bytes += size;
+
+        // evict the least recently used
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().size;
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Removes all entries from cache. Counters are not reset.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    private void remove(String apiUrl) {
+        Entry removed = entries.remove(apiUrl);
+        if (removed != null)
+            bytes -= removed.size;
+    }
+
+    // ==============================================================================
+    // === STATISTICS
+    // ==============================================================================
+
+    /**
+     * Returns number of requests served from cache.
+     *
+     * @return number of cache hits
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns number of requests that were not found in cache, or found expired.
+     *
+     * @return number of cache misses
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns number of entries evicted to keep cache within its budget.
+     *
+     * @return number of evictions
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns number of entries in cache, including expired ones that were not removed yet.
+     *
+     * @return number of entries
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Returns total size of response bodies kept in cache.
+     *
+     * @return size of cache in bytes
+     */
+    public synchronized long getSize() {
+        return bytes;
+    }
+
+    /**
+     * Returns maximum total size of response bodies kept in cache.
+     *
+     * @return budget of cache in bytes
+     */
+    public long getMaxSize() {
+        return maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResponseCache[hits=%d, misses=%d, evictions=%d, entries=%d, bytes=%d/%d]",
+                getHitCount(), getMissCount(), getEvictionCount(), getEntryCount(), getSize(), maxBytes);
+    }
+
+
+    /**
+     * Cached response.
+     */
+    private static class Entry {
+
+        final Object value;
+        final long size;
+        final long expiresAt;
+
+        Entry(Object value, long size, long expiresAt) {
+            this.value = value;
+            this.size = size;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package pl.regzand.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter that can be updated by many threads without contention or allocation.
+ */
+public class Counter implements CounterMXBean {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    /**
+     * Adds one to counter.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Adds given value to counter.
+     *
+     * @param value value to add
+     */
+    public void add(long value) {
+        count.add(value);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(getCount());
+    }
+
+}
@@ -0,0 +1,15 @@
+package pl.regzand.metrics;
+
+/**
+ * Management interface of {@link Counter}.
+ */
+public interface CounterMXBean {
+
+    /**
+     * Returns current value of counter.
+     *
+     * @return value of counter
+     */
+    long getCount();
+
+}
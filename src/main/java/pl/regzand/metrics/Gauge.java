@@ -0,0 +1,27 @@
+package pl.regzand.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Metric whose value is read from its source when it is needed, e.g. counters of caches or hit ratio.
+ */
+public class Gauge implements GaugeMXBean {
+
+    private final DoubleSupplier source;
+
+    Gauge(DoubleSupplier source) {
+        this.source = source;
+    }
+
+    @Override
+    public double getValue() {
+        return source.getAsDouble();
+    }
+
+    @Override
+    public String toString() {
+        double value = getValue();
+        return value == Math.rint(value) && !Double.isInfinite(value) ? Long.toString((long) value) : String.format("%.4f", value);
+    }
+
+}
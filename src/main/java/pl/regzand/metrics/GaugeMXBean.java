@@ -0,0 +1,15 @@
+package pl.regzand.metrics;
+
+/**
+ * Management interface of {@link Gauge}.
+ */
+public interface GaugeMXBean {
+
+    /**
+     * Returns current value of gauge.
+     *
+     * @return value of gauge
+     */
+    double getValue();
+
+}
@@ -0,0 +1,57 @@
+package pl.regzand.metrics;
+
+/**
+ * Management interface of {@link Histogram}.
+ */
+public interface HistogramMXBean {
+
+    /**
+     * Returns number of recorded values.
+     *
+     * @return number of values
+     */
+    long getCount();
+
+    /**
+     * Returns mean of recorded values.
+     *
+     * @return mean value, {@code 0} if nothing was recorded
+     */
+    double getMean();
+
+    /**
+     * Returns the biggest recorded value.
+     *
+     * @return maximum value, {@code 0} if nothing was recorded
+     */
+    long getMax();
+
+    /**
+     * Returns median of recorded values.
+     *
+     * @return 50th percentile
+     */
+    long getP50();
+
+    /**
+     * Returns 90th percentile of recorded values.
+     *
+     * @return 90th percentile
+     */
+    long getP90();
+
+    /**
+     * Returns 99th percentile of recorded values.
+     *
+     * @return 99th percentile
+     */
+    long getP99();
+
+    /**
+     * Returns 99.9th percentile of recorded values.
+     *
+     * @return 99.9th percentile
+     */
+    long getP999();
+
+}
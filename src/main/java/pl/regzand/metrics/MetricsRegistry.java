@@ -0,0 +1,167 @@
+package pl.regzand.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Registry of named metrics, that can be exposed as JMX MBeans and printed at the end of run.
+ * <p>
+ * Metrics are created on first use and live as long as registry. Looking up metric by name is meant to be done once,
+ * components keep returned metric and update it on hot path, which doesn't allocate.
+ * Names are dot separated, e.g. {@code http.requests.exchangerates/tables/a}.
+ * </p>
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final Map<String, Object> metrics = new ConcurrentHashMap<>();
+
+    // domain of MBeans, null until registry is exposed over JMX
+    private volatile String domain;
+
+    /**
+     * Returns registry shared by all components of program.
+     *
+     * @return default registry
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns counter with given name, creating it if it doesn't exist.
+     *
+     * @param name name of counter
+     *
+     * @return counter
+     */
+    public Counter counter(String name) {
+        return get(name, Counter.class);
+    }
+
+    /**
+     * Returns histogram with given name, creating it if it doesn't exist.
+     *
+     * @param name name of histogram
+     *
+     * @return histogram
+     */
+    public Histogram histogram(String name) {
+        return get(name, Histogram.class);
+    }
+
+    /**
+     * Registers gauge reading its value from given source, replacing gauge with the same name.
+     *
+     * @param name   name of gauge
+     * @param source source of value
+     *
+     * @return registered gauge
+     */
+    public Gauge gauge(String name, DoubleSupplier source) {
+        Gauge gauge = new Gauge(source);
+        Object previous = metrics.put(name, gauge);
+        if (previous != null && !(previous instanceof Gauge))
+            throw new IllegalArgumentException("Metric '" + name + "' is not a gauge");
+
+        register(name, gauge, previous != null);
+        return gauge;
+    }
+
+    private <T> T get(String name, Class<T> type) {
+        Object metric = metrics.get(name);
+
+        if (metric == null) {
+            metric = metrics.computeIfAbsent(name, key -> type == Counter.class ? new Counter() : new Histogram());
+            register(name, metric, false);
+        }
+
+        if (!type.isInstance(metric))
+            throw new IllegalArgumentException("Metric '" + name + "' is not a " + type.getSimpleName().toLowerCase());
+
+        return type.cast(metric);
+    }
+
+    /**
+     * Returns all metrics sorted by name.
+     *
+     * @return map of metrics by name
+     */
+    public Map<String, Object> getMetrics() {
+        return new TreeMap<>(metrics);
+    }
+
+    // ==============================================================================
+    // === EXPOSING
+    // ==============================================================================
+
+    /**
+     * Exposes all current and future metrics as MBeans of platform MBean server, named {@code <domain>:type=<type>,name=<name>}.
+     *
+     * @param domain domain of MBeans, e.g. {@code pl.regzand.nbpdata}
+     */
+    public synchronized void registerMBeans(String domain) {
+        if (this.domain != null)
+            return;
+
+        this.domain = domain;
+        metrics.forEach((name, metric) -> register(name, metric, false));
+    }
+
+    private void register(String name, Object metric, boolean replace) {
+        String domain = this.domain;
+        if (domain == null)
+            return;
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(domain + ":type=" + metric.getClass().getSimpleName() + ",name=" + ObjectName.quote(name));
+
+            if (replace && server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+
+            server.registerMBean(metric, objectName);
+        } catch (InstanceAlreadyExistsException ignored) {
+            // registered by other thread in the meantime
+        } catch (JMException e) {
+            throw new IllegalStateException("Couldn't register metric '" + name + "'", e);
+        }
+    }
+
+    /**
+     * Prints all metrics sorted by name, histograms of nanoseconds (with name ending with {@code .nanos}) are printed in milliseconds.
+     *
+     * @param out stream to print to
+     */
+    public void dump(PrintStream out) {
+        out.println("Metrics:");
+
+        getMetrics().forEach((name, metric) -> {
+            if (metric instanceof Histogram && name.endsWith(".nanos")) {
+                Histogram histogram = (Histogram) metric;
+                out.format("\t%-60s count=%d mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms p999=%.2fms max=%.2fms%n",
+                        name.substring(0, name.length() - ".nanos".length()),
+                        histogram.getCount(),
+                        histogram.getMean() / 1e6,
+                        histogram.getP50() / 1e6,
+                        histogram.getP90() / 1e6,
+                        histogram.getP99() / 1e6,
+                        histogram.getP999() / 1e6,
+                        histogram.getMax() / 1e6
+                );
+            } else {
+                out.format("\t%-60s %s%n", name, metric);
+            }
+        });
+    }
+
+}
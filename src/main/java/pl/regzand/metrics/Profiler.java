@@ -0,0 +1,476 @@
+package pl.regzand.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Profile of single run of command, with wall-clock time and allocated memory of each phase, and timings of every request.
+ * <p>
+ * Phases are marked in code with {@link #begin(String)}, and are measured only on thread that started profiler.
+ * Time and memory spent in nested phase are not counted to enclosing phase, so phases sum up to the whole run.
+ * Requests are recorded from any thread, as asynchronous requests are made on executors.
+ * </p>
+ * <p>
+ * When no profiler is started {@link #begin(String)} and {@link #getActive()} only read one field,
+ * so that phases can be marked in hot code.
+ * </p>
+ */
+public class Profiler {
+
+    /**
+     * Name of phase that takes everything not covered by any other phase.
+     */
+    public static final String ROOT_PHASE = "command";
+
+    private static volatile Profiler active;
+
+    // if time since start of JVM is reported, which makes sense only if JVM runs single command
+    private static volatile boolean startupReported = true;
+
+    private final Thread thread;
+    private final com.sun.management.ThreadMXBean threads;
+
+    private final long jvmStartupNanos;
+    private final long jvmStartupBytes;
+    private final long otherThreadsStartBytes;
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private final Deque<Section> stack = new ArrayDeque<>();
+    private final List<Request> requests = new ArrayList<>();
+
+    private final long start;
+    private long lastNanos;
+    private long lastBytes;
+
+    private long end;
+    private long otherThreadsBytes;
+
+    private Profiler() {
+        this.thread = Thread.currentThread();
+        this.threads = allocationTracking();
+
+        this.start = System.nanoTime();
+        this.jvmStartupNanos = startupReported ? Math.max(0, (System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime()) * 1_000_000) : -1;
+        this.jvmStartupBytes = allocatedBytes();
+        this.otherThreadsStartBytes = otherThreadsBytes();
+
+        this.lastNanos = start;
+        this.lastBytes = jvmStartupBytes;
+        this.stack.push(new Section(this, phase(ROOT_PHASE)));
+    }
+
+    /**
+     * Starts profiling on calling thread.
+     *
+     * @return started profiler
+     * @throws IllegalStateException if other profiler is already running
+     */
+    public static synchronized Profiler start() {
+        Profiler profiler = tryStart();
+        if (profiler == null)
+            throw new IllegalStateException("Profiler is already running");
+
+        return profiler;
+    }
+
+    /**
+     * Starts profiling on calling thread, unless other profiler is already running.
+     * Only one command can be profiled at a time, as phases of commands running at the same time can't be told apart.
+     *
+     * @return started profiler, {@code null} if other profiler is running
+     */
+    public static synchronized Profiler tryStart() {
+        if (active != null)
+            return null;
+
+        active = new Profiler();
+        return active;
+    }
+
+    /**
+     * Stops reporting of JVM startup, for processes that execute many commands, where time since start of JVM is not startup.
+     */
+    public static void excludeStartup() {
+        startupReported = false;
+    }
+
+    /**
+     * Returns running profiler.
+     *
+     * @return running profiler, {@code null} if nothing is profiled
+     */
+    public static Profiler getActive() {
+        return active;
+    }
+
+    /**
+     * Stops this profiler, phases that are still open are ended.
+     */
+    public void stop() {
+        synchronized (Profiler.class) {
+            if (active == this)
+                active = null;
+        }
+
+        if (end != 0)
+            return;
+
+        charge();
+        end = lastNanos;
+        stack.clear();
+        otherThreadsBytes = otherThreadsBytes() - otherThreadsStartBytes;
+    }
+
+    // ==============================================================================
+    // === PHASES
+    // ==============================================================================
+
+    /**
+     * Begins phase, that lasts until returned section is closed. Intended use is try-with-resources:
+     * <pre>
+     * try (Profiler.Section ignored = Profiler.begin("parse")) {
+     *     ...
+     * }
+     * </pre>
+     * Phase is measured only if it begins on thread that is profiled, on other threads this method does nothing.
+     *
+     * @param name name of phase, the same name can be used many times and measurements are summed
+     *
+     * @return section that has to be closed at the end of phase
+     */
+    public static Section begin(String name) {
+        Profiler profiler = active;
+        if (profiler == null || profiler.thread != Thread.currentThread())
+            return Section.NONE;
+
+        return profiler.push(name);
+    }
+
+    private Section push(String name) {
+        charge();
+
+        Phase phase = phase(name);
+        phase.count++;
+
+        Section section = new Section(this, phase);
+        stack.push(section);
+        return section;
+    }
+
+    private void pop(Section section) {
+        if (!stack.contains(section))
+            return;
+
+        charge();
+        while (stack.pop() != section) {
+            // sections that weren't closed end together with enclosing one
+        }
+    }
+
+    /**
+     * Counts time and memory since last change of phase to the current phase.
+     */
+    private void charge() {
+        long nanos = System.nanoTime();
+        long bytes = allocatedBytes();
+
+        Section current = stack.peek();
+        if (current != null) {
+            current.phase.nanos += nanos - lastNanos;
+            current.phase.bytes += bytes - lastBytes;
+        }
+
+        lastNanos = nanos;
+        lastBytes = bytes;
+    }
+
+    private Phase phase(String name) {
+        return phases.computeIfAbsent(name, Phase::new);
+    }
+
+    /**
+     * Returns wall-clock time of phase, without time of phases nested in it.
+     *
+     * @param name name of phase
+     *
+     * @return time of phase in nanoseconds, 0 if it didn't happen
+     */
+    long getPhaseNanos(String name) {
+        Phase phase = phases.get(name);
+        return phase == null ? 0 : phase.nanos;
+    }
+
+    /**
+     * Returns how many times phase began.
+     *
+     * @param name name of phase
+     *
+     * @return number of times phase began
+     */
+    int getPhaseCount(String name) {
+        Phase phase = phases.get(name);
+        return phase == null ? 0 : phase.count;
+    }
+
+    // ==============================================================================
+    // === REQUESTS
+    // ==============================================================================
+
+    /**
+     * Records request that failed.
+     *
+     * @param url         url of request
+     * @param attempt     number of attempt, starting from 1
+     * @param startNanos  {@link System#nanoTime()} when request started
+     * @param failure     short description of failure
+     */
+    public void requestFailed(String url, int attempt, long startNanos, String failure) {
+        Request request = new Request(url, attempt, startNanos - start, System.nanoTime() - startNanos);
+        request.failure = failure;
+
+        synchronized (requests) {
+            requests.add(request);
+        }
+    }
+
+    /**
+     * Records request that succeeded, and returns its body that measures how long it was read.
+     *
+     * @param url        url of request
+     * @param attempt    number of attempt, starting from 1
+     * @param startNanos {@link System#nanoTime()} when request started
+     * @param body       body of response, whose headers were just received
+     *
+     * @return body of response, that has to be used instead of given one
+     */
+    public InputStream requestSucceeded(String url, int attempt, long startNanos, InputStream body) {
+        Request request = new Request(url, attempt, startNanos - start, System.nanoTime() - startNanos);
+
+        synchronized (requests) {
+            requests.add(request);
+        }
+
+        return new BodyInputStream(body, request);
+    }
+
+    // ==============================================================================
+    // === REPORT
+    // ==============================================================================
+
+    /**
+     * Writes breakdown of phases and timings of requests.
+     * Profiler should be stopped before.
+     *
+     * @param out stream to write report to
+     */
+    public void report(PrintStream out) {
+        long total = (end != 0 ? end : System.nanoTime()) - start;
+        boolean allocations = threads != null;
+
+        out.format("%nProfile:%n");
+        out.format("\t%-20s %10s %7s %12s %8s%n", "phase", "wall ms", "%", "allocated", "count");
+        if (jvmStartupNanos >= 0)
+            out.format("\t%-20s %10.1f %7s %12s %8s%n", "jvm startup", jvmStartupNanos / 1e6, "", allocations ? formatBytes(jvmStartupBytes) : "-", "");
+
+        long bytes = 0;
+        for (Phase phase : phases.values()) {
+            bytes += phase.bytes;
+            out.format("\t%-20s %10.1f %6.1f%% %12s %8s%n",
+                    phase.name,
+                    phase.nanos / 1e6,
+                    total == 0 ? 0 : 100.0 * phase.nanos / total,
+                    allocations ? formatBytes(phase.bytes) : "-",
+                    phase.name.equals(ROOT_PHASE) ? "" : String.valueOf(phase.count)
+            );
+        }
+
+        out.format("\t%-20s %10.1f %6.1f%% %12s%n", "total", total / 1e6, 100.0, allocations ? formatBytes(bytes) : "-");
+        if (allocations)
+            out.format("\t%-20s %10s %7s %12s%n", "other threads", "", "", formatBytes(otherThreadsBytes));
+
+        List<Request> requests;
+        synchronized (this.requests) {
+            requests = new ArrayList<>(this.requests);
+        }
+        if (requests.isEmpty())
+            return;
+
+        out.format("%nRequests:%n");
+        out.format("\t%10s %10s %12s %10s %8s  %s%n", "start ms", "wait ms", "transfer ms", "bytes", "attempt", "url");
+        for (Request request : requests) {
+            out.format("\t%10.1f %10.1f %12s %10s %8d  %s%s%n",
+                    request.startNanos / 1e6,
+                    request.waitNanos / 1e6,
+                    request.transferNanos < 0 ? "-" : String.format("%.1f", request.transferNanos / 1e6),
+                    request.transferNanos < 0 ? "-" : String.valueOf(request.bytes),
+                    request.attempt,
+                    request.url,
+                    request.failure == null ? "" : " (" + request.failure + ")"
+            );
+        }
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024)
+            return bytes + " B";
+        if (bytes < 1024 * 1024)
+            return String.format("%.1f KB", bytes / 1024.0);
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    // ==============================================================================
+    // === ALLOCATIONS
+    // ==============================================================================
+
+    /**
+     * Returns thread bean able to count allocated memory, or {@code null} if this JVM can't do it.
+     */
+    private static com.sun.management.ThreadMXBean allocationTracking() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean))
+                return null;
+
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (!threads.isThreadAllocatedMemorySupported())
+                return null;
+            if (!threads.isThreadAllocatedMemoryEnabled())
+                threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private long allocatedBytes() {
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(thread.getId());
+    }
+
+    /**
+     * Returns memory allocated by live threads other than profiled one.
+     * Memory of threads that already ended is lost, so this is approximation.
+     */
+    private long otherThreadsBytes() {
+        if (threads == null)
+            return 0;
+
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = threads.getThreadAllocatedBytes(ids);
+
+        long sum = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] != thread.getId() && bytes[i] > 0)
+                sum += bytes[i];
+        }
+        return sum;
+    }
+
+
+    /**
+     * Phase of profiled run, that lasts until it is closed.
+     */
+    public static class Section implements AutoCloseable {
+
+        private static final Section NONE = new Section(null, null);
+
+        private final Profiler profiler;
+        private final Phase phase;
+
+        private Section(Profiler profiler, Phase phase) {
+            this.profiler = profiler;
+            this.phase = phase;
+        }
+
+        /**
+         * Ends this phase, returning to enclosing one.
+         */
+        @Override
+        public void close() {
+            if (profiler != null)
+                profiler.pop(this);
+        }
+    }
+
+    private static class Phase {
+
+        private final String name;
+
+        private long nanos;
+        private long bytes;
+        private int count;
+
+        private Phase(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class Request {
+
+        private final String url;
+        private final int attempt;
+        private final long startNanos;
+        private final long waitNanos;
+
+        private volatile long transferNanos = -1;
+        private volatile long bytes;
+        private String failure;
+
+        private Request(String url, int attempt, long startNanos, long waitNanos) {
+            this.url = url;
+            this.attempt = attempt;
+            this.startNanos = startNanos;
+            this.waitNanos = waitNanos;
+        }
+    }
+
+    /**
+     * Body of response, that records how long it was read and how many bytes it had.
+     */
+    private static class BodyInputStream extends FilterInputStream {
+
+        private final Request request;
+        private final long opened;
+        private long bytes;
+
+        private BodyInputStream(InputStream in, Request request) {
+            super(in);
+            this.request = request;
+            this.opened = System.nanoTime();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                bytes++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0)
+                bytes += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (request.transferNanos < 0) {
+                request.bytes = bytes;
+                request.transferNanos = System.nanoTime() - opened;
+            }
+            super.close();
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package pl.regzand.nbpdata;
+
+import pl.regzand.nbpdata.commands.NBPDataCommand;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor of batch of commands, read line by line, that runs commands at the same time but prints their output in order of lines.
+ * <p>
+ * Every command has its own instance of {@link NBPDataCommand}, writing to buffer that is printed when all previous commands were printed.
+ * All commands share default connector to NBP API, so that the same data is requested only once.
+ * Empty lines and lines starting with {@code #} are skipped, and commands are not profiled.
+ * </p>
+ */
+public class Batch {
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    // how many commands per thread can wait for earlier ones to be printed
+    private static final int WINDOW_PER_THREAD = 4;
+
+    private final int threads;
+
+    /**
+     * Creates batch executor.
+     *
+     * @param threads number of commands that run at the same time
+     */
+    public Batch(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Number of threads has to be positive");
+
+        this.threads = threads;
+    }
+
+    /**
+     * Executes all commands from given reader, printing their output in order.
+     *
+     * @param in  reader of commands, one per line
+     * @param out stream that output of commands is printed to
+     *
+     * @throws IOException if commands couldn't be read, commands that were already read are finished anyway
+     */
+    public void execute(BufferedReader in, PrintStream out) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "nbpdata-batch-" + THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // output of commands that weren't printed yet, in order of lines
+        Queue<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+
+        try {
+            for (String line; (line = in.readLine()) != null; ) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+
+                String[] args = line.split("\\s+");
+                pending.add(CompletableFuture.supplyAsync(() -> run(args), executor));
+
+                // print what is done, and don't let finished output pile up
+                while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() > threads * WINDOW_PER_THREAD))
+                    print(pending.remove(), out);
+            }
+        } finally {
+            while (!pending.isEmpty())
+                print(pending.remove(), out);
+
+            executor.shutdown();
+            out.flush();
+        }
+    }
+
+    /**
+     * Executes single command, returning its output.
+     */
+    private static byte[] run(String[] args) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(buffer, false)) {
+            try {
+                NBPDataCommand command = new NBPDataCommand();
+                command.setOut(out);
+                command.setProfilingAllowed(false);
+                command.execute(args);
+            } catch (RuntimeException e) {
+                out.println("Unexpected exception: " + e.getMessage());
+            }
+        }
+        return buffer.toByteArray();
+    }
+
+    private static void print(CompletableFuture<byte[]> output, PrintStream out) {
+        try {
+            byte[] bytes = output.get();
+            out.write(bytes, 0, bytes.length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for command", e);
+        } catch (ExecutionException e) {
+            out.println("Unexpected exception: " + e.getCause().getMessage());
+        }
+    }
+
+}
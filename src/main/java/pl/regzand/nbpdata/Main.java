@@ -1,9 +1,19 @@
 package pl.regzand.nbpdata;
 
+import pl.regzand.metrics.MetricsRegistry;
+import pl.regzand.metrics.Profiler;
 import pl.regzand.nbpdata.commands.NBPDataCommand;
+import pl.regzand.nbpdata.daemon.Daemon;
+import pl.regzand.nbpdata.daemon.DaemonClient;
+import pl.regzand.nbpdata.server.QueryServer;
 
 import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
 
 /**
  * Starting point of the program.
@@ -12,17 +22,155 @@ public class Main {
 
     /**
      * Starting point of the program.
+     * <p>
+     * Besides executing single command given in arguments, program can run in one of modes given by the first argument:
+     * </p>
+     * <ul>
+     * <li>{@code --interactive} reads commands from standard input line by line, until {@code exit},</li>
+     * <li>{@code --batch <file>} executes commands from file, or from standard input if file is {@code -}, see {@link Batch};
+     * number of commands running at the same time is given by system property {@code nbpdata.batchthreads}, by default 8,</li>
+     * <li>{@code --daemon} runs {@link Daemon} that executes commands submitted by clients,</li>
+     * <li>{@code --client} submits command given in following arguments to running daemon, or stops it with {@code --client --stop},</li>
+     * <li>{@code --server [port]} runs {@link QueryServer} answering http requests with output of commands in JSON, by default on port 8080;
+     * it listens on address given by system property {@code nbpdata.server.host}, by default {@code 127.0.0.1},
+     * runs {@code nbpdata.server.threads} commands at the same time, by default 8, with {@code nbpdata.server.queue} more waiting, by default 64,
+     * answers in {@code nbpdata.server.timeout} milliseconds, by default 10000, and caches results for {@code nbpdata.server.ttl} milliseconds, by default 60000.</li>
+     * </ul>
+     * <p>
+     * Commands executed in one process share connector to NBP API, with its caches and open connections.
+     * </p>
+     * <p>
+     * Metrics are exposed as JMX MBeans if system property {@code nbpdata.jmx} is {@code true},
+     * and printed to standard error at the end of run if {@code nbpdata.metrics} is {@code true}.
+     * </p>
      *
      * @param args program arguments
      */
     public static void main(String[] args) {
 
-//        // FIXME: remove debug
-//        args = new BufferedReader(new InputStreamReader(System.in)).readLine().split(" ");
+        String mode = args.length > 0 ? args[0] : "";
+
+        // thin client doesn't need anything else
+        if (mode.equals("--client")) {
+            DaemonClient.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        if (Boolean.getBoolean("nbpdata.jmx"))
+            MetricsRegistry.getDefault().registerMBeans("pl.regzand.nbpdata");
 
         // run program
-        new NBPDataCommand().execute(args);
+        switch (mode) {
+            case "--interactive":
+                runInteractive();
+                break;
+            case "--daemon":
+                runDaemon();
+                break;
+            case "--batch":
+                runBatch(args.length > 1 ? args[1] : "-");
+                break;
+            case "--server":
+                runServer(args.length > 1 ? args[1] : "8080");
+                break;
+            default:
+                new NBPDataCommand().execute(args);
+        }
+
+        if (Boolean.getBoolean("nbpdata.metrics"))
+            MetricsRegistry.getDefault().dump(System.err);
+
+    }
+
+    /**
+     * Executes commands read from standard input line by line, until {@code exit} or end of input.
+     */
+    private static void runInteractive() {
+        Profiler.excludeStartup();
+
+        NBPDataCommand command = new NBPDataCommand();
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        boolean prompt = System.console() != null;
+
+        try {
+            while (true) {
+                if (prompt) {
+                    System.out.print("nbpdata> ");
+                    System.out.flush();
+                }
+
+                String line = in.readLine();
+                if (line == null)
+                    return;
+
+                line = line.trim();
+                if (line.equals("exit") || line.equals("quit"))
+                    return;
+                if (!line.isEmpty())
+                    command.execute(line.split("\\s+"));
+            }
+        } catch (IOException e) {
+            System.err.println("Couldn't read command: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Executes commands from file, or from standard input if file is {@code -}.
+     */
+    private static void runBatch(String file) {
+        Profiler.excludeStartup();
+
+        try (InputStream stream = file.equals("-") ? System.in : new FileInputStream(file)) {
+            new Batch(Integer.getInteger("nbpdata.batchthreads", 8))
+                    .execute(new BufferedReader(new InputStreamReader(stream)), System.out);
+        } catch (IOException e) {
+            System.err.println("Couldn't read commands: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs daemon until it is stopped by client or process is terminated.
+     */
+    private static void runDaemon() {
+        Profiler.excludeStartup();
+
+        try {
+            Daemon daemon = new Daemon();
+            Runtime.getRuntime().addShutdownHook(new Thread(daemon::close));
+
+            System.err.println("nbpdata daemon listening on port " + daemon.getPort());
+            daemon.awaitStop();
+        } catch (IOException e) {
+            System.err.println("Couldn't start daemon: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs query server until process is terminated.
+     */
+    private static void runServer(String port) {
+        Profiler.excludeStartup();
+
+        try {
+            InetSocketAddress address = new InetSocketAddress(System.getProperty("nbpdata.server.host", "127.0.0.1"), Integer.parseInt(port));
+            QueryServer server = new QueryServer(address,
+                    Integer.getInteger("nbpdata.server.threads", 8),
+                    Integer.getInteger("nbpdata.server.queue", 64),
+                    Long.getLong("nbpdata.server.timeout", 10000),
+                    Long.getLong("nbpdata.server.ttl", 60000));
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
 
+            System.err.println("nbpdata server listening on http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/");
+            Thread.currentThread().join();
+        } catch (NumberFormatException e) {
+            System.err.println("Wrong port: " + port);
+        } catch (IOException e) {
+            System.err.println("Couldn't start server: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
 }
@@ -37,7 +37,7 @@ public abstract class NBPCommand extends Command {
     protected void handleException(Exception e) {
 
         if(e instanceof CommandException){
-            System.out.println(e.getMessage());
+            getOut().println(e.getMessage());
             if(((CommandException) e).isDisplayUsage())
                 this.displayUsage();
             return;
@@ -45,15 +45,15 @@ public abstract class NBPCommand extends Command {
 
         if(e instanceof UnexpectedHttpStatusCodeException){
             if(((UnexpectedHttpStatusCodeException) e).getCode() == 404){
-                System.out.println("There is no requested data in NBP database.");
+                getOut().println("There is no requested data in NBP database.");
                 return;
             }
 
-            System.out.println("NBP API returned unexpected http status code "+((UnexpectedHttpStatusCodeException) e).getCode()+ " while requesting: "+((UnexpectedHttpStatusCodeException) e).getUrl());
+            getOut().println("NBP API returned unexpected http status code "+((UnexpectedHttpStatusCodeException) e).getCode()+ " while requesting: "+((UnexpectedHttpStatusCodeException) e).getUrl());
             return;
         }
 
-        System.out.println("Unexpected exception: "+e.getMessage());
+        getOut().println("Unexpected exception: "+e.getMessage());
         e.printStackTrace();
 
     }
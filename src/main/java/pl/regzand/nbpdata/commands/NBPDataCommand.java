@@ -17,7 +17,12 @@ public class NBPDataCommand extends NBPCommand {
                 "nbpdata",
                 "[command]",
                 "Information about gold and currency based on NBP data.",
-                ""
+                "\t" + PROFILE_OPTION + " - after output of any command prints time and memory of its phases, and timings of requests\n" +
+                        "\t--interactive - reads commands from standard input, line by line\n" +
+                        "\t--batch <file> - executes commands from file at the same time, printing their output in order\n" +
+                        "\t--daemon - runs in background, executing commands submitted with --client\n" +
+                        "\t--client <command> - executes command in running daemon, --client --stop stops it\n" +
+                        "\t--server [port] - answers http requests like GET /gold/price/2017-06-13 with output of commands in JSON"
         );
 
         // create sub commands
@@ -1,19 +1,20 @@
 package pl.regzand.nbpdata.commands.currency;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 import pl.regzand.commands.Command;
 import pl.regzand.commands.CommandException;
+import pl.regzand.dataparser.DataAnalyser;
 import pl.regzand.dataparser.DataProvider;
 import pl.regzand.dataparser.exceptions.UnexpectedHttpStatusCodeException;
-import pl.regzand.dataparser.json.JSONAnalyser;
-import pl.regzand.dataparser.json.JSONSingleFetcher;
+import pl.regzand.dataparser.json.JSONStreamingFetcher;
 import pl.regzand.nbpdata.commands.NBPCommand;
+import pl.regzand.nbpdata.data.BidAskRate;
 import pl.regzand.nbpdata.data.NBPConnector;
 import pl.regzand.utils.ANSIColors;
+import pl.regzand.utils.EpochDays;
 
 import java.io.IOException;
-import java.text.ParseException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -59,41 +60,36 @@ public class CurrencyDifferenceCommand extends NBPCommand {
         } catch (Exception e) {
             throw new CommandException("Wrong syntax: N is expected to be an integer", true);
         }
+        if (N < 0)
+            throw new CommandException("Wrong syntax: N is expected to be non-negative", true);
 
         // verify arguments
         checkDate(date);
 
-        // create analyser
-        JSONAnalyser analyser = new JSONAnalyser(
-                new DataProvider<JSONObject>(
-                        new JSONSingleFetcher(
-                                new NBPConnector(),
-                                String.format("exchangerates/tables/c/%tF", date),
-                                "/0/rates"
-                        )
-                )
-        );
-
-        // get data
-        List<JSONObject> data = analyser.sorted((o1, o2) -> {
-            double diff1 = o1.getDouble("ask") - o1.getDouble("bid");
-            double diff2 = o2.getDouble("ask") - o2.getDouble("bid");
-            return (diff1 > diff2 ? 1 : -1);
-        });
+        // create fetcher, response is closed even if analysis fails
+        List<BidAskRate> data;
+        try (JSONStreamingFetcher<BidAskRate> fetcher = new JSONStreamingFetcher<>(
+                NBPConnector.getDefault(),
+                Collections.singletonList(String.format("exchangerates/tables/c/%tF", date)).iterator(),
+                "/0/rates",
+                BidAskRate.tableParser(EpochDays.of(date))
+        )) {
+            // create analyser
+            DataAnalyser<BidAskRate> analyser = new DataAnalyser<>(new DataProvider<BidAskRate>(fetcher));
+
+            // get data
+            data = analyser.topN(BidAskRate::getSpread, N, DataAnalyser.Order.ASCENDING);
+        }
 
         // display
-        System.out.format("Currencies sorted according to difference between buy and sell price on %tF%n%n", date);
-        System.out.println("\t" + ANSIColors.highlite("        BUY       SELL      DIFF   "));
-        for (JSONObject obj : data) {
-            if(N-- == 0) break;
-
-            double bid = obj.getDouble("bid");
-            double ask = obj.getDouble("ask");
-            System.out.format("\t%s  %.6f  %.6f  %.6f%n",
-                    ANSIColors.highlite(obj.getString("code")),
-                    bid,
-                    ask,
-                    ask - bid
+        getOut().format("Currencies sorted according to difference between buy and sell price on %tF%n%n", date);
+        getOut().println("\t" + ANSIColors.highlite("        BUY       SELL      DIFF   "));
+        for (BidAskRate rate : data) {
+            getOut().format("\t%s  %.6f  %.6f  %.6f%n",
+                    ANSIColors.highlite(rate.getCode()),
+                    rate.getBid(),
+                    rate.getAsk(),
+                    rate.getSpread()
             );
         }
 
@@ -1,21 +1,17 @@
 package pl.regzand.nbpdata.commands.currency;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 import pl.regzand.commands.Command;
 import pl.regzand.commands.CommandException;
-import pl.regzand.dataparser.DataProvider;
-import pl.regzand.dataparser.json.JSONDateRangeFetcher;
 import pl.regzand.nbpdata.commands.NBPCommand;
-import pl.regzand.nbpdata.data.NBPConnector;
+import pl.regzand.nbpdata.data.RateSeries;
+import pl.regzand.nbpdata.data.RateStore;
 import pl.regzand.utils.ANSIColors;
+import pl.regzand.utils.EpochDays;
 
 import java.io.IOException;
-import java.util.Calendar;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Class that handles difference command
@@ -55,63 +51,41 @@ public class CurrencyFluctuationsCommand extends NBPCommand {
         // verify arguments
         checkDate(date);
 
-        // get data provider
-        DataProvider<JSONObject> provider = new DataProvider<JSONObject>(
-                new JSONDateRangeFetcher(
-                        new NBPConnector(),
-                        date,
-                        new Date(),
-                        Calendar.DATE,
-                        90,
-                        "exchangerates/tables/a/%tF/%tF",
-                        true,
-                        null
-                )
-        );
-
-        Map<String, Double> max = new HashMap<>();
-        Map<String, Double> min = new HashMap<>();
+        // get history of all currencies, missing days are downloaded to store
+        RateSeries series = RateStore.getDefault().load(RateStore.Table.A, EpochDays.of(date), EpochDays.of(new Date()));
 
-        // for each table
-        while (provider.hasNext()) {
-            JSONArray array = provider.next().getJSONArray("rates");
+        // find extremes of each currency
+        double[] max = new double[series.getCurrencyCount()];
+        double[] min = new double[series.getCurrencyCount()];
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
 
-            // for each entry
-            for (int i = 0; i < array.length(); i++) {
-                JSONObject entry = array.getJSONObject(i);
-                String code = entry.getString("code");
-                Double mid = entry.getDouble("mid");
-
-                if (!max.containsKey(code))
-                    max.put(code, Double.NEGATIVE_INFINITY);
-                if (!min.containsKey(code))
-                    min.put(code, Double.POSITIVE_INFINITY);
-
-                if (mid > max.get(code))
-                    max.put(code, mid);
-                if (mid < min.get(code))
-                    min.put(code, mid);
-            }
-        }
+        series.forEach((currency, epochDay, mid, bid, ask) -> {
+            max[currency] = Math.max(max[currency], mid);
+            min[currency] = Math.min(min[currency], mid);
+        });
 
         // find biggest difference
-        String code = "";
+        int currency = -1;
         double diff = 0;
-        for (String key : max.keySet()) {
-            double value = max.get(key) - min.get(key);
+        for (int i = 0; i < max.length; i++) {
+            double value = max[i] - min[i];
             if (value > diff) {
-                code = key;
+                currency = i;
                 diff = value;
             }
         }
 
+        if (currency == -1)
+            throw new CommandException("There is no requested data in NBP database.", false);
+
         // display
-        System.out.format("Currency with the biggest change is price between %tF and %tF is %s%n\tMax price  %s%n\tMin price  %s%n\tDifference %s%n",
+        getOut().format("Currency with the biggest change is price between %tF and %tF is %s%n\tMax price  %s%n\tMin price  %s%n\tDifference %s%n",
                 date,
                 new Date(),
-                ANSIColors.highlite(code),
-                ANSIColors.highlite(String.format("%.4f PLN", max.get(code))),
-                ANSIColors.highlite(String.format("%.4f PLN", min.get(code))),
+                ANSIColors.highlite(series.getCurrencyCode(currency)),
+                ANSIColors.highlite(String.format("%.4f PLN", max[currency])),
+                ANSIColors.highlite(String.format("%.4f PLN", min[currency])),
                 ANSIColors.highlite(String.format("%.4f PLN", diff))
         );
 
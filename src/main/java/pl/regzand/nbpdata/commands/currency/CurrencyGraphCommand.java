@@ -1,22 +1,22 @@
 package pl.regzand.nbpdata.commands.currency;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 import pl.regzand.commands.Command;
 import pl.regzand.commands.CommandException;
+import pl.regzand.dataparser.DataAnalyser;
 import pl.regzand.dataparser.DataProvider;
-import pl.regzand.dataparser.json.JSONAnalyser;
-import pl.regzand.dataparser.json.JSONDateRangeFetcher;
+import pl.regzand.dataparser.DateRangeUrls;
+import pl.regzand.dataparser.json.JSONStreamingFetcher;
 import pl.regzand.nbpdata.commands.NBPCommand;
+import pl.regzand.nbpdata.data.MidRate;
 import pl.regzand.nbpdata.data.NBPConnector;
 import pl.regzand.utils.ANSIColors;
 import pl.regzand.utils.ConsoleGraph;
+import pl.regzand.utils.EpochDays;
 
 import java.io.IOException;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 
@@ -43,7 +43,7 @@ public class CurrencyGraphCommand extends NBPCommand {
     }
 
     @Override
-    protected void handleCommand(String[] args) throws CommandException, IOException, JSONException, ParseException {
+    protected void handleCommand(String[] args) throws CommandException, IOException, JSONException {
 
         // display usage if there is no arguments provided
         if (args.length == 0) {
@@ -64,50 +64,32 @@ public class CurrencyGraphCommand extends NBPCommand {
         checkDate(end);
         checkDateOrder(start, end);
 
-        // create analyser
-        JSONAnalyser analyser = new JSONAnalyser(
-                new DataProvider<JSONObject>(
-                        new JSONDateRangeFetcher(
-                                new NBPConnector(),
-                                start,
-                                end,
-                                Calendar.DATE,
-                                90,
-                                "exchangerates/rates/a/" + code + "/%tF/%tF",
-                                false,
-                                "/rates"
-                        )
-                )
-        );
-
-        // date format
-        DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-
-        // get data
-        List<JSONObject> data = analyser.sorted((o1, o2) -> {
-            try {
-                Date d1 = dateFormat.parse(o1.getString("effectiveDate"));
-                Date d2 = dateFormat.parse(o2.getString("effectiveDate"));
-
-                if (d1.getDay() == d2.getDay())
-                    return (d1.after(d2) ? 1 : -1);
-
-                return d1.getDay() - d2.getDay();
-            } catch (Exception e) {
-                return 0;
-            }
-        });
+        // create fetcher, response is closed even if analysis fails
+        List<MidRate> data;
+        try (JSONStreamingFetcher<MidRate> fetcher = new JSONStreamingFetcher<>(
+                NBPConnector.getDefault(),
+                new DateRangeUrls(start, end, Calendar.DATE, 90, "exchangerates/rates/a/" + code + "/%tF/%tF"),
+                "/rates",
+                MidRate.seriesParser(code)
+        )) {
+            // create analyser
+            DataAnalyser<MidRate> analyser = new DataAnalyser<>(new DataProvider<MidRate>(fetcher));
+
+            // get data, grouped by day of week
+            data = analyser.sorted(
+                    Comparator.comparingInt((MidRate rate) -> EpochDays.dayOfWeek(rate.getEpochDay()))
+                            .thenComparingInt(MidRate::getEpochDay)
+            );
+        }
 
         // create grapher
         ConsoleGraph graph = new ConsoleGraph();
 
         // prepare data
-        for (JSONObject obj : data) {
-            Date d = dateFormat.parse(obj.getString("effectiveDate"));
-            graph.addEntry(obj.getString("effectiveDate") + " " + ANSIColors.highlite(DAYS[d.getDay()]), obj.getDouble("mid"));
-        }
+        for (MidRate rate : data)
+            graph.addEntry(EpochDays.format(rate.getEpochDay()) + " " + ANSIColors.highlite(DAYS[EpochDays.dayOfWeek(rate.getEpochDay())]), rate.getMid());
 
         // draw graph
-        graph.draw(16, 50);
+        graph.draw(getOut(), 16, 50);
     }
 }
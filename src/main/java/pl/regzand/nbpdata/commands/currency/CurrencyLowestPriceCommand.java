@@ -1,18 +1,20 @@
 package pl.regzand.nbpdata.commands.currency;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 import pl.regzand.commands.Command;
 import pl.regzand.commands.CommandException;
+import pl.regzand.dataparser.DataAnalyser;
 import pl.regzand.dataparser.DataProvider;
 import pl.regzand.dataparser.exceptions.UnexpectedHttpStatusCodeException;
-import pl.regzand.dataparser.json.JSONAnalyser;
-import pl.regzand.dataparser.json.JSONSingleFetcher;
+import pl.regzand.dataparser.json.JSONStreamingFetcher;
 import pl.regzand.nbpdata.commands.NBPCommand;
+import pl.regzand.nbpdata.data.BidAskRate;
 import pl.regzand.nbpdata.data.NBPConnector;
 import pl.regzand.utils.ANSIColors;
+import pl.regzand.utils.EpochDays;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Date;
 
 /**
@@ -53,25 +55,26 @@ public class CurrencyLowestPriceCommand extends NBPCommand {
         // verify arguments
         checkDate(date);
 
-        // create analyser
-        JSONAnalyser analyser = new JSONAnalyser(
-                new DataProvider<JSONObject>(
-                        new JSONSingleFetcher(
-                                new NBPConnector(),
-                                String.format("exchangerates/tables/c/%tF", date),
-                                "/0/rates"
-                        )
-                )
-        );
+        // create fetcher, response is closed even if analysis fails
+        BidAskRate lowest;
+        try (JSONStreamingFetcher<BidAskRate> fetcher = new JSONStreamingFetcher<>(
+                NBPConnector.getDefault(),
+                Collections.singletonList(String.format("exchangerates/tables/c/%tF", date)).iterator(),
+                "/0/rates",
+                BidAskRate.tableParser(EpochDays.of(date))
+        )) {
+            // create analyser
+            DataAnalyser<BidAskRate> analyser = new DataAnalyser<>(new DataProvider<BidAskRate>(fetcher));
 
-        // get value
-        JSONObject lowest = analyser.findTheSmallestNumber(jsonObject -> jsonObject.getNumber("bid"));
+            // get value
+            lowest = analyser.findTheSmallest(BidAskRate::getBid);
+        }
 
         // display
-        System.out.format("The currency with the lowest buy price on day %tF was %s worth %s%n",
+        getOut().format("The currency with the lowest buy price on day %tF was %s worth %s%n",
                 date,
-                ANSIColors.highlite(lowest.getString("code").toUpperCase()),
-                ANSIColors.highlite(lowest.getNumber("bid") + " PLN")
+                ANSIColors.highlite(lowest.getCode().toUpperCase()),
+                ANSIColors.highlite(lowest.getBid() + " PLN")
         );
 
     }
@@ -52,13 +52,13 @@ public class CurrencyPriceCommand extends NBPCommand {
         checkDate(date);
 
         // get data
-        JSONObject data = new NBPConnector().makeJSONObjectRequest(String.format("exchangerates/rates/a/%s/%tF", currency, date));
+        JSONObject data = NBPConnector.getDefault().makeJSONObjectRequest(String.format("exchangerates/rates/a/%s/%tF", currency, date));
 
         // get value
         Number price = data.getJSONArray("rates").getJSONObject(0).getNumber("mid");
 
         // display
-        System.out.format("Price of %s according to NBP data from %tF was %s%n",
+        getOut().format("Price of %s according to NBP data from %tF was %s%n",
                 ANSIColors.highlite("1.00 " + currency),
                 date,
                 ANSIColors.highlite(price + " PLN")
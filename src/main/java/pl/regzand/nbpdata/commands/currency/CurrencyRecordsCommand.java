@@ -1,25 +1,35 @@
 package pl.regzand.nbpdata.commands.currency;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 import pl.regzand.commands.Command;
 import pl.regzand.commands.CommandException;
+import pl.regzand.dataparser.Aggregate;
+import pl.regzand.dataparser.DataAnalyser;
 import pl.regzand.dataparser.DataProvider;
-import pl.regzand.dataparser.json.JSONAnalyser;
-import pl.regzand.dataparser.json.JSONDateRangeFetcher;
+import pl.regzand.dataparser.Statistic;
 import pl.regzand.nbpdata.commands.NBPCommand;
-import pl.regzand.nbpdata.data.NBPConnector;
+import pl.regzand.nbpdata.data.MidRate;
+import pl.regzand.nbpdata.data.RateSeries;
+import pl.regzand.nbpdata.data.RateStore;
 import pl.regzand.utils.ANSIColors;
+import pl.regzand.utils.EpochDays;
 
 import java.io.IOException;
-import java.util.Calendar;
 import java.util.Date;
+import java.util.EnumSet;
 
 /**
  * Class that handles currency records command.
+ * <p>
+ * Whole history of currency is read from {@link RateStore}, so the first run downloads rates of currency since 2002
+ * in about seventy requests, and following runs only today's rate, which is never stored as it may be not published yet.
+ * </p>
  */
 public class CurrencyRecordsCommand extends NBPCommand {
 
+    // first day of NBP API data
+    private static final int FIRST_DAY = EpochDays.of(2002, 1, 2);
+
     /**
      * Creates currency records command.
      *
@@ -50,38 +60,36 @@ public class CurrencyRecordsCommand extends NBPCommand {
         // parse arguments
         String code = parseCurrencyCode(args[0]);
 
-        // get max span dates
-        Date from = parseStringToDate("2002-01-02");
-        Date to = new Date();
+        // get history of currency, missing days are downloaded to store
+        RateSeries series = RateStore.getDefault().load(RateStore.Table.A, code, FIRST_DAY, EpochDays.of(new Date()));
 
         // create analyser
-        JSONAnalyser analyser = new JSONAnalyser(
-                new DataProvider<JSONObject>(
-                        new JSONDateRangeFetcher(
-                                new NBPConnector(),
-                                from,
-                                to,
-                                Calendar.DATE,
-                                90,
-                                "exchangerates/rates/a/" + code + "/%tF/%tF",
-                                false,
-                                "/rates"
-                        )
-                )
+        DataAnalyser<MidRate> analyser = new DataAnalyser<>(new DataProvider<>(series.midRates()));
+
+        Aggregate<MidRate> range = analyser.aggregate(
+                MidRate::getMid,
+                EnumSet.of(Statistic.COUNT, Statistic.MEAN, Statistic.MIN, Statistic.MAX, Statistic.FIRST)
         );
 
-        JSONObject range = analyser.findRangeNumber(jsonObject -> jsonObject.getNumber("mid"));
+        if (range.getCount() == 0)
+            throw new CommandException("There is no requested data in NBP database.", false);
 
         // display
-        System.out.format("Currency %s had the highest value of %s at %s%n",
+        getOut().format("Currency %s had the highest value of %s at %s%n",
+                ANSIColors.highlite(code),
+                ANSIColors.highlite(String.format("%.4f PLN", range.getMax())),
+                EpochDays.format(range.getMaxElement().getEpochDay())
+        );
+        getOut().format("Currency %s had the lowest  value of %s at %s%n",
                 ANSIColors.highlite(code),
-                ANSIColors.highlite(String.format("%.4f PLN", range.getJSONObject("max").getDouble("mid"))),
-                range.getJSONObject("max").getString("effectiveDate")
+                ANSIColors.highlite(String.format("%.4f PLN", range.getMin())),
+                EpochDays.format(range.getMinElement().getEpochDay())
         );
-        System.out.format("Currency %s had the lowest  value of %s at %s%n",
+        getOut().format("Currency %s had the average value of %s from %d quotations since %s%n",
                 ANSIColors.highlite(code),
-                ANSIColors.highlite(String.format("%.4f PLN", range.getJSONObject("min").getDouble("mid"))),
-                range.getJSONObject("min").getString("effectiveDate")
+                ANSIColors.highlite(String.format("%.4f PLN", range.getMean())),
+                range.getCount(),
+                EpochDays.format(range.getFirst().getEpochDay())
         );
 
     }
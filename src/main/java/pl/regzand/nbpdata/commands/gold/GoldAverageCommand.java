@@ -1,18 +1,21 @@
 package pl.regzand.nbpdata.commands.gold;
 
-import org.json.JSONObject;
 import pl.regzand.commands.Command;
 import pl.regzand.commands.CommandException;
+import pl.regzand.dataparser.Aggregate;
+import pl.regzand.dataparser.DataAnalyser;
 import pl.regzand.dataparser.DataProvider;
-import pl.regzand.dataparser.json.JSONAnalyser;
-import pl.regzand.dataparser.json.JSONDateRangeFetcher;
+import pl.regzand.dataparser.Statistic;
 import pl.regzand.nbpdata.commands.NBPCommand;
-import pl.regzand.nbpdata.data.NBPConnector;
+import pl.regzand.nbpdata.data.GoldPrice;
+import pl.regzand.nbpdata.data.RateSeries;
+import pl.regzand.nbpdata.data.RateStore;
 import pl.regzand.utils.ANSIColors;
+import pl.regzand.utils.EpochDays;
 
 import java.io.IOException;
-import java.util.Calendar;
 import java.util.Date;
+import java.util.EnumSet;
 
 /**
  * Class that handles gold average command.
@@ -55,31 +58,32 @@ public class GoldAverageCommand extends NBPCommand {
         checkDate(end);
         checkDateOrder(start, end);
 
-        // create analyser
-        JSONAnalyser analyser = new JSONAnalyser(
-                new DataProvider<JSONObject>(
-                        new JSONDateRangeFetcher(
-                                new NBPConnector(),
-                                start,
-                                end,
-                                Calendar.DATE,
-                                90,
-                                "cenyzlota/%tF/%tF",
-                                true,
-                                null
-                        )
-                )
-        );
+        // get prices, missing days are downloaded to store
+        RateSeries series = RateStore.getDefault().load(RateStore.Table.GOLD, EpochDays.of(start), EpochDays.of(end));
 
         // calculate
-        double price = analyser.average(jsonObject -> jsonObject.getNumber("cena"));
+        Aggregate<GoldPrice> prices = new DataAnalyser<>(new DataProvider<>(series.goldPrices())).aggregate(
+                GoldPrice::getPrice,
+                EnumSet.of(Statistic.COUNT, Statistic.MIN, Statistic.MAX, Statistic.VARIANCE)
+        );
+
+        if (prices.getCount() == 0)
+            throw new CommandException("There is no requested data in NBP database.", false);
 
         // display
-        System.out.format("Average price of %s between %tF and %tF was %s%n",
+        getOut().format("Average price of %s between %tF and %tF was %s%n",
                 ANSIColors.highlite("1g GOLD"),
                 start,
                 end,
-                ANSIColors.highlite(String.format("%.4f PLN", price))
+                ANSIColors.highlite(String.format("%.4f PLN", prices.getMean()))
+        );
+        getOut().format("\tLowest  %s at %s%n\tHighest %s at %s%n\tStandard deviation %s from %d quotations%n",
+                ANSIColors.highlite(String.format("%.4f PLN", prices.getMin())),
+                EpochDays.format(prices.getMinElement().getEpochDay()),
+                ANSIColors.highlite(String.format("%.4f PLN", prices.getMax())),
+                EpochDays.format(prices.getMaxElement().getEpochDay()),
+                ANSIColors.highlite(String.format("%.4f PLN", prices.getStandardDeviation())),
+                prices.getCount()
         );
 
     }
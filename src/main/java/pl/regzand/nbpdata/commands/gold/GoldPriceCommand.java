@@ -50,13 +50,13 @@ public class GoldPriceCommand extends NBPCommand {
         checkDate(date);
 
         // get data
-        JSONArray data = new NBPConnector().makeJSONArrayRequest(String.format("cenyzlota/%tF", date));
+        JSONArray data = NBPConnector.getDefault().makeJSONArrayRequest(String.format("cenyzlota/%tF", date));
 
         // get value
         Number price = data.getJSONObject(0).getNumber("cena");
 
         // display
-        System.out.format("Price of %s according to NBP data form %tF was %s%n",
+        getOut().format("Price of %s according to NBP data form %tF was %s%n",
                 ANSIColors.highlite("1g GOLD"),
                 date,
                 ANSIColors.highlite(price + " PLN")
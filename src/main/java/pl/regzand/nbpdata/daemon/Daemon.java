@@ -0,0 +1,230 @@
+package pl.regzand.nbpdata.daemon;
+
+import pl.regzand.nbpdata.commands.NBPDataCommand;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long running process executing commands submitted by {@link DaemonClient}, so that all commands share
+ * one JVM with warm JIT, and default connector with its caches and open connections.
+ * <p>
+ * Daemon listens on loopback interface, at port written to daemon file together with random token,
+ * which clients have to send before command. Daemon file is readable only by its owner.
+ * </p>
+ * <p>
+ * Client sends token and command in lines: token, number of arguments, and then every argument.
+ * Instead of number of arguments client can send {@value #STOP} to stop the daemon.
+ * Daemon writes output of command back, and closes connection when command ends.
+ * Commands of different clients run at the same time, each one with separate instance of {@link NBPDataCommand},
+ * on bounded pool of threads. Clients have to send whole request in few seconds, and connections above the limit are closed.
+ * </p>
+ */
+public class Daemon implements Closeable {
+
+    /**
+     * Request that stops daemon, sent instead of number of arguments.
+     */
+    static final String STOP = "stop";
+
+    // limit of arguments of single command, so that malformed request doesn't allocate much
+    private static final int MAX_ARGUMENTS = 64;
+
+    // time in which client has to send whole request, so that idle connections don't hold threads
+    private static final int REQUEST_TIMEOUT = 5000;
+
+    // commands executed at the same time, and waiting for thread, after which connections are closed
+    private static final int MAX_THREADS = 16;
+    private static final int MAX_WAITING = 64;
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    private final Path file;
+    private final String token;
+
+    private final ServerSocket server;
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(MAX_WAITING), runnable -> {
+        Thread thread = new Thread(runnable, "nbpdata-daemon-" + THREADS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    /**
+     * Starts daemon listening on random port of loopback interface, and writes daemon file.
+     *
+     * @param file path of daemon file, see {@link DaemonFile#getDefaultPath()}
+     *
+     * @throws IOException if socket couldn't be opened or daemon file couldn't be written
+     */
+    public Daemon(Path file) throws IOException {
+        this.file = file;
+        this.token = generateToken();
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        try {
+            new DaemonFile(server.getLocalPort(), token).write(file);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+
+        Thread acceptor = new Thread(this::accept, "nbpdata-daemon");
+        acceptor.start();
+    }
+
+    /**
+     * Starts daemon with default daemon file.
+     *
+     * @throws IOException if socket couldn't be opened or daemon file couldn't be written
+     */
+    public Daemon() throws IOException {
+        this(DaemonFile.getDefaultPath());
+    }
+
+    private static String generateToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes)
+            builder.append(String.format("%02x", b));
+        return builder.toString();
+    }
+
+    private void accept() {
+        try {
+            while (!server.isClosed()) {
+                Socket socket = server.accept();
+                try {
+                    executor.execute(() -> handle(socket));
+                } catch (RejectedExecutionException e) {
+                    // too many clients, this one can retry later
+                    socket.close();
+                }
+            }
+        } catch (IOException e) {
+            // server socket was closed
+        } finally {
+            close();
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket ignored = socket) {
+            socket.setSoTimeout(REQUEST_TIMEOUT);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+            String clientToken = in.readLine();
+            if (clientToken == null || !MessageDigest.isEqual(clientToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8)))
+                return;
+
+            String count = in.readLine();
+            if (STOP.equals(count)) {
+                close();
+                return;
+            }
+
+            String[] args = new String[parseCount(count)];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = in.readLine();
+                if (args[i] == null)
+                    return;
+            }
+
+            PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), false, "UTF-8");
+
+            NBPDataCommand command = new NBPDataCommand();
+            command.setOut(out);
+            command.setProfilingAllowed(false);
+            command.execute(args);
+
+            out.flush();
+        } catch (SocketException | SocketTimeoutException e) {
+            // client disconnected, or didn't send request in time
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Daemon failed to handle command: " + e);
+        }
+    }
+
+    private static int parseCount(String count) throws IOException {
+        try {
+            int n = Integer.parseInt(count);
+            if (n >= 0 && n <= MAX_ARGUMENTS)
+                return n;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IOException("Malformed number of arguments: " + count);
+    }
+
+    /**
+     * Returns port that daemon listens on.
+     *
+     * @return port on loopback interface
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Waits until daemon is stopped, either by client or by {@link #close()}.
+     *
+     * @throws InterruptedException if thread was interrupted while waiting
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * Stops daemon and removes daemon file. Commands that are already running are finished.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (stopped.getCount() == 0)
+                return;
+            stopped.countDown();
+        }
+
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // daemon is stopped anyway
+        }
+
+        try {
+            // remove file only if it wasn't replaced by another daemon
+            if (token.equals(DaemonFile.read(file).token))
+                Files.delete(file);
+        } catch (IOException ignored) {
+            // file was already removed
+        }
+
+        executor.shutdown();
+    }
+
+}
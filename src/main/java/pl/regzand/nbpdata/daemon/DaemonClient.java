@@ -0,0 +1,109 @@
+package pl.regzand.nbpdata.daemon;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Thin client submitting commands to running {@link Daemon}, and copying their output to standard output.
+ * It loads only few classes, so it starts much faster than the whole program.
+ */
+public class DaemonClient {
+
+    private final Path file;
+
+    /**
+     * Creates client of daemon, that finds it by given daemon file.
+     *
+     * @param file path of daemon file
+     */
+    public DaemonClient(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Creates client of daemon, that finds it by default daemon file.
+     */
+    public DaemonClient() {
+        this(DaemonFile.getDefaultPath());
+    }
+
+    /**
+     * Executes command in daemon.
+     *
+     * @param args command arguments, the same as for program started without daemon
+     * @param out  stream that output of command is copied to
+     *
+     * @throws IOException              if daemon is not running, or connection failed
+     * @throws IllegalArgumentException if any argument contains line break
+     */
+    public void execute(String[] args, OutputStream out) throws IOException {
+        for (String arg : args) {
+            if (arg.indexOf('\n') >= 0 || arg.indexOf('\r') >= 0)
+                throw new IllegalArgumentException("Arguments can't contain line breaks");
+        }
+
+        StringBuilder request = new StringBuilder().append(args.length).append('\n');
+        for (String arg : args)
+            request.append(arg).append('\n');
+
+        try (Socket socket = send(request.toString())) {
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) >= 0; )
+                out.write(buffer, 0, n);
+            out.flush();
+        }
+    }
+
+    /**
+     * Stops daemon. Commands that are already running are finished.
+     *
+     * @throws IOException if daemon is not running, or connection failed
+     */
+    public void stop() throws IOException {
+        try (Socket socket = send(Daemon.STOP + "\n")) {
+            socket.getInputStream().read();
+        }
+    }
+
+    private Socket send(String request) throws IOException {
+        DaemonFile daemon = DaemonFile.read(file);
+
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.port);
+        try {
+            Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            writer.write(daemon.token + "\n" + request);
+            writer.flush();
+            return socket;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Executes command given in arguments in running daemon, or stops daemon if the only argument is {@code --stop}.
+     *
+     * @param args command arguments
+     */
+    public static void main(String[] args) {
+        DaemonClient client = new DaemonClient();
+        try {
+            if (args.length == 1 && args[0].equals("--stop"))
+                client.stop();
+            else
+                client.execute(args, System.out);
+        } catch (IOException e) {
+            System.err.println("Couldn't connect to nbpdata daemon, is it running? (" + e.getMessage() + ")");
+            System.exit(1);
+        }
+    }
+
+}
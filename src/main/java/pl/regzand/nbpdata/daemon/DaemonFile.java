@@ -0,0 +1,85 @@
+package pl.regzand.nbpdata.daemon;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+
+/**
+ * File through which clients find running daemon: its port on loopback interface and token that authorizes connections.
+ * File is readable only by its owner, so only the user that started daemon can submit commands to it.
+ */
+class DaemonFile {
+
+    final int port;
+    final String token;
+
+    DaemonFile(int port, String token) {
+        this.port = port;
+        this.token = token;
+    }
+
+    /**
+     * Returns default location of daemon file, given by system property {@code nbpdata.daemon},
+     * or {@code .nbpdata/daemon} in user home directory.
+     *
+     * @return path of daemon file
+     */
+    static Path getDefaultPath() {
+        String property = System.getProperty("nbpdata.daemon");
+        return property != null
+                ? Paths.get(property)
+                : Paths.get(System.getProperty("user.home"), ".nbpdata", "daemon");
+    }
+
+    /**
+     * Reads daemon file.
+     *
+     * @param path path of daemon file
+     *
+     * @return port and token of daemon
+     * @throws IOException if file couldn't be read, e.g. daemon is not running
+     */
+    static DaemonFile read(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        if (lines.size() < 2)
+            throw new IOException("Daemon file '" + path + "' is malformed");
+
+        try {
+            return new DaemonFile(Integer.parseInt(lines.get(0).trim()), lines.get(1).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Daemon file '" + path + "' is malformed", e);
+        }
+    }
+
+    /**
+     * Writes this daemon file, replacing previous one atomically.
+     *
+     * @param path path of daemon file
+     *
+     * @throws IOException if file couldn't be written
+     */
+    void write(Path path) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path temp = Files.createTempFile(directory, "daemon", ".tmp");
+        try {
+            try {
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException ignored) {
+                // file system without posix permissions
+            }
+
+            Files.write(temp, (port + "\n" + token + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package pl.regzand.nbpdata.data;
+
+import org.json.JSONException;
+import pl.regzand.dataparser.json.JSONElementParser;
+import pl.regzand.dataparser.json.JSONPullParser;
+import pl.regzand.utils.EpochDays;
+
+/**
+ * Buy and sell exchange rate of currency from NBP table C.
+ */
+public class BidAskRate {
+
+    private final String code;
+    private final int epochDay;
+    private final double bid;
+    private final double ask;
+
+    /**
+     * Creates buy and sell exchange rate.
+     *
+     * @param code     currency code in format ISO 4217 (XXX)
+     * @param epochDay effective date of rate, as number of days since 1970-01-01
+     * @param bid      buy price in PLN
+     * @param ask      sell price in PLN
+     */
+    public BidAskRate(String code, int epochDay, double bid, double ask) {
+        this.code = code;
+        this.epochDay = epochDay;
+        this.bid = bid;
+        this.ask = ask;
+    }
+
+    /**
+     * Returns parser of rates from single table,
+     * as returned by <code>exchangerates/tables/c/{date}</code> under <code>/0/rates</code>.
+     *
+     * @param epochDay effective date of table, as number of days since 1970-01-01
+     *
+     * @return parser of single rate object
+     */
+    public static JSONElementParser<BidAskRate> tableParser(int epochDay) {
+        return parser -> {
+            MidRate.expectObject(parser);
+
+            String code = null;
+            double bid = Double.NaN;
+            double ask = Double.NaN;
+
+            while (parser.next() != JSONPullParser.Event.END_OBJECT) {
+                if (parser.textEquals("code")) {
+                    parser.next();
+                    code = parser.getString();
+                } else if (parser.textEquals("bid")) {
+                    parser.next();
+                    bid = parser.getDouble();
+                } else if (parser.textEquals("ask")) {
+                    parser.next();
+                    ask = parser.getDouble();
+                } else {
+                    parser.next();
+                    parser.skipValue();
+                }
+            }
+
+            if (code == null || Double.isNaN(bid) || Double.isNaN(ask))
+                throw new JSONException("Rate is missing 'code', 'bid' or 'ask'");
+
+            return new BidAskRate(code, epochDay, bid, ask);
+        };
+    }
+
+    /**
+     * Returns currency code in format ISO 4217 (XXX)
+     *
+     * @return currency code
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Returns effective date of rate, as number of days since 1970-01-01
+     *
+     * @return effective date of rate
+     */
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * Returns buy price in PLN
+     *
+     * @return buy price in PLN
+     */
+    public double getBid() {
+        return bid;
+    }
+
+    /**
+     * Returns sell price in PLN
+     *
+     * @return sell price in PLN
+     */
+    public double getAsk() {
+        return ask;
+    }
+
+    /**
+     * Returns difference between sell and buy price in PLN
+     *
+     * @return difference between sell and buy price in PLN
+     */
+    public double getSpread() {
+        return ask - bid;
+    }
+
+    @Override
+    public String toString() {
+        return code + " " + EpochDays.format(epochDay) + " " + bid + "/" + ask;
+    }
+
+}
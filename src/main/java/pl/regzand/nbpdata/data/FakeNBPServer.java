@@ -0,0 +1,433 @@
+package pl.regzand.nbpdata.data;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import pl.regzand.utils.EpochDays;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded http server imitating NBP API, that serves deterministic synthetic data, so that commands can be run and measured without network.
+ * <p>
+ * Server answers the same requests as NBP API in JSON format: tables A, B and C and rates of single currency
+ * ({@code exchangerates/tables/...}, {@code exchangerates/rates/...}) and gold prices ({@code cenyzlota/...}),
+ * for current data, single date and date ranges, with the same range limits of 93 days for rates and 367 days for gold.
+ * Tables A, C and gold prices are published on every working day, table B on wednesdays.
+ * Data exists for any date, and values for given date are always the same.
+ * </p>
+ * <p>
+ * Every response can be delayed by fixed latency with jitter, that is also deterministic.
+ * </p>
+ */
+public class FakeNBPServer implements Closeable {
+
+    // maximum number of days in single request
+    private static final int MAX_RATES_RANGE = 93;
+    private static final int MAX_GOLD_RANGE = 367;
+
+    private static final Currency[] TABLE_A = {
+            new Currency("USD", "dolar amerykański", 3.6),
+            new Currency("EUR", "euro", 4.2),
+            new Currency("CHF", "frank szwajcarski", 3.6),
+            new Currency("GBP", "funt szterling", 4.8),
+            new Currency("JPY", "jen (Japonia)", 0.032),
+            new Currency("CZK", "korona czeska", 0.165),
+            new Currency("NOK", "korona norweska", 0.43),
+            new Currency("SEK", "korona szwedzka", 0.41),
+            new Currency("DKK", "korona duńska", 0.56),
+            new Currency("CAD", "dolar kanadyjski", 2.8),
+            new Currency("AUD", "dolar australijski", 2.7),
+            new Currency("HUF", "forint (Węgry)", 0.0135),
+    };
+
+    private static final Currency[] TABLE_B = {
+            new Currency("AFN", "afgani (Afganistan)", 0.05),
+            new Currency("ALL", "lek (Albania)", 0.032),
+            new Currency("DZD", "dinar algierski", 0.031),
+            new Currency("AOA", "kwanza (Angola)", 0.017),
+            new Currency("ARS", "peso argentyńskie", 0.19),
+            new Currency("AMD", "dram (Armenia)", 0.0075),
+    };
+
+    private static final Currency[] TABLE_C = {
+            TABLE_A[0], TABLE_A[1], TABLE_A[2], TABLE_A[3], TABLE_A[4], TABLE_A[5], TABLE_A[6], TABLE_A[7], TABLE_A[9], TABLE_A[10], TABLE_A[11],
+    };
+
+    private static final double GOLD_PRICE = 150;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private volatile long latency;
+    private volatile long jitter;
+
+    /**
+     * Creates and starts server listening on loopback interface.
+     *
+     * @param port port of server, {@code 0} for any free port
+     *
+     * @throws IOException if server couldn't be started
+     */
+    public FakeNBPServer(int port) throws IOException {
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-nbp-server-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/api/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Returns base url of api served by this server, that can be given to {@link NBPConnector#NBPConnector(String)}.
+     *
+     * @return base url of api
+     */
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/api/";
+    }
+
+    /**
+     * Sets delay of every response.
+     *
+     * @param latency delay of response in milliseconds
+     * @param jitter  maximum additional delay in milliseconds, deterministic for n-th request
+     */
+    public void setLatency(long latency, long jitter) {
+        if (latency < 0 || jitter < 0)
+            throw new IllegalArgumentException("Latency can not be negative");
+
+        this.latency = latency;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Returns number of requests received by this server.
+     *
+     * @return number of requests
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Stops server.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long number = requests.incrementAndGet();
+
+        try {
+            long delay = latency + (jitter == 0 ? 0 : Math.floorMod(mix(number), jitter + 1));
+            if (delay > 0)
+                Thread.sleep(delay);
+
+            String path = exchange.getRequestURI().getPath().substring("/api/".length());
+            if (path.endsWith("/"))
+                path = path.substring(0, path.length() - 1);
+
+            respond(exchange, route(path.split("/")));
+        } catch (ApiException e) {
+            respond(exchange, e.code, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        respond(exchange, 200, body);
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", code == 200 ? "application/json; charset=utf-8" : "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // ==============================================================================
+    // === ROUTING
+    // ==============================================================================
+
+    private static String route(String[] path) throws ApiException {
+        if (path.length >= 3 && path[0].equals("exchangerates") && path[1].equals("tables")) {
+            char table = table(path[2]);
+            int[] days = days(path, 3, MAX_RATES_RANGE, table);
+            return tables(table, days);
+        }
+
+        if (path.length >= 4 && path[0].equals("exchangerates") && path[1].equals("rates")) {
+            char table = table(path[2]);
+            Currency currency = currency(table, path[3]);
+            int[] days = days(path, 4, MAX_RATES_RANGE, table);
+            return rates(table, currency, days);
+        }
+
+        if (path.length >= 1 && path[0].equals("cenyzlota")) {
+            int[] days = days(path, 1, MAX_GOLD_RANGE, 'A');
+            return gold(days);
+        }
+
+        throw new ApiException(400, "400 BadRequest - Nieprawidłowe zapytanie");
+    }
+
+    private static char table(String name) throws ApiException {
+        if (name.equalsIgnoreCase("a") || name.equalsIgnoreCase("b") || name.equalsIgnoreCase("c"))
+            return Character.toUpperCase(name.charAt(0));
+
+        throw new ApiException(400, "400 BadRequest - Nieprawidłowy typ tabeli");
+    }
+
+    private static Currency currency(char table, String code) throws ApiException {
+        for (Currency currency : currencies(table)) {
+            if (currency.code.equalsIgnoreCase(code))
+                return currency;
+        }
+
+        throw new ApiException(404, "404 NotFound - Not Found - Brak danych");
+    }
+
+    /**
+     * Returns publication days requested by path starting at given index: current, today, single date or range of dates.
+     */
+    private static int[] days(String[] path, int from, int maxRange, char table) throws ApiException {
+        int today = EpochDays.of(new Date());
+        int first;
+        int last;
+
+        try {
+            if (path.length == from) {
+                // the latest publication
+                int day = today;
+                while (!isPublished(table, day))
+                    day--;
+                first = last = day;
+            } else if (path.length == from + 1) {
+                first = last = path[from].equals("today") ? today : EpochDays.parse(path[from]);
+            } else if (path.length == from + 2) {
+                first = EpochDays.parse(path[from]);
+                last = EpochDays.parse(path[from + 1]);
+            } else {
+                throw new ApiException(400, "400 BadRequest - Nieprawidłowe zapytanie");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "400 BadRequest - Zły format daty");
+        }
+
+        if (first > last || last - first + 1 > maxRange)
+            throw new ApiException(400, "400 BadRequest - Przekroczony limit " + maxRange + " dni / Limit of " + maxRange + " days has been exceeded");
+
+        int count = 0;
+        int[] days = new int[last - first + 1];
+        for (int day = first; day <= last; day++) {
+            if (isPublished(table, day))
+                days[count++] = day;
+        }
+
+        if (count == 0)
+            throw new ApiException(404, "404 NotFound - Not Found - Brak danych");
+
+        int[] result = new int[count];
+        System.arraycopy(days, 0, result, 0, count);
+        return result;
+    }
+
+    // ==============================================================================
+    // === DATA
+    // ==============================================================================
+
+    private static String tables(char table, int[] days) {
+        StringBuilder json = new StringBuilder(days.length * 64 * currencies(table).length);
+        json.append('[');
+
+        for (int i = 0; i < days.length; i++) {
+            int day = days[i];
+            if (i > 0)
+                json.append(',');
+
+            json.append("{\"table\":\"").append(table).append("\",\"no\":\"").append(number(table, day)).append('"');
+            if (table == 'C')
+                json.append(",\"tradingDate\":\"").append(EpochDays.format(previousWorkingDay(day))).append('"');
+            json.append(",\"effectiveDate\":\"").append(EpochDays.format(day)).append("\",\"rates\":[");
+
+            Currency[] currencies = currencies(table);
+            for (int c = 0; c < currencies.length; c++) {
+                if (c > 0)
+                    json.append(',');
+                json.append("{\"currency\":\"").append(currencies[c].name).append("\",\"code\":\"").append(currencies[c].code).append('"');
+                values(json, table, currencies[c], day);
+                json.append('}');
+            }
+
+            json.append("]}");
+        }
+
+        return json.append(']').toString();
+    }
+
+    private static String rates(char table, Currency currency, int[] days) {
+        StringBuilder json = new StringBuilder(days.length * 64);
+        json.append("{\"table\":\"").append(table)
+                .append("\",\"currency\":\"").append(currency.name)
+                .append("\",\"code\":\"").append(currency.code)
+                .append("\",\"rates\":[");
+
+        for (int i = 0; i < days.length; i++) {
+            if (i > 0)
+                json.append(',');
+            json.append("{\"no\":\"").append(number(table, days[i])).append("\",\"effectiveDate\":\"").append(EpochDays.format(days[i])).append('"');
+            values(json, table, currency, days[i]);
+            json.append('}');
+        }
+
+        return json.append("]}").toString();
+    }
+
+    private static String gold(int[] days) {
+        StringBuilder json = new StringBuilder(days.length * 32);
+        json.append('[');
+
+        for (int i = 0; i < days.length; i++) {
+            if (i > 0)
+                json.append(',');
+            json.append("{\"data\":\"").append(EpochDays.format(days[i])).append("\",\"cena\":")
+                    .append(Math.round(value("XAU", GOLD_PRICE, days[i]) * 100) / 100.0).append('}');
+        }
+
+        return json.append(']').toString();
+    }
+
+    private static void values(StringBuilder json, char table, Currency currency, int day) {
+        double mid = value(currency.code, currency.base, day);
+
+        if (table == 'C') {
+            json.append(",\"bid\":").append(round(mid * 0.99)).append(",\"ask\":").append(round(mid * 1.01));
+        } else {
+            json.append(",\"mid\":").append(round(mid));
+        }
+    }
+
+    /**
+     * Returns value of currency on given day, that follows yearly cycle with daily noise.
+     */
+    private static double value(String code, double base, int day) {
+        long seed = code.hashCode();
+        double phase = Math.floorMod(mix(seed), 1000) / 1000.0 * 2 * Math.PI;
+        double noise = Math.floorMod(mix(seed * 31 + day), 2001) / 1000.0 - 1;
+
+        return base * (1 + 0.08 * Math.sin(2 * Math.PI * day / 365.25 + phase) + 0.01 * noise);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10000) / 10000.0;
+    }
+
+    private static Currency[] currencies(char table) {
+        return table == 'A' ? TABLE_A : table == 'B' ? TABLE_B : TABLE_C;
+    }
+
+    private static boolean isPublished(char table, int day) {
+        int dayOfWeek = EpochDays.dayOfWeek(day);
+        return table == 'B' ? dayOfWeek == 3 : dayOfWeek != 0 && dayOfWeek != 6;
+    }
+
+    private static int previousWorkingDay(int day) {
+        do {
+            day--;
+        } while (!isPublished('A', day));
+        return day;
+    }
+
+    /**
+     * Returns number of table, e.g. {@code 001/A/NBP/2018}.
+     */
+    private static String number(char table, int day) {
+        LocalDate date = LocalDate.ofEpochDay(day);
+
+        int number = 0;
+        for (int d = (int) date.withDayOfYear(1).toEpochDay(); d <= day; d++) {
+            if (isPublished(table, d))
+                number++;
+        }
+
+        return String.format("%03d/%c/NBP/%d", number, table, date.getYear());
+    }
+
+    private static long mix(long x) {
+        // finalizer of SplitMix64
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+
+    /**
+     * Runs server until process is killed.
+     *
+     * @param args port, latency and jitter in milliseconds, all optional
+     */
+    public static void main(String[] args) throws IOException {
+        FakeNBPServer server = new FakeNBPServer(args.length > 0 ? Integer.parseInt(args[0]) : 0);
+        server.setLatency(args.length > 1 ? Long.parseLong(args[1]) : 0, args.length > 2 ? Long.parseLong(args[2]) : 0);
+
+        System.out.println("Fake NBP API at " + server.getBaseUrl());
+        System.out.println("Run commands with -Dnbpdata.api=" + server.getBaseUrl());
+    }
+
+
+    /**
+     * Currency of fake table.
+     */
+    private static class Currency {
+
+        final String code;
+        final String name;
+        final double base;
+
+        Currency(String code, String name, double base) {
+            this.code = code;
+            this.name = name;
+            this.base = base;
+        }
+    }
+
+    /**
+     * Error response of api.
+     */
+    private static class ApiException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        final int code;
+
+        ApiException(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+
+}
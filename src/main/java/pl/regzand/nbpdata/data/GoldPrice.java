@@ -0,0 +1,78 @@
+package pl.regzand.nbpdata.data;
+
+import org.json.JSONException;
+import pl.regzand.dataparser.json.JSONElementParser;
+import pl.regzand.dataparser.json.JSONPullParser;
+import pl.regzand.utils.EpochDays;
+
+/**
+ * Price of 1g of gold calculated by NBP.
+ */
+public class GoldPrice {
+
+    private final int epochDay;
+    private final double price;
+
+    /**
+     * Creates gold price.
+     *
+     * @param epochDay date of price, as number of days since 1970-01-01
+     * @param price    price of 1g of gold in PLN
+     */
+    public GoldPrice(int epochDay, double price) {
+        this.epochDay = epochDay;
+        this.price = price;
+    }
+
+    /**
+     * Parser of prices, as returned by <code>cenyzlota/...</code>.
+     */
+    public static final JSONElementParser<GoldPrice> PARSER = parser -> {
+        MidRate.expectObject(parser);
+
+        int epochDay = Integer.MIN_VALUE;
+        double price = Double.NaN;
+
+        while (parser.next() != JSONPullParser.Event.END_OBJECT) {
+            if (parser.textEquals("data")) {
+                parser.next();
+                epochDay = EpochDays.parse(parser.getText());
+            } else if (parser.textEquals("cena")) {
+                parser.next();
+                price = parser.getDouble();
+            } else {
+                parser.next();
+                parser.skipValue();
+            }
+        }
+
+        if (epochDay == Integer.MIN_VALUE || Double.isNaN(price))
+            throw new JSONException("Price is missing 'data' or 'cena'");
+
+        return new GoldPrice(epochDay, price);
+    };
+
+    /**
+     * Returns date of price, as number of days since 1970-01-01
+     *
+     * @return date of price
+     */
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * Returns price of 1g of gold in PLN
+     *
+     * @return price of 1g of gold in PLN
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    @Override
+    public String toString() {
+        return EpochDays.format(epochDay) + " " + price;
+    }
+
+}
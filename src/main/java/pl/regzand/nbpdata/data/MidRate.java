@@ -0,0 +1,175 @@
+package pl.regzand.nbpdata.data;
+
+import org.json.JSONException;
+import pl.regzand.dataparser.json.JSONElementParser;
+import pl.regzand.dataparser.json.JSONPullParser;
+import pl.regzand.utils.EpochDays;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Average exchange rate of currency from NBP table A or B.
+ */
+public class MidRate {
+
+    private final String code;
+    private final int epochDay;
+    private final double mid;
+
+    /**
+     * Creates average exchange rate.
+     *
+     * @param code     currency code in format ISO 4217 (XXX)
+     * @param epochDay effective date of rate, as number of days since 1970-01-01
+     * @param mid      average exchange rate in PLN
+     */
+    public MidRate(String code, int epochDay, double mid) {
+        this.code = code;
+        this.epochDay = epochDay;
+        this.mid = mid;
+    }
+
+    // ==============================================================================
+    // === PARSERS
+    // ==============================================================================
+
+    /**
+     * Returns parser of rates from series of single currency,
+     * as returned by <code>exchangerates/rates/{table}/{code}/...</code> under <code>/rates</code>.
+     *
+     * @param code currency code of series
+     *
+     * @return parser of single rate object
+     */
+    public static JSONElementParser<MidRate> seriesParser(String code) {
+        return parser -> {
+            expectObject(parser);
+
+            int epochDay = Integer.MIN_VALUE;
+            double mid = Double.NaN;
+
+            while (parser.next() != JSONPullParser.Event.END_OBJECT) {
+                if (parser.textEquals("effectiveDate")) {
+                    parser.next();
+                    epochDay = EpochDays.parse(parser.getText());
+                } else if (parser.textEquals("mid")) {
+                    parser.next();
+                    mid = parser.getDouble();
+                } else {
+                    parser.next();
+                    parser.skipValue();
+                }
+            }
+
+            if (epochDay == Integer.MIN_VALUE || Double.isNaN(mid))
+                throw new JSONException("Rate is missing 'effectiveDate' or 'mid'");
+
+            return new MidRate(code, epochDay, mid);
+        };
+    }
+
+    /**
+     * Parser of whole tables, as returned by <code>exchangerates/tables/{table}/...</code>,
+     * that returns all rates of single table.
+     */
+    public static final JSONElementParser<List<MidRate>> TABLE_PARSER = parser -> {
+        expectObject(parser);
+
+        int epochDay = Integer.MIN_VALUE;
+        List<String> codes = new ArrayList<>();
+        double[] mids = new double[64];
+
+        while (parser.next() != JSONPullParser.Event.END_OBJECT) {
+            if (parser.textEquals("effectiveDate")) {
+                parser.next();
+                epochDay = EpochDays.parse(parser.getText());
+            } else if (parser.textEquals("rates")) {
+                parser.next();
+                while (parser.next() != JSONPullParser.Event.END_ARRAY) {
+                    expectObject(parser);
+
+                    String code = null;
+                    double mid = Double.NaN;
+
+                    while (parser.next() != JSONPullParser.Event.END_OBJECT) {
+                        if (parser.textEquals("code")) {
+                            parser.next();
+                            code = parser.getString();
+                        } else if (parser.textEquals("mid")) {
+                            parser.next();
+                            mid = parser.getDouble();
+                        } else {
+                            parser.next();
+                            parser.skipValue();
+                        }
+                    }
+
+                    if (code == null || Double.isNaN(mid))
+                        throw new JSONException("Rate is missing 'code' or 'mid'");
+
+                    if (codes.size() == mids.length)
+                        mids = Arrays.copyOf(mids, mids.length * 2);
+
+                    mids[codes.size()] = mid;
+                    codes.add(code);
+                }
+            } else {
+                parser.next();
+                parser.skipValue();
+            }
+        }
+
+        if (epochDay == Integer.MIN_VALUE)
+            throw new JSONException("Table is missing 'effectiveDate'");
+
+        List<MidRate> rates = new ArrayList<>(codes.size());
+        for (int i = 0; i < codes.size(); i++)
+            rates.add(new MidRate(codes.get(i), epochDay, mids[i]));
+
+        return rates;
+    };
+
+    static void expectObject(JSONPullParser parser) {
+        if (parser.current() != JSONPullParser.Event.START_OBJECT)
+            throw new JSONException("Expected object, but found " + parser.current());
+    }
+
+    // ==============================================================================
+    // === GETTERS
+    // ==============================================================================
+
+    /**
+     * Returns currency code in format ISO 4217 (XXX)
+     *
+     * @return currency code
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Returns effective date of rate, as number of days since 1970-01-01
+     *
+     * @return effective date of rate
+     */
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * Returns average exchange rate in PLN
+     *
+     * @return average exchange rate in PLN
+     */
+    public double getMid() {
+        return mid;
+    }
+
+    @Override
+    public String toString() {
+        return code + " " + EpochDays.format(epochDay) + " " + mid;
+    }
+
+}
@@ -0,0 +1,67 @@
+package pl.regzand.nbpdata.data;
+
+import pl.regzand.dataparser.json.CachePolicy;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cache policy of NBP API responses.
+ * <p>
+ * Tables published by NBP never change, so responses for dates before today never expire.
+ * Responses for today, or without dates at all (like current table or last N tables), are valid until next publication of tables,
+ * on business days around 8:15 for table C and 12:15 for other tables and gold prices (Warsaw time),
+ * but not longer than an hour, in case publication is delayed.
+ * </p>
+ */
+public class NBPCachePolicy implements CachePolicy {
+
+    // time zone that NBP publishes tables in
+    static final ZoneId WARSAW = ZoneId.of("Europe/Warsaw");
+
+    private static final Pattern DATE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    private static final Pattern TABLE_C = Pattern.compile("exchangerates/(tables|rates)/c(/.*)?");
+
+    private static final LocalTime TABLE_C_PUBLICATION = LocalTime.of(8, 15);
+    private static final LocalTime PUBLICATION = LocalTime.of(12, 15);
+
+    // the longest time open ended responses are kept
+    private static final long MAX_OPEN_TTL = 60 * 60 * 1000;
+
+    @Override
+    public long getTimeToLive(String apiUrl, long now) {
+        ZonedDateTime time = Instant.ofEpochMilli(now).atZone(WARSAW);
+        LocalDate today = time.toLocalDate();
+
+        // all requested dates are in the past
+        Matcher matcher = DATE.matcher(apiUrl);
+        boolean dated = false;
+        boolean past = true;
+        while (matcher.find()) {
+            dated = true;
+            past &= LocalDate.parse(matcher.group()).isBefore(today);
+        }
+
+        if (dated && past)
+            return FOREVER;
+
+        // valid until next publication
+        LocalTime publication = TABLE_C.matcher(apiUrl).matches() ? TABLE_C_PUBLICATION : PUBLICATION;
+        ZonedDateTime next = today.atTime(publication).atZone(WARSAW);
+        while (!next.isAfter(time) || isWeekend(next.getDayOfWeek()))
+            next = next.plusDays(1);
+
+        return Math.min(next.toInstant().toEpochMilli() - now, MAX_OPEN_TTL);
+    }
+
+    private static boolean isWeekend(DayOfWeek day) {
+        return day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY;
+    }
+
+}
@@ -1,6 +1,19 @@
 package pl.regzand.nbpdata.data;
 
+import pl.regzand.dataparser.AdaptiveConcurrencyLimit;
+import pl.regzand.dataparser.Hedging;
+import pl.regzand.dataparser.HttpCache;
+import pl.regzand.dataparser.HttpTransport;
+import pl.regzand.dataparser.RateLimiter;
+import pl.regzand.dataparser.RecordingTransport;
+import pl.regzand.dataparser.ReplayTransport;
 import pl.regzand.dataparser.json.JSONConnector;
+import pl.regzand.dataparser.json.ResponseCache;
+import pl.regzand.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 
 /**
  * Connector used to connect to NBP API in JSON format.
@@ -8,10 +21,177 @@ import pl.regzand.dataparser.json.JSONConnector;
 public class NBPConnector extends JSONConnector {
 
     /**
-     * Creates connector to NBP API in JSON format.
+     * Base url of NBP API.
+     */
+    public static final String API_URL = "http://api.nbp.pl/api/";
+
+    // budget of response cache of default connector, in bytes of response bodies;
+    // parsed responses of NBP API take roughly nine times more heap, so this keeps below 40 MB of heap
+    private static final long CACHE_BYTES = 4 * 1024 * 1024;
+
+    // limit of requests of all connectors to NBP API in this JVM
+    private static final RateLimiter RATE_LIMITER = new RateLimiter(
+            Double.parseDouble(System.getProperty("nbpdata.rate", "10")),
+            Integer.parseInt(System.getProperty("nbpdata.burst", "10"))
+    );
+
+    // number of recent latencies used to pick delay of hedged requests
+    private static final int HEDGING_WINDOW = 100;
+
+    private static NBPConnector defaultConnector;
+
+    /**
+     * Creates connector to NBP API in JSON format, at url given by system property {@code nbpdata.api} or at {@link #API_URL}.
+     * Requests of all NBP connectors share one rate limiter, see {@link #getSharedRateLimiter()}.
      */
     public NBPConnector() {
-        super("http://api.nbp.pl/api/");
+        this(System.getProperty("nbpdata.api", API_URL));
+    }
+
+    /**
+     * Creates connector to api compatible with NBP API in JSON format, e.g. {@link FakeNBPServer}.
+     * Requests of all NBP connectors share one rate limiter, see {@link #getSharedRateLimiter()}.
+     *
+     * @param baseUrl base url of api
+     */
+    public NBPConnector(String baseUrl) {
+        super(baseUrl);
+        setRateLimiter(RATE_LIMITER);
+    }
+
+    /**
+     * Returns rate limiter shared by all connectors to NBP API in this JVM.
+     * By default it allows 10 requests per second with burst of 10,
+     * which can be changed with system properties {@code nbpdata.rate} and {@code nbpdata.burst}, or with {@link RateLimiter#setRate(double, int)}.
+     *
+     * @return rate limiter of NBP API
+     */
+    public static RateLimiter getSharedRateLimiter() {
+        return RATE_LIMITER;
+    }
+
+    /**
+     * Returns connector shared by all commands, that caches responses according to {@link NBPCachePolicy}.
+     * Responses are also stored on disk and revalidated with conditional requests, in directory given by
+     * system property {@code nbpdata.httpcache}, or in {@code .nbpdata/http} in user home directory, up to {@link HttpCache#DEFAULT_MAX_BYTES}.
+     * <p>
+     * Slow requests are hedged if system property {@code nbpdata.hedge} gives percentile of latency after which
+     * duplicate request is sent (e.g. {@code 0.95}). Hedged requests take at most percentage of requests given by
+     * {@code nbpdata.hedgebudget}, by default 5.
+     * </p>
+     * <p>
+     * Responses can be recorded to directory given by system property {@code nbpdata.record}, or replayed without network
+     * and without rate limit from directory given by {@code nbpdata.replay}. In both cases on disk cache is disabled,
+     * so that every response is recorded in full, and replaying never writes to disk.
+     * </p>
+     * <p>
+     * Requests, and hits of caches, are recorded in default {@link MetricsRegistry}.
+     * </p>
+     *
+     * @return default connector
+     */
+    public static synchronized NBPConnector getDefault() {
+        if (defaultConnector == null) {
+            defaultConnector = new NBPConnector();
+            defaultConnector.setCache(new ResponseCache(CACHE_BYTES, new NBPCachePolicy()));
+
+            String record = System.getProperty("nbpdata.record");
+            String replay = System.getProperty("nbpdata.replay");
+
+            // recording needs full responses, server would answer revalidated ones with empty 304,
+            // and replayed responses are already on disk, so only requests to network are cached
+            String property = System.getProperty("nbpdata.httpcache");
+            if (record == null && replay == null) {
+                try {
+                    defaultConnector.setHttpCache(new HttpCache(property != null
+                            ? Paths.get(property)
+                            : Paths.get(System.getProperty("user.home"), ".nbpdata", "http")
+                    ));
+                } catch (IOException ignored) {
+                    // responses are not revalidated if cache directory can't be created
+                }
+            }
+
+            try {
+                if (replay != null) {
+                    defaultConnector.setTransport(new ReplayTransport(Paths.get(replay)));
+                    defaultConnector.setRateLimiter(null);
+                } else if (record != null) {
+                    defaultConnector.setTransport(new RecordingTransport(new HttpTransport(), Paths.get(record)));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Couldn't create directory of recorded responses", e);
+            }
+
+            String hedge = System.getProperty("nbpdata.hedge");
+            if (hedge != null) {
+                defaultConnector.setHedging(new Hedging(
+                        Double.parseDouble(hedge),
+                        Double.parseDouble(System.getProperty("nbpdata.hedgebudget", "5")),
+                        HEDGING_WINDOW
+                ));
+            }
+
+            // windows of date ranges downloaded at once
+            defaultConnector.setConcurrencyLimit(new AdaptiveConcurrencyLimit(4, 1, 16, 8));
+
+            registerMetrics(defaultConnector, MetricsRegistry.getDefault());
+        }
+
+        return defaultConnector;
+    }
+
+    /**
+     * Records requests of given connector in registry, together with gauges of its caches, of coalescing and of concurrency limit.
+     */
+    private static void registerMetrics(NBPConnector connector, MetricsRegistry metrics) {
+        connector.setMetrics(metrics);
+
+        metrics.gauge("cache.response.hits", () -> {
+            ResponseCache cache = connector.getCache();
+            return cache == null ? 0 : cache.getHitCount();
+        });
+        metrics.gauge("cache.response.misses", () -> {
+            ResponseCache cache = connector.getCache();
+            return cache == null ? 0 : cache.getMissCount();
+        });
+        metrics.gauge("cache.response.hitRatio", () -> {
+            ResponseCache cache = connector.getCache();
+            long hits = cache == null ? 0 : cache.getHitCount();
+            long misses = cache == null ? 0 : cache.getMissCount();
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        });
+        metrics.gauge("cache.http.revalidated", () -> {
+            HttpCache cache = connector.getHttpCache();
+            return cache == null ? 0 : cache.getRevalidatedCount();
+        });
+        metrics.gauge("cache.http.stored", () -> {
+            HttpCache cache = connector.getHttpCache();
+            return cache == null ? 0 : cache.getStoredCount();
+        });
+        metrics.gauge("cache.http.evicted", () -> {
+            HttpCache cache = connector.getHttpCache();
+            return cache == null ? 0 : cache.getEvictedCount();
+        });
+        metrics.gauge("concurrency.limit", () -> {
+            AdaptiveConcurrencyLimit limit = connector.getConcurrencyLimit();
+            return limit == null ? 0 : limit.getLimit();
+        });
+        metrics.gauge("concurrency.changes", () -> {
+            AdaptiveConcurrencyLimit limit = connector.getConcurrencyLimit();
+            return limit == null ? 0 : limit.getChangeCount();
+        });
+        metrics.gauge("concurrency.p99.nanos", () -> {
+            AdaptiveConcurrencyLimit limit = connector.getConcurrencyLimit();
+            return limit == null ? 0 : limit.getLastP99Nanos();
+        });
+        metrics.gauge("concurrency.baseline.nanos", () -> {
+            AdaptiveConcurrencyLimit limit = connector.getConcurrencyLimit();
+            return limit == null ? 0 : limit.getBaselineNanos();
+        });
+        metrics.gauge("requests.executed", connector::getExecutedRequestCount);
+        metrics.gauge("requests.coalesced", connector::getCoalescedRequestCount);
+        metrics.gauge("ratelimiter.delayed", RATE_LIMITER::getDelayedCount);
     }
 
 }
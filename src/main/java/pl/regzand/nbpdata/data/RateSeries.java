@@ -0,0 +1,452 @@
+package pl.regzand.nbpdata.data;
+
+import pl.regzand.dataparser.DataFetcher;
+import pl.regzand.dataparser.DataProvider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar, in memory history of exchange rates and gold prices.
+ * <p>
+ * Each column is kept in separate primitive array, and currency codes are stored as ids from dictionary shared by series and its slices.
+ * Entries have to be appended in chronological order, so that series can be sliced by date using binary search.
+ * Rates that are not known (like bid and ask of table A) are stored as {@link Double#NaN}.
+ * Series is not thread safe.
+ * </p>
+ */
+public class RateSeries {
+
+    /**
+     * Currency code used for gold prices.
+     */
+    public static final String GOLD = "XAU";
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final Dictionary dictionary;
+
+    private int[] days;
+    private int[] currencies;
+    private double[] mids;
+    private double[] bids;
+    private double[] asks;
+
+    // range of arrays that belongs to this series
+    private final int offset;
+    private int length;
+
+    private final boolean slice;
+
+    /**
+     * Creates empty series.
+     */
+    public RateSeries() {
+        this.dictionary = new Dictionary();
+        this.days = new int[INITIAL_CAPACITY];
+        this.currencies = new int[INITIAL_CAPACITY];
+        this.mids = new double[INITIAL_CAPACITY];
+        this.bids = new double[INITIAL_CAPACITY];
+        this.asks = new double[INITIAL_CAPACITY];
+        this.offset = 0;
+        this.length = 0;
+        this.slice = false;
+    }
+
+    private RateSeries(RateSeries parent, int offset, int length) {
+        this.dictionary = parent.dictionary;
+        this.days = parent.days;
+        this.currencies = parent.currencies;
+        this.mids = parent.mids;
+        this.bids = parent.bids;
+        this.asks = parent.asks;
+        this.offset = offset;
+        this.length = length;
+        this.slice = true;
+    }
+
+    // ==============================================================================
+    // === APPENDING
+    // ==============================================================================
+
+    /**
+     * Appends entry to the end of series.
+     *
+     * @param code     currency code in format ISO 4217 (XXX)
+     * @param epochDay date of entry, as number of days since 1970-01-01
+     * @param mid      average rate in PLN, or NaN
+     * @param bid      buy price in PLN, or NaN
+     * @param ask      sell price in PLN, or NaN
+     *
+     * @throws IllegalArgumentException if entry is older than last entry of series
+     * @throws IllegalStateException    if this series is a slice of other series
+     */
+    public void append(String code, int epochDay, double mid, double bid, double ask) {
+        if (slice)
+            throw new IllegalStateException("Slice of series can not be modified");
+        if (length > 0 && epochDay < days[length - 1])
+            throw new IllegalArgumentException("Entries have to be appended in chronological order");
+
+        if (length == days.length)
+            grow();
+
+        days[length] = epochDay;
+        currencies[length] = dictionary.id(code);
+        mids[length] = mid;
+        bids[length] = bid;
+        asks[length] = ask;
+        length++;
+    }
+
+    /**
+     * Appends average exchange rate to the end of series.
+     *
+     * @param rate rate to append
+     */
+    public void append(MidRate rate) {
+        append(rate.getCode(), rate.getEpochDay(), rate.getMid(), Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Appends buy and sell exchange rate to the end of series.
+     *
+     * @param rate rate to append
+     */
+    public void append(BidAskRate rate) {
+        append(rate.getCode(), rate.getEpochDay(), Double.NaN, rate.getBid(), rate.getAsk());
+    }
+
+    /**
+     * Appends gold price to the end of series, as mid rate of {@link #GOLD}.
+     *
+     * @param price price to append
+     */
+    public void append(GoldPrice price) {
+        append(GOLD, price.getEpochDay(), price.getPrice(), Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Appends all data from given provider. Provider can return
+     * {@link MidRate}, {@link BidAskRate}, {@link GoldPrice} or collections of them (like whole tables).
+     *
+     * @param provider provider of rates
+     *
+     * @return this series
+     * @throws IOException if provider throw an IOException
+     */
+    public RateSeries appendAll(DataProvider<?> provider) throws IOException {
+        while (provider.hasNext())
+            appendObject(provider.next());
+
+        return this;
+    }
+
+    /**
+     * Appends all entries of given series, that have to be not older than the last entry of this series.
+     *
+     * @param series series to append
+     *
+     * @return this series
+     */
+    public RateSeries appendAll(RateSeries series) {
+        series.forEach((currency, epochDay, mid, bid, ask) ->
+                append(series.getCurrencyCode(currency), epochDay, mid, bid, ask)
+        );
+
+        return this;
+    }
+
+    private void appendObject(Object data) {
+        if (data instanceof MidRate)
+            append((MidRate) data);
+        else if (data instanceof BidAskRate)
+            append((BidAskRate) data);
+        else if (data instanceof GoldPrice)
+            append((GoldPrice) data);
+        else if (data instanceof Collection)
+            for (Object element : (Collection<?>) data)
+                appendObject(element);
+        else
+            throw new IllegalArgumentException("Unsupported data type: " + data.getClass().getName());
+    }
+
+    private void grow() {
+        int capacity = days.length * 2;
+        days = Arrays.copyOf(days, capacity);
+        currencies = Arrays.copyOf(currencies, capacity);
+        mids = Arrays.copyOf(mids, capacity);
+        bids = Arrays.copyOf(bids, capacity);
+        asks = Arrays.copyOf(asks, capacity);
+    }
+
+    // ==============================================================================
+    // === SLICING
+    // ==============================================================================
+
+    /**
+     * Returns view of entries from given date range. View shares data with this series.
+     *
+     * @param fromDay first day of range (inclusive), as number of days since 1970-01-01
+     * @param toDay   last day of range (inclusive), as number of days since 1970-01-01
+     *
+     * @return series with entries from given date range
+     */
+    public RateSeries slice(int fromDay, int toDay) {
+        int from = lowerBound(fromDay);
+        int to = toDay == Integer.MAX_VALUE ? offset + length : lowerBound(toDay + 1);
+
+        return new RateSeries(this, from, Math.max(0, to - from));
+    }
+
+    /**
+     * Returns new series containing only entries of given currency.
+     *
+     * @param code currency code in format ISO 4217 (XXX)
+     *
+     * @return series with entries of given currency
+     */
+    public RateSeries filter(String code) {
+        RateSeries result = new RateSeries();
+
+        int id = dictionary.find(code);
+        for (int i = 0; i < length; i++)
+            if (currencies[offset + i] == id)
+                result.append(code, days[offset + i], mids[offset + i], bids[offset + i], asks[offset + i]);
+
+        return result;
+    }
+
+    // index of first entry that is not before given day
+    private int lowerBound(int epochDay) {
+        int low = offset;
+        int high = offset + length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (days[middle] < epochDay)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+
+    // ==============================================================================
+    // === ACCESS
+    // ==============================================================================
+
+    /**
+     * Calls consumer for each entry of series, in chronological order.
+     *
+     * @param consumer consumer of entries
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int i = offset; i < offset + length; i++)
+            consumer.accept(currencies[i], days[i], mids[i], bids[i], asks[i]);
+    }
+
+    /**
+     * Returns number of entries in series
+     *
+     * @return number of entries in series
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * Returns date of entry, as number of days since 1970-01-01
+     *
+     * @param index index of entry
+     *
+     * @return date of entry
+     */
+    public int getEpochDay(int index) {
+        return days[checkIndex(index)];
+    }
+
+    /**
+     * Returns id of currency of entry
+     *
+     * @param index index of entry
+     *
+     * @return id of currency of entry
+     */
+    public int getCurrencyId(int index) {
+        return currencies[checkIndex(index)];
+    }
+
+    /**
+     * Returns currency code of entry
+     *
+     * @param index index of entry
+     *
+     * @return currency code of entry
+     */
+    public String getCode(int index) {
+        return dictionary.code(currencies[checkIndex(index)]);
+    }
+
+    /**
+     * Returns average rate of entry, NaN if not known
+     *
+     * @param index index of entry
+     *
+     * @return average rate of entry in PLN
+     */
+    public double getMid(int index) {
+        return mids[checkIndex(index)];
+    }
+
+    /**
+     * Returns buy price of entry, NaN if not known
+     *
+     * @param index index of entry
+     *
+     * @return buy price of entry in PLN
+     */
+    public double getBid(int index) {
+        return bids[checkIndex(index)];
+    }
+
+    /**
+     * Returns sell price of entry, NaN if not known
+     *
+     * @param index index of entry
+     *
+     * @return sell price of entry in PLN
+     */
+    public double getAsk(int index) {
+        return asks[checkIndex(index)];
+    }
+
+    /**
+     * Returns currency code for given currency id
+     *
+     * @param currencyId id of currency
+     *
+     * @return currency code
+     */
+    public String getCurrencyCode(int currencyId) {
+        return dictionary.code(currencyId);
+    }
+
+    /**
+     * Returns number of distinct currencies known to this series, ids are lower than that number.
+     *
+     * @return number of distinct currencies
+     */
+    public int getCurrencyCount() {
+        return dictionary.size();
+    }
+
+    /**
+     * Returns fetcher that provides all entries of series as average exchange rates, in single block.
+     *
+     * @return fetcher of average exchange rates
+     */
+    public DataFetcher<MidRate> midRates() {
+        List<MidRate> rates = new ArrayList<>(length);
+        forEach((currency, epochDay, mid, bid, ask) ->
+                rates.add(new MidRate(dictionary.code(currency), epochDay, mid))
+        );
+
+        return singleBlock(rates);
+    }
+
+    /**
+     * Returns fetcher that provides all entries of series as gold prices, in single block.
+     *
+     * @return fetcher of gold prices
+     */
+    public DataFetcher<GoldPrice> goldPrices() {
+        List<GoldPrice> prices = new ArrayList<>(length);
+        forEach((currency, epochDay, mid, bid, ask) ->
+                prices.add(new GoldPrice(epochDay, mid))
+        );
+
+        return singleBlock(prices);
+    }
+
+    private static <T> DataFetcher<T> singleBlock(List<T> block) {
+        return new DataFetcher<T>() {
+
+            private boolean fetched = false;
+
+            @Override
+            public Collection<T> fetch() {
+                if (fetched)
+                    return Collections.emptyList();
+
+                fetched = true;
+                return block;
+            }
+        };
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + length);
+
+        return offset + index;
+    }
+
+
+    /**
+     * Consumer of series entries.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        /**
+         * Accepts single entry of series.
+         *
+         * @param currencyId id of currency
+         * @param epochDay   date of entry, as number of days since 1970-01-01
+         * @param mid        average rate in PLN, or NaN
+         * @param bid        buy price in PLN, or NaN
+         * @param ask        sell price in PLN, or NaN
+         */
+        void accept(int currencyId, int epochDay, double mid, double bid, double ask);
+    }
+
+    /**
+     * Dictionary of currency codes.
+     */
+    private static class Dictionary {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> codes = new ArrayList<>();
+
+        int id(String code) {
+            Integer id = ids.get(code);
+            if (id == null) {
+                id = codes.size();
+                ids.put(code, id);
+                codes.add(code);
+            }
+            return id;
+        }
+
+        int find(String code) {
+            Integer id = ids.get(code);
+            return id == null ? -1 : id;
+        }
+
+        String code(int id) {
+            return codes.get(id);
+        }
+
+        int size() {
+            return codes.size();
+        }
+    }
+
+}
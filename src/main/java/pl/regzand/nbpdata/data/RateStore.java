@@ -0,0 +1,539 @@
+package pl.regzand.nbpdata.data;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import pl.regzand.dataparser.AdaptiveConcurrencyLimit;
+import pl.regzand.dataparser.exceptions.UnexpectedHttpStatusCodeException;
+import pl.regzand.dataparser.json.JSONConnector;
+import pl.regzand.metrics.Profiler;
+import pl.regzand.utils.EpochDays;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Persistent, on disk store of NBP exchange rate tables and gold prices.
+ * <p>
+ * Data published by NBP never changes, so every day before today that was once downloaded is read from disk afterwards,
+ * and only days that are missing in store are requested from API.
+ * Each table is kept in separate directory, with one file of entries per year and file of day ranges that were already synchronized.
+ * Single currencies can be kept apart from their tables, and synchronized without downloading whole tables.
+ * Days without data (weekends, holidays) are synchronized as well, so they are not requested again.
+ * Today's data (in Warsaw time) may be not published yet, so it is always downloaded and never stored.
+ * When store directory can't be created or locked, data is downloaded directly, as if nothing was stored.
+ * </p>
+ * <p>
+ * Store synchronizes access of threads using it, and of processes using the same directory through file locks,
+ * separately for each table and currency, so that loading of one never waits for another one.
+ * There should be only one store per directory in single JVM, like the one returned by {@link #getDefault()}.
+ * </p>
+ */
+public class RateStore {
+
+    /**
+     * Table of data kept in store.
+     */
+    public enum Table {
+
+        /**
+         * Table A of average exchange rates.
+         */
+        A("exchangerates/tables/a/%s/%s", 90),
+
+        /**
+         * Table B of average exchange rates.
+         */
+        B("exchangerates/tables/b/%s/%s", 90),
+
+        /**
+         * Table C of buy and sell exchange rates.
+         */
+        C("exchangerates/tables/c/%s/%s", 90),
+
+        /**
+         * Gold prices, stored as mid rates of {@link RateSeries#GOLD}.
+         */
+        GOLD("cenyzlota/%s/%s", 360);
+
+        private final String format;
+        private final int window;
+
+        Table(String format, int window) {
+            this.format = format;
+            this.window = window;
+        }
+
+        private String directoryName(String code) {
+            return code == null ? name().toLowerCase() : name().toLowerCase() + "-" + code.toLowerCase();
+        }
+
+        private String apiUrl(String code, int fromDay, int toDay) {
+            if (code == null)
+                return String.format(format, EpochDays.format(fromDay), EpochDays.format(toDay));
+
+            return String.format("exchangerates/rates/%s/%s/%s/%s", name().toLowerCase(), code.toLowerCase(), EpochDays.format(fromDay), EpochDays.format(toDay));
+        }
+
+        private void parse(String code, JSONArray response, RateSeries series) {
+            for (int i = 0; i < response.length(); i++) {
+                JSONObject object = response.getJSONObject(i);
+
+                // rates of single currency
+                if (code != null) {
+                    series.append(
+                            code,
+                            EpochDays.parse(object.getString("effectiveDate")),
+                            object.optDouble("mid", Double.NaN),
+                            object.optDouble("bid", Double.NaN),
+                            object.optDouble("ask", Double.NaN)
+                    );
+                    continue;
+                }
+
+                if (this == GOLD) {
+                    series.append(RateSeries.GOLD, EpochDays.parse(object.getString("data")), object.getDouble("cena"), Double.NaN, Double.NaN);
+                    continue;
+                }
+
+                int epochDay = EpochDays.parse(object.getString("effectiveDate"));
+                JSONArray rates = object.getJSONArray("rates");
+
+                for (int j = 0; j < rates.length(); j++) {
+                    JSONObject rate = rates.getJSONObject(j);
+                    series.append(
+                            rate.getString("code"),
+                            epochDay,
+                            rate.optDouble("mid", Double.NaN),
+                            rate.optDouble("bid", Double.NaN),
+                            rate.optDouble("ask", Double.NaN)
+                    );
+                }
+            }
+        }
+    }
+
+
+    private static final int FILE_MAGIC = 0x4E425044;
+    private static final int FILE_VERSION = 1;
+
+    private static RateStore defaultStore;
+
+    private final Path directory;
+
+    private final JSONConnector connector;
+
+    // monitors of directories of tables and currencies, file locks don't exclude threads of the same JVM
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+    // how many windows are downloaded at once while synchronizing, if connector has no adaptive limit
+    private static final int SYNC_PARALLELISM = 4;
+
+    /**
+     * Creates store kept in given directory, that downloads missing data using given connector.
+     *
+     * @param directory directory of store, created if it doesn't exist
+     * @param connector connector to NBP API
+     */
+    public RateStore(Path directory, JSONConnector connector) {
+        this.directory = directory;
+        this.connector = connector;
+    }
+
+    /**
+     * Returns store shared by all commands.
+     * It is kept in directory given by system property {@code nbpdata.store}, or in {@code .nbpdata/store} in user home directory.
+     *
+     * @return default store
+     */
+    public static synchronized RateStore getDefault() {
+        if (defaultStore == null) {
+            String property = System.getProperty("nbpdata.store");
+            Path directory = property != null
+                    ? Paths.get(property)
+                    : Paths.get(System.getProperty("user.home"), ".nbpdata", "store");
+
+            defaultStore = new RateStore(directory, NBPConnector.getDefault());
+        }
+
+        return defaultStore;
+    }
+
+    /**
+     * Returns all entries of table from given date range, downloading days that are missing in store.
+     *
+     * @param table   table of data
+     * @param fromDay first day of range (inclusive), as number of days since 1970-01-01
+     * @param toDay   last day of range (inclusive), as number of days since 1970-01-01
+     *
+     * @return entries from given date range, in chronological order
+     * @throws IOException if store couldn't be read or written, or API request failed
+     */
+    public RateSeries load(Table table, int fromDay, int toDay) throws IOException {
+        return loadLocked(table, null, fromDay, toDay);
+    }
+
+    /**
+     * Returns entries of single currency of table from given date range, downloading days that are missing in store.
+     * Currency is kept apart from its table and synchronized with requests of only its rates,
+     * so that it costs a fraction of downloading whole table, when other currencies aren't needed.
+     *
+     * @param table   table of currency, one of tables of exchange rates
+     * @param code    code of currency, ISO 4217
+     * @param fromDay first day of range (inclusive), as number of days since 1970-01-01
+     * @param toDay   last day of range (inclusive), as number of days since 1970-01-01
+     *
+     * @return entries from given date range, in chronological order
+     * @throws IOException if store couldn't be read or written, or API request failed
+     */
+    public RateSeries load(Table table, String code, int fromDay, int toDay) throws IOException {
+        if (table == Table.GOLD)
+            throw new IllegalArgumentException("Gold prices have no currencies");
+        if (!code.matches("[A-Za-z]{3}"))
+            throw new IllegalArgumentException("Wrong currency code: " + code);
+
+        return loadLocked(table, code.toUpperCase(), fromDay, toDay);
+    }
+
+    /**
+     * Loads entries of whole table, or of single currency if code is given.
+     */
+    private RateSeries loadLocked(Table table, String code, int fromDay, int toDay) throws IOException {
+        try (Profiler.Section ignored = Profiler.begin("store")) {
+            synchronized (locks.computeIfAbsent(table.directoryName(code), name -> new Object())) {
+                return read(table, code, fromDay, toDay);
+            }
+        }
+    }
+
+    /**
+     * Reads entries from store, downloading missing days, see {@link #load(Table, int, int)}.
+     */
+    private RateSeries read(Table table, String code, int fromDay, int toDay) throws IOException {
+        // today according to NBP, so that days that may still be published are never stored as empty
+        int today = (int) LocalDate.now(NBPCachePolicy.WARSAW).toEpochDay();
+        toDay = Math.min(toDay, today);
+
+        RateSeries result = new RateSeries();
+        if (fromDay > toDay)
+            return result;
+
+        Path tableDirectory = directory.resolve(table.directoryName(code));
+        FileChannel lockChannel = null;
+        FileLock lock;
+        try {
+            Files.createDirectories(tableDirectory);
+            lockChannel = FileChannel.open(tableDirectory.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lock = lockChannel.lock();
+        } catch (IOException e) {
+            // store can't be used, e.g. in read only home directory, so data is downloaded every time
+            if (lockChannel != null)
+                lockChannel.close();
+            return download(table, code, fromDay, toDay);
+        }
+
+        RateSeries fresh = new RateSeries();
+
+        try (FileChannel ignoredChannel = lockChannel; FileLock ignored = lock) {
+
+            // download missing days
+            Coverage coverage = Coverage.read(tableDirectory.resolve("coverage"));
+            List<int[]> missing = coverage.missing(fromDay, toDay);
+            for (int[] range : missing)
+                fresh.appendAll(download(table, code, range[0], range[1]));
+
+            // store everything except today
+            int lastStored = today - 1;
+            if (!missing.isEmpty() && missing.get(0)[0] <= lastStored) {
+                store(tableDirectory, fresh.slice(Integer.MIN_VALUE, lastStored), missing);
+                for (int[] range : missing)
+                    if (range[0] <= lastStored)
+                        coverage.add(range[0], Math.min(range[1], lastStored));
+                coverage.write(tableDirectory.resolve("coverage"));
+            }
+
+            // read stored data
+            int toYear = LocalDate.ofEpochDay(Math.min(toDay, lastStored)).getYear();
+            for (int year = LocalDate.ofEpochDay(fromDay).getYear(); year <= toYear; year++)
+                result.appendAll(readYear(tableDirectory, year).slice(fromDay, toDay));
+        }
+
+        return result.appendAll(fresh.slice(today, today));
+    }
+
+    // ==============================================================================
+    // === DOWNLOADING
+    // ==============================================================================
+
+    /**
+     * Downloads all entries of date range, several windows at once.
+     *
+     * @param table   table of data
+     * @param code    code of currency, {@code null} for whole table
+     * @param fromDay first day of range (inclusive)
+     * @param toDay   last day of range (inclusive)
+     *
+     * @return downloaded entries, in chronological order
+     * @throws IOException if any request failed
+     */
+    private RateSeries download(Table table, String code, int fromDay, int toDay) throws IOException {
+        RateSeries series = new RateSeries();
+        Queue<CompletableFuture<JSONArray>> windows = new ArrayDeque<>();
+
+        int next = fromDay;
+        while (next <= toDay || !windows.isEmpty()) {
+
+            // request following windows
+            AdaptiveConcurrencyLimit limit = connector.getConcurrencyLimit();
+            while (windows.size() < (limit != null ? limit.getLimit() : SYNC_PARALLELISM) && next <= toDay) {
+                int end = Math.min(toDay, next + table.window);
+                windows.add(request(code, table.apiUrl(code, next, end)));
+                next = end + 1;
+            }
+
+            // parse the oldest one
+            try {
+                table.parse(code, windows.remove().join(), series);
+            } catch (CompletionException e) {
+                // requests of following windows can't be aborted, they complete in background
+
+                if (e.getCause() instanceof IOException)
+                    throw (IOException) e.getCause();
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw e;
+            }
+        }
+
+        return series;
+    }
+
+    /**
+     * Requests window of data, API responds with 404 if there is no data in window.
+     *
+     * @param code   code of currency, {@code null} for whole table
+     * @param apiUrl url of window
+     *
+     * @return future completed with data of window, rates if code is given, empty if there is no data
+     */
+    private CompletableFuture<JSONArray> request(String code, String apiUrl) {
+        CompletableFuture<JSONArray> response = code == null
+                ? connector.makeJSONArrayRequestAsync(apiUrl)
+                : connector.makeJSONObjectRequestAsync(apiUrl).thenApply(object -> object.getJSONArray("rates"));
+
+        return response.handle((data, e) -> {
+            if (e == null)
+                return data;
+
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof UnexpectedHttpStatusCodeException && ((UnexpectedHttpStatusCodeException) cause).getCode() == 404)
+                return new JSONArray();
+
+            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+        });
+    }
+
+    // ==============================================================================
+    // === FILES
+    // ==============================================================================
+
+    /**
+     * Replaces entries of given day ranges in year files with downloaded ones.
+     *
+     * @param tableDirectory directory of table
+     * @param downloaded     downloaded entries
+     * @param ranges         day ranges that were downloaded
+     *
+     * @throws IOException if files couldn't be read or written
+     */
+    private static void store(Path tableDirectory, RateSeries downloaded, List<int[]> ranges) throws IOException {
+        int fromYear = LocalDate.ofEpochDay(ranges.get(0)[0]).getYear();
+        int toYear = LocalDate.ofEpochDay(ranges.get(ranges.size() - 1)[1]).getYear();
+
+        for (int year = fromYear; year <= toYear; year++) {
+            int yearStart = EpochDays.of(year, 1, 1);
+            int yearEnd = EpochDays.of(year + 1, 1, 1) - 1;
+
+            RateSeries stored = readYear(tableDirectory, year);
+            RateSeries fresh = downloaded.slice(yearStart, yearEnd);
+            RateSeries merged = new RateSeries();
+
+            // keep stored entries from outside of downloaded ranges, they are merged by day with downloaded ones
+            int i = 0;
+            int j = 0;
+            while (i < stored.size() || j < fresh.size()) {
+                if (j == fresh.size() || (i < stored.size() && stored.getEpochDay(i) <= fresh.getEpochDay(j))) {
+                    if (!contains(ranges, stored.getEpochDay(i)))
+                        append(merged, stored, i);
+                    i++;
+                } else {
+                    append(merged, fresh, j++);
+                }
+            }
+
+            writeYear(tableDirectory, year, merged);
+        }
+    }
+
+    private static boolean contains(List<int[]> ranges, int epochDay) {
+        for (int[] range : ranges)
+            if (range[0] <= epochDay && epochDay <= range[1])
+                return true;
+
+        return false;
+    }
+
+    private static void append(RateSeries target, RateSeries source, int index) {
+        target.append(source.getCode(index), source.getEpochDay(index), source.getMid(index), source.getBid(index), source.getAsk(index));
+    }
+
+    private static RateSeries readYear(Path tableDirectory, int year) throws IOException {
+        RateSeries series = new RateSeries();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(tableDirectory.resolve(year + ".dat"))))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION)
+                throw new IOException("Unsupported format of store file for year " + year);
+
+            String[] codes = new String[in.readInt()];
+            for (int i = 0; i < codes.length; i++)
+                codes[i] = in.readUTF();
+
+            int size = in.readInt();
+            for (int i = 0; i < size; i++)
+                series.append(codes[in.readInt()], in.readInt(), in.readDouble(), in.readDouble(), in.readDouble());
+
+        } catch (NoSuchFileException e) {
+            // nothing stored from this year
+        }
+
+        return series;
+    }
+
+    private static void writeYear(Path tableDirectory, int year, RateSeries series) throws IOException {
+        Path file = tableDirectory.resolve(year + ".dat");
+        Path temp = tableDirectory.resolve(year + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+
+            out.writeInt(series.getCurrencyCount());
+            for (int i = 0; i < series.getCurrencyCount(); i++)
+                out.writeUTF(series.getCurrencyCode(i));
+
+            out.writeInt(series.size());
+            for (int i = 0; i < series.size(); i++) {
+                out.writeInt(series.getCurrencyId(i));
+                out.writeInt(series.getEpochDay(i));
+                out.writeDouble(series.getMid(i));
+                out.writeDouble(series.getBid(i));
+                out.writeDouble(series.getAsk(i));
+            }
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * Sorted, disjoint day ranges that were already synchronized.
+     */
+    private static class Coverage {
+
+        private final List<int[]> ranges = new ArrayList<>();
+
+        static Coverage read(Path file) throws IOException {
+            Coverage coverage = new Coverage();
+
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                int size = in.readInt();
+                for (int i = 0; i < size; i++)
+                    coverage.ranges.add(new int[]{in.readInt(), in.readInt()});
+            } catch (NoSuchFileException e) {
+                // nothing synchronized yet
+            }
+
+            return coverage;
+        }
+
+        void write(Path file) throws IOException {
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(ranges.size());
+                for (int[] range : ranges) {
+                    out.writeInt(range[0]);
+                    out.writeInt(range[1]);
+                }
+            }
+
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /**
+         * Returns parts of given range that are not covered yet.
+         */
+        List<int[]> missing(int fromDay, int toDay) {
+            List<int[]> missing = new ArrayList<>();
+
+            int next = fromDay;
+            for (int[] range : ranges) {
+                if (range[1] < next)
+                    continue;
+                if (range[0] > toDay)
+                    break;
+                if (range[0] > next)
+                    missing.add(new int[]{next, range[0] - 1});
+                next = range[1] + 1;
+            }
+
+            if (next <= toDay)
+                missing.add(new int[]{next, toDay});
+
+            return missing;
+        }
+
+        /**
+         * Marks given range as covered, merging it with overlapping and adjacent ranges.
+         */
+        void add(int fromDay, int toDay) {
+            List<int[]> merged = new ArrayList<>();
+            int[] added = {fromDay, toDay};
+
+            for (int[] range : ranges) {
+                if (range[1] < added[0] - 1 || range[0] > added[1] + 1) {
+                    merged.add(range);
+                } else {
+                    added[0] = Math.min(added[0], range[0]);
+                    added[1] = Math.max(added[1], range[1]);
+                }
+            }
+
+            merged.add(added);
+            merged.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+            ranges.clear();
+            ranges.addAll(merged);
+        }
+    }
+
+}
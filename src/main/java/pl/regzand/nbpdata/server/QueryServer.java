@@ -0,0 +1,372 @@
+package pl.regzand.nbpdata.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import pl.regzand.commands.CommandException;
+import pl.regzand.dataparser.SingleFlight;
+import pl.regzand.dataparser.exceptions.UnexpectedHttpStatusCodeException;
+import pl.regzand.metrics.Counter;
+import pl.regzand.metrics.Histogram;
+import pl.regzand.metrics.MetricsRegistry;
+import pl.regzand.nbpdata.commands.NBPDataCommand;
+import pl.regzand.utils.ANSIColors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Http server answering queries with results of commands of {@link NBPDataCommand} in JSON.
+ * <p>
+ * Path of request is command with its arguments, e.g. {@code GET /currency/price/USD/2017-06-13}
+ * is answered with result of {@code currency price USD 2017-06-13}:
+ * </p>
+ * <pre>
+ * {"command": "currency price USD 2017-06-13", "output": ["Price of 1.00 USD according to NBP data from 2017-06-13 was 3.7631 PLN"]}
+ * </pre>
+ * <p>
+ * Output is stripped of ANSI codes. Failed command is answered with status 400 if it was used wrongly,
+ * 404 if NBP has no requested data, 502 otherwise, and its output and error message.
+ * Paths that don't lead to command that answers queries, e.g. {@code /} or {@code /currency}, are answered with status 404.
+ * </p>
+ * <p>
+ * Commands run on bounded pool of workers with bounded queue. When queue is full, requests are answered
+ * immediately with status 503, and requests that don't complete in time with status 504.
+ * Concurrent identical queries share one execution, and results are cached for given time,
+ * on top of caches of default connector that all commands share.
+ * Requests, shed requests, timeouts and hits of result cache are recorded in default {@link MetricsRegistry}.
+ * </p>
+ */
+public class QueryServer implements Closeable {
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    // number of cached results, the least recently used are evicted
+    private static final int CACHE_SIZE = 1024;
+
+    private final HttpServer server;
+
+    private final ThreadPoolExecutor workers;
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final long timeoutMillis;
+    private final long ttlMillis;
+
+    // used only to check which command handles path of request
+    private final NBPDataCommand commands = new NBPDataCommand();
+
+    // results are keyed by arguments, not by joined command, as one argument can contain spaces
+    private final SingleFlight<List<String>, Result> executions = new SingleFlight<>();
+    private final Map<List<String>, Result> cache = new LinkedHashMap<List<String>, Result>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<String>, Result> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final Counter requests;
+    private final Counter shed;
+    private final Counter timeouts;
+    private final Counter cached;
+    private final Histogram latency;
+
+    /**
+     * Starts server.
+     *
+     * @param address       address to listen on
+     * @param threads       number of commands executed at the same time
+     * @param queueSize     number of commands waiting for worker, after which requests are rejected
+     * @param timeoutMillis time after which request that isn't answered is answered with timeout
+     * @param ttlMillis     time for which results are cached, 0 to disable caching
+     *
+     * @throws IOException if server couldn't listen on given address
+     */
+    public QueryServer(InetSocketAddress address, int threads, int queueSize, long timeoutMillis, long ttlMillis) throws IOException {
+        if (threads < 1 || queueSize < 1)
+            throw new IllegalArgumentException("Number of threads and size of queue have to be positive");
+
+        this.timeoutMillis = timeoutMillis;
+        this.ttlMillis = ttlMillis;
+
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "nbpdata-server-" + THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "nbpdata-server-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // timeouts of answered requests are removed, so that they don't pile up in queue of timer
+        this.timer.setRemoveOnCancelPolicy(true);
+
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        this.requests = metrics.counter("server.requests");
+        this.shed = metrics.counter("server.shed");
+        this.timeouts = metrics.counter("server.timeouts");
+        this.cached = metrics.counter("server.cached");
+        this.latency = metrics.histogram("server.latency.nanos");
+        metrics.gauge("server.coalesced", executions::getSharedCount);
+        metrics.gauge("server.queued", () -> workers.getQueue().size());
+
+        // handler only dispatches requests to workers, so it runs on the thread of server
+        this.server = HttpServer.create(address, 0);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    /**
+     * Returns address that server listens on.
+     *
+     * @return address of server
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        requests.increment();
+
+        if (!exchange.getRequestMethod().equals("GET")) {
+            respond(exchange, 405, error("Only GET requests are supported"), start);
+            return;
+        }
+
+        String[] args = parseArguments(exchange.getRequestURI().getRawPath());
+        List<String> key = Arrays.asList(args);
+
+        // commands with sub commands only display usage, so e.g. "/" or "/favicon.ico" are not queries
+        if (!commands.resolve(args).getSubCommands().isEmpty()) {
+            respond(exchange, 404, error("No command at " + exchange.getRequestURI().getRawPath()), start);
+            return;
+        }
+
+        Result result = getCached(key);
+        if (result != null) {
+            cached.increment();
+            respond(exchange, result.status, result.body, start);
+            return;
+        }
+
+        CompletableFuture<Result> future = executions.executeAsync(key, () -> submit(args, key));
+
+        // whichever comes first, result or timeout, is sent
+        AtomicBoolean responded = new AtomicBoolean();
+        ScheduledFuture<?> timeout = timer.schedule(() -> {
+            if (!responded.compareAndSet(false, true))
+                return;
+
+            timeouts.increment();
+            respondQuietly(exchange, 504, error("Command didn't complete in " + timeoutMillis + " ms"), start);
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        future.whenComplete((r, e) -> {
+            timeout.cancel(false);
+            if (!responded.compareAndSet(false, true))
+                return;
+
+            if (e instanceof RejectedExecutionException || e != null && e.getCause() instanceof RejectedExecutionException) {
+                shed.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respondQuietly(exchange, 503, error("Server is overloaded, try again later"), start);
+            } else if (e != null) {
+                respondQuietly(exchange, 500, error("Unexpected exception: " + e), start);
+            } else {
+                respondQuietly(exchange, r.status, r.body, start);
+            }
+        });
+    }
+
+    /**
+     * Submits command to workers, result is cached when command completes, even if request already timed out.
+     */
+    private CompletableFuture<Result> submit(String[] args, List<String> key) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        try {
+            workers.execute(() -> {
+                try {
+                    Result result = execute(args);
+                    putCached(key, result);
+                    future.complete(result);
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Executes command and creates response from its output.
+     */
+    private static Result execute(String[] args) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        NBPDataCommand root = new NBPDataCommand();
+        try (PrintStream out = new PrintStream(buffer, false, "UTF-8")) {
+            root.setOut(out);
+            root.setProfilingAllowed(false);
+            root.execute(args);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+
+        JSONArray output = new JSONArray();
+        for (String line : ANSIColors.strip(new String(buffer.toByteArray(), StandardCharsets.UTF_8)).split("\\R"))
+            output.put(line);
+
+        // skip leading empty line of usage
+        if (output.length() > 0 && output.getString(0).isEmpty())
+            output.remove(0);
+
+        JSONObject body = new JSONObject()
+                .put("command", String.join(" ", args))
+                .put("output", output);
+
+        Exception failure = root.getFailure();
+        if (failure != null)
+            body.put("error", failure.getMessage() != null ? failure.getMessage() : failure.toString());
+
+        return new Result(status(failure), body.toString().getBytes(StandardCharsets.UTF_8), System.currentTimeMillis());
+    }
+
+    private static int status(Exception failure) {
+        if (failure == null)
+            return 200;
+        if (failure instanceof CommandException)
+            return 400;
+        if (failure instanceof UnexpectedHttpStatusCodeException && ((UnexpectedHttpStatusCodeException) failure).getCode() == 404)
+            return 404;
+        return 502;
+    }
+
+    /**
+     * Returns arguments of command from path of request, every segment is one argument.
+     */
+    private static String[] parseArguments(String path) {
+        return Arrays.stream(path.split("/"))
+                .filter(segment -> !segment.isEmpty())
+                .map(segment -> {
+                    try {
+                        return URLDecoder.decode(segment, "UTF-8");
+                    } catch (UnsupportedEncodingException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toArray(String[]::new);
+    }
+
+    private static byte[] error(String message) {
+        return new JSONObject().put("error", message).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // ==============================================================================
+    // === CACHE
+    // ==============================================================================
+
+    private Result getCached(List<String> key) {
+        if (ttlMillis <= 0)
+            return null;
+
+        synchronized (cache) {
+            Result result = cache.get(key);
+            if (result == null)
+                return null;
+            if (System.currentTimeMillis() - result.created < ttlMillis)
+                return result;
+
+            cache.remove(key);
+            return null;
+        }
+    }
+
+    private void putCached(List<String> key, Result result) {
+        // failures of NBP API are not cached, so that they can be retried
+        if (ttlMillis <= 0 || result.status >= 500)
+            return;
+
+        synchronized (cache) {
+            cache.put(key, result);
+        }
+    }
+
+    // ==============================================================================
+    // === RESPONSE
+    // ==============================================================================
+
+    private void respond(HttpExchange exchange, int status, byte[] body, long start) throws IOException {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+            latency.record(System.nanoTime() - start);
+        }
+    }
+
+    private void respondQuietly(HttpExchange exchange, int status, byte[] body, long start) {
+        try {
+            respond(exchange, status, body, start);
+        } catch (IOException ignored) {
+            // client disconnected
+        }
+    }
+
+    /**
+     * Stops server, requests that are in progress are not answered.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        workers.shutdownNow();
+        timer.shutdownNow();
+    }
+
+
+    /**
+     * Response to query, shared by identical queries.
+     */
+    private static class Result {
+
+        final int status;
+        final byte[] body;
+        final long created;
+
+        Result(int status, byte[] body, long created) {
+            this.status = status;
+            this.body = body;
+            this.created = created;
+        }
+    }
+
+}
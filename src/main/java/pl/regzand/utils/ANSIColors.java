@@ -59,4 +59,18 @@ public class ANSIColors {
     public static String highlite(String text) {
         return BOLD + REVERSED + " " + text + " " + RESET;
     }
+
+    /**
+     * Returns given text without ANSI codes, and without padding added by {@link #highlite(String)}.
+     *
+     * @param text formatted text
+     *
+     * @return plain text
+     */
+    public static String strip(String text) {
+        return text
+                .replace(BOLD + REVERSED + " ", "")
+                .replace(" " + RESET, "")
+                .replaceAll("\u001b\\[[0-9;]*m", "");
+    }
 }
@@ -1,10 +1,13 @@
 package pl.regzand.utils;
 
+import pl.regzand.metrics.Profiler;
+
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Utility class that prints (horizontal) column graph to standard output.
+ * Utility class that prints (horizontal) column graph to console.
  */
 public class ConsoleGraph {
 
@@ -35,25 +38,37 @@ public class ConsoleGraph {
      * @param valueWidth width, in chars, of columns
      */
     public void draw(int labelWidth, int valueWidth) {
+        draw(System.out, labelWidth, valueWidth);
+    }
+
+    /**
+     * Prints this graph to given stream.
+     *
+     * @param out        stream to print graph to
+     * @param labelWidth width, in chars, of labels
+     * @param valueWidth width, in chars, of columns
+     */
+    public void draw(PrintStream out, int labelWidth, int valueWidth) {
 
         // print
-        for (GraphEntry entry : data) {
-            StringBuilder builder = new StringBuilder();
+        try (Profiler.Section ignored = Profiler.begin("render")) {
+            for (GraphEntry entry : data) {
+                StringBuilder builder = new StringBuilder();
 
-            // name
-            builder.append(String.format("%-" + labelWidth + "s ", entry.label));
+                // name
+                builder.append(String.format("%-" + labelWidth + "s ", entry.label));
 
-            // bar
-            double c = valueWidth * 0.1 + (entry.value - min) / (max - min) * (valueWidth * 0.9);
-            for (int i = 1; i < c; i++)
-                builder.append(CHAR);
+                // bar
+                double c = valueWidth * 0.1 + (entry.value - min) / (max - min) * (valueWidth * 0.9);
+                for (int i = 1; i < c; i++)
+                    builder.append(CHAR);
 
-            // value
-            builder.append(String.format(" %.4f", entry.value));
+                // value
+                builder.append(String.format(" %.4f", entry.value));
 
-            System.out.println(builder.toString());
+                out.println(builder.toString());
+            }
         }
-
     }
 
     /**
@@ -0,0 +1,103 @@
+package pl.regzand.utils;
+
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+/**
+ * Utility class for dates stored as primitive number of days since 1970-01-01.
+ */
+public class EpochDays {
+
+    /**
+     * Returns epoch day of date in format ISO 8601 (YYYY-MM-DD), without creating any objects.
+     *
+     * @param text date in format ISO 8601 (YYYY-MM-DD)
+     *
+     * @return number of days since 1970-01-01
+     * @throws IllegalArgumentException if text is not a date in expected format
+     */
+    public static int parse(CharSequence text) {
+        if (text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-')
+            throw new IllegalArgumentException("Wrong date format, expected: ISO 8601 (YYYY-MM-DD)");
+
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+
+        if (month < 1 || month > 12 || day < 1 || day > 31)
+            throw new IllegalArgumentException("Wrong date format, expected: ISO 8601 (YYYY-MM-DD)");
+
+        return of(year, month, day);
+    }
+
+    /**
+     * Returns epoch day of given date.
+     *
+     * @param year  year
+     * @param month month, from 1 to 12
+     * @param day   day of month, from 1
+     *
+     * @return number of days since 1970-01-01
+     */
+    public static int of(int year, int month, int day) {
+        // days from civil, counting years from march so that leap day is the last one
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Returns epoch day of given date in default time zone.
+     *
+     * @param date date
+     *
+     * @return number of days since 1970-01-01
+     */
+    public static int of(Date date) {
+        Calendar cal = new GregorianCalendar();
+        cal.setTime(date);
+
+        return of(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Returns day of week of given epoch day, counting from sunday as 0, same as {@link Date#getDay()}.
+     *
+     * @param epochDay number of days since 1970-01-01
+     *
+     * @return day of week, from 0 (sunday) to 6 (saturday)
+     */
+    public static int dayOfWeek(int epochDay) {
+        // 1970-01-01 was thursday
+        return Math.floorMod(epochDay + 4, 7);
+    }
+
+    /**
+     * Returns given epoch day formatted as ISO 8601 (YYYY-MM-DD).
+     *
+     * @param epochDay number of days since 1970-01-01
+     *
+     * @return date in format ISO 8601 (YYYY-MM-DD)
+     */
+    public static String format(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    private static int digits(CharSequence text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9')
+                throw new IllegalArgumentException("Wrong date format, expected: ISO 8601 (YYYY-MM-DD)");
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+}
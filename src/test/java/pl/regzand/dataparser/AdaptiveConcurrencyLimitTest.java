@@ -0,0 +1,60 @@
+package pl.regzand.dataparser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static void window(AdaptiveConcurrencyLimit limit, int size, long latency, boolean failure) {
+        for (int i = 0; i < size; i++)
+            limit.onSample(latency, failure && i == 0);
+    }
+
+    @Test
+    void limitGrowsWhileLatencyIsStable() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 5, 4);
+
+        for (int i = 0; i < 10; i++)
+            window(limit, 4, 10_000_000L, false);
+
+        assertEquals(5, limit.getLimit());
+        assertEquals(10_000_000L, limit.getBaselineNanos());
+        assertEquals(10_000_000L, limit.getLastP99Nanos());
+    }
+
+    @Test
+    void limitDecreasesOnFailuresAndLatency() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 20, 4);
+
+        window(limit, 4, 10_000_000L, false);
+        assertEquals(11, limit.getLimit());
+
+        // latency above twice the baseline
+        window(limit, 4, 50_000_000L, false);
+        assertEquals(8, limit.getLimit());
+
+        // failure halves the limit, but not below minimum
+        window(limit, 4, 10_000_000L, true);
+        assertEquals(4, limit.getLimit());
+        window(limit, 4, 10_000_000L, true);
+        assertEquals(2, limit.getLimit());
+        window(limit, 4, 10_000_000L, true);
+        assertEquals(2, limit.getLimit());
+
+        List<AdaptiveConcurrencyLimit.Change> history = limit.getHistory();
+        assertEquals(5, history.size());
+        assertEquals(10, history.get(0).getLimit());
+        assertEquals(2, history.get(history.size() - 1).getLimit());
+    }
+
+    @Test
+    void invalidLimitsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(0, 0, 4, 4));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(5, 1, 4, 4));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(2, 1, 4, 0));
+    }
+
+}
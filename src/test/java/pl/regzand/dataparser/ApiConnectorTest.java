@@ -0,0 +1,263 @@
+package pl.regzand.dataparser;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.regzand.dataparser.exceptions.UnexpectedHttpStatusCodeException;
+import pl.regzand.metrics.MetricsRegistry;
+
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiConnectorTest {
+
+    private HttpServer server;
+
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<>());
+
+    private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // fails with status code from path for first two attempts, e.g. "/flaky/503/id"
+        server.createContext("/flaky/", exchange -> {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            int attempt = attempts.computeIfAbsent(path[3], id -> new AtomicInteger()).incrementAndGet();
+
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(attempt <= 2 ? Integer.parseInt(path[2]) : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+
+        // hangs on first attempt
+        server.createContext("/hanging/", exchange -> {
+            String id = exchange.getRequestURI().getPath().split("/")[2];
+            if (attempts.computeIfAbsent(id, key -> new AtomicInteger()).incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException ignored) {
+                }
+            }
+
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+
+            int code = exchange.getRequestURI().getPath().endsWith("missing") ? 404 : 200;
+            byte[] body = "[{\"value\": 1}, {\"value\": 2}, {\"value\": 3}]".getBytes(StandardCharsets.UTF_8);
+
+            exchange.sendResponseHeaders(code, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void connectionIsReused() throws Exception {
+        ApiConnector connector = new ApiConnector("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+
+        // fully read responses
+        for (int i = 0; i < 5; i++) {
+            try (InputStream stream = connector.makeRequest("data")) {
+                while (stream.read() != -1) ;
+            }
+        }
+
+        // partially read responses
+        for (int i = 0; i < 5; i++) {
+            try (InputStream stream = connector.makeRequest("data")) {
+                assertEquals('[', stream.read());
+            }
+        }
+
+        // error responses
+        for (int i = 0; i < 5; i++)
+            assertThrows(UnexpectedHttpStatusCodeException.class, () -> connector.makeRequest("missing"));
+
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    void failedRequestsAreRetried() throws Exception {
+        ApiConnector connector = new ApiConnector("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        RequestStatistics statistics = new RequestStatistics();
+        connector.setRequestListener(statistics);
+        connector.setRetryPolicy(new RetryPolicy(3, 10, 50));
+
+        // server errors and throttling are retried
+        connector.makeRequest("flaky/503/a").close();
+        connector.makeRequest("flaky/429/b").close();
+        assertEquals(6, statistics.getAttemptCount());
+        assertEquals(4, statistics.getRetryCount());
+        assertEquals(4, statistics.getFailureCount());
+
+        // 404 means there is no data, it is never retried
+        assertThrows(UnexpectedHttpStatusCodeException.class, () -> connector.makeRequest("flaky/404/c"));
+        assertEquals(1, attempts.get("c").get());
+        assertEquals(1, statistics.getNotFoundCount());
+
+        // attempts are limited
+        connector.setRetryPolicy(new RetryPolicy(2, 10, 50));
+        UnexpectedHttpStatusCodeException e = assertThrows(UnexpectedHttpStatusCodeException.class, () -> connector.makeRequest("flaky/500/d"));
+        assertEquals(500, e.getCode());
+        assertEquals(2, attempts.get("d").get());
+    }
+
+    @Test
+    void hangingRequestsTimeOut() throws Exception {
+        ApiConnector connector = new ApiConnector("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        RequestStatistics statistics = new RequestStatistics();
+        connector.setRequestListener(statistics);
+        connector.setTimeouts(1000, 200);
+
+        long start = System.nanoTime();
+        connector.makeRequest("hanging/a").close();
+        assertTrue(System.nanoTime() - start < 1_500_000_000L);
+        assertEquals(1, statistics.getTimeoutCount());
+        assertEquals(2, statistics.getAttemptCount());
+
+        connector.setRetryPolicy(RetryPolicy.NONE);
+        assertThrows(SocketTimeoutException.class, () -> connector.makeRequest("hanging/b"));
+    }
+
+    @Test
+    void slowRequestsAreHedged() throws Exception {
+        ApiConnector connector = new ApiConnector("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        Hedging hedging = new Hedging(0.9, 50, 20);
+        connector.setHedging(hedging);
+
+        // sample latencies of fast responses
+        for (int i = 0; i < 20; i++)
+            connector.makeRequest("data").close();
+        assertTrue(hedging.getDelayNanos() > 0);
+
+        // occasional slow fast response could be hedged too
+        long hedged = hedging.getHedgedCount();
+        long won = hedging.getHedgesWonCount();
+        long cancelled = hedging.getCancelledCount();
+
+        // first copy hangs, duplicate responds immediately
+        long start = System.nanoTime();
+        connector.makeRequest("hanging/a").close();
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+        assertEquals(hedged + 1, hedging.getHedgedCount());
+        assertEquals(won + 1, hedging.getHedgesWonCount());
+        assertEquals(cancelled + 1, hedging.getCancelledCount());
+        assertEquals(2, attempts.get("a").get());
+    }
+
+    @Test
+    void interruptedHedgedRequestIsCancelled() throws Exception {
+        ApiConnector connector = new ApiConnector("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        Hedging hedging = new Hedging(0.9, 0, 20);
+        connector.setHedging(hedging);
+
+        for (int i = 0; i < 20; i++)
+            connector.makeRequest("data").close();
+        long cancelled = hedging.getCancelledCount();
+
+        // budget is exhausted, so caller waits for hanging copy until it is interrupted
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                connector.makeRequest("hanging/c").close();
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        caller.start();
+        Thread.sleep(200);
+        caller.interrupt();
+        caller.join(1000);
+
+        assertFalse(caller.isAlive());
+        assertTrue(error.get() instanceof InterruptedIOException, String.valueOf(error.get()));
+        assertEquals(cancelled + 1, hedging.getCancelledCount());
+    }
+
+    @Test
+    void concurrencyLimitIsSampledAfterRateLimiter() throws Exception {
+        ApiConnector connector = new ApiConnector("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 4);
+        connector.setConcurrencyLimit(limit);
+        connector.setRateLimiter(new RateLimiter(10, 1));
+
+        // missing data is an answer of api, not a failure
+        for (int i = 0; i < 4; i++)
+            assertThrows(UnexpectedHttpStatusCodeException.class, () -> connector.makeRequest("missing"));
+        assertEquals(3, limit.getLimit());
+
+        // waiting about 100 ms for rate limiter is not latency of api
+        for (int i = 0; i < 4; i++)
+            connector.makeRequest("data").close();
+        assertTrue(limit.getBaselineNanos() < 50_000_000L, limit.toString());
+    }
+
+    @Test
+    void metricsAreRecordedPerEndpoint() throws Exception {
+        ApiConnector connector = new ApiConnector("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        MetricsRegistry metrics = new MetricsRegistry();
+        connector.setMetrics(metrics);
+        connector.setRetryPolicy(RetryPolicy.NONE);
+
+        for (String apiUrl : new String[]{"data/2018-01-01", "data/2018-01-02/2018-01-05", "data"}) {
+            try (InputStream stream = connector.makeRequest(apiUrl)) {
+                while (stream.read() != -1) ;
+            }
+        }
+        assertThrows(UnexpectedHttpStatusCodeException.class, () -> connector.makeRequest("data/2018-01-09/missing"));
+
+        assertEquals(4, metrics.counter("http.requests.data").getCount());
+        assertEquals(1, metrics.counter("http.failures.data").getCount());
+        assertEquals(3 * 42, metrics.counter("http.bytes.data").getCount());
+        assertEquals(4, metrics.histogram("http.latency.data.nanos").getCount());
+    }
+
+    @Test
+    void numberOfEndpointsWithMetricsIsLimited() throws Exception {
+        ApiConnector connector = new ApiConnector("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        MetricsRegistry metrics = new MetricsRegistry();
+        connector.setMetrics(metrics);
+
+        // endpoints with arguments, like currency codes
+        for (int i = 0; i < EndpointMetrics.MAX_ENDPOINTS + 10; i++)
+            connector.makeRequest("rates/c" + i + "/2018-01-01").close();
+
+        assertEquals(1, metrics.counter("http.requests.rates/c0").getCount());
+        assertEquals(10, metrics.counter("http.requests." + EndpointMetrics.OTHER).getCount());
+        assertFalse(metrics.getMetrics().containsKey("http.requests.rates/c" + EndpointMetrics.MAX_ENDPOINTS));
+    }
+
+}
@@ -0,0 +1,83 @@
+package pl.regzand.dataparser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataAnalyserTest {
+
+    private static DataAnalyser<String> analyser(String... data) {
+        List<String> list = new ArrayList<>(Arrays.asList(data));
+        return new DataAnalyser<>(new DataProvider<>(() -> {
+            List<String> head = list.subList(0, Math.min(2, list.size()));
+            List<String> block = new ArrayList<>(head);
+            head.clear();
+            return block;
+        }));
+    }
+
+    @Test
+    void aggregate() throws IOException {
+        Aggregate<String> aggregate = analyser("4", "2", "7", "2", "7", "8")
+                .aggregate(Double::parseDouble, EnumSet.allOf(Statistic.class));
+
+        assertEquals(6, aggregate.getCount());
+        assertEquals(30, aggregate.getSum());
+        assertEquals(5, aggregate.getMean(), 1e-12);
+        assertEquals(6, aggregate.getVariance(), 1e-12);
+        assertEquals(2, aggregate.getMin());
+        assertEquals(8, aggregate.getMax());
+        assertEquals("4", aggregate.getFirst());
+        assertEquals("8", aggregate.getLast());
+    }
+
+    @Test
+    void aggregateRequestedOnly() throws IOException {
+        DataAnalyser<String> analyser = analyser("1.5", "2.5");
+        Aggregate<String> aggregate = analyser.aggregate(Double::parseDouble, EnumSet.of(Statistic.VARIANCE));
+
+        assertEquals(2, aggregate.getMean());
+        assertEquals(0.25, aggregate.getVariance());
+        assertThrows(IllegalStateException.class, aggregate::getCount);
+        assertThrows(IllegalStateException.class, () -> analyser.average(Double::parseDouble));
+    }
+
+    @Test
+    void aggregateEmpty() throws IOException {
+        Aggregate<String> aggregate = analyser().aggregate(Double::parseDouble, EnumSet.allOf(Statistic.class));
+
+        assertEquals(0, aggregate.getCount());
+        assertTrue(Double.isNaN(aggregate.getMean()));
+        assertNull(aggregate.getMinElement());
+    }
+
+    @Test
+    void topN() throws IOException {
+        String[] data = {"5", "1", "3", "1.0", "9", "7", "3.0", "0"};
+
+        assertEquals(Arrays.asList("0", "1", "1.0", "3"),
+                analyser(data).topN(Double::parseDouble, 4, DataAnalyser.Order.ASCENDING));
+        assertEquals(Arrays.asList("9", "7", "5", "3", "3.0"),
+                analyser(data).topN(Double::parseDouble, 5, DataAnalyser.Order.DESCENDING));
+        assertEquals(8, analyser(data).topN(Double::parseDouble, 100, DataAnalyser.Order.ASCENDING).size());
+        assertTrue(analyser(data).topN(Double::parseDouble, 0, DataAnalyser.Order.ASCENDING).isEmpty());
+        assertEquals(8, analyser(data).topN(Double::parseDouble, Integer.MAX_VALUE, DataAnalyser.Order.ASCENDING).size());
+    }
+
+    @Test
+    void topNPutsNaNLast() throws IOException {
+        String[] data = {"NaN", "1", "3", "NaN", "2"};
+
+        assertEquals(Arrays.asList("1", "2", "3", "NaN"),
+                analyser(data).topN(Double::parseDouble, 4, DataAnalyser.Order.ASCENDING));
+        assertEquals(Arrays.asList("3", "2", "1", "NaN"),
+                analyser(data).topN(Double::parseDouble, 4, DataAnalyser.Order.DESCENDING));
+    }
+
+}
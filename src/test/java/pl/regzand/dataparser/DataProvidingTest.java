@@ -3,6 +3,7 @@ package pl.regzand.dataparser;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -72,4 +73,87 @@ class DataProvidingTest {
 
     }
 
+    @Test
+    void prefetchingDataProvidingTest() {
+
+        // ==============================================================================
+        // === PREPARATION
+        // ==============================================================================
+
+        // create fetcher
+        DataFetcher<String> fetcher = new DataFetcher<String>() {
+
+            private String[] data = new String[]{"A", "B", "C", "D", "E", "F", "G"};
+
+            private int pointer = 0;
+
+            @Override
+            public Collection<String> fetch() throws IOException {
+                pointer += 3;
+                if(pointer-3 >= data.length)
+                    return new ArrayList<>();
+                return Arrays.asList(Arrays.copyOfRange(data, pointer-3, Math.min(pointer, data.length)));
+            }
+        };
+
+        // ==============================================================================
+        // === TESTS
+        // ==============================================================================
+
+        try (PrefetchingDataProvider<String> provider = new PrefetchingDataProvider<>(fetcher, 2)) {
+
+            assertEquals(Arrays.asList("A", "B", "C", "D", "E", "F", "G"), provider.getAll());
+
+            assertFalse(provider.hasNext());
+
+        } catch (IOException e) {
+            fail(e.getMessage());
+        }
+
+    }
+
+    @Test
+    void prefetchingDataProvidingFailureTest() {
+
+        // fetcher that fails on second block
+        DataFetcher<String> fetcher = new DataFetcher<String>() {
+
+            private int calls = 0;
+
+            @Override
+            public Collection<String> fetch() throws IOException {
+                if (calls++ == 0)
+                    return Arrays.asList("A", "B");
+                throw new IOException("broken");
+            }
+        };
+
+        try (PrefetchingDataProvider<String> provider = new PrefetchingDataProvider<>(fetcher, 4)) {
+
+            assertEquals("A", provider.next());
+            assertEquals("B", provider.next());
+            assertThrows(IOException.class, provider::hasNext);
+
+        } catch (IOException e) {
+            fail(e.getMessage());
+        }
+
+    }
+
+    @Test
+    void prefetchingDataProvidingErrorTest() {
+
+        // fetcher that fails with error, not exception
+        DataFetcher<String> fetcher = () -> {
+            throw new AssertionError("broken");
+        };
+
+        try (PrefetchingDataProvider<String> provider = new PrefetchingDataProvider<>(fetcher, 4)) {
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThrows(AssertionError.class, provider::hasNext));
+
+        }
+
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,188 @@
+package pl.regzand.dataparser;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpCacheTest {
+
+    private HttpServer server;
+
+    private volatile String version = "1";
+
+    private final AtomicInteger full = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    private Path directory;
+
+    private ApiConnector connector;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+        // "etag" responds with ETag, "modified" with Last-Modified, "plain" without validators
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            String etag = "\"v" + version + "\"";
+            String lastModified = "Wed, 0" + version + " Jan 2018 12:15:00 GMT";
+
+            if (path.endsWith("etag")) {
+                exchange.getResponseHeaders().set("ETag", etag);
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+            } else if (path.endsWith("modified")) {
+                exchange.getResponseHeaders().set("Last-Modified", lastModified);
+                if (lastModified.equals(exchange.getRequestHeaders().getFirst("If-Modified-Since"))) {
+                    notModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+            }
+
+            full.incrementAndGet();
+            StringBuilder padding = new StringBuilder();
+            if (path.startsWith("/large"))
+                for (int i = 0; i < 100_000; i++)
+                    padding.append(' ');
+
+            byte[] body = ("{\"path\": \"" + path + "\", \"version\": " + version + padding + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+
+        server.start();
+
+        directory = Files.createTempDirectory("http-cache");
+        connector = new ApiConnector("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        connector.setHttpCache(new HttpCache(directory));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.stop(0);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private String read(String apiUrl) throws IOException {
+        try (InputStream stream = connector.makeRequest(apiUrl)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[16];
+            int n;
+            while ((n = stream.read(buffer)) != -1)
+                out.write(buffer, 0, n);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void notModifiedResponsesAreServedFromDisk() throws IOException {
+        for (String apiUrl : new String[]{"etag", "modified"}) {
+            String first = read(apiUrl);
+            assertEquals(first, read(apiUrl));
+            assertEquals(first, read(apiUrl));
+        }
+
+        assertEquals(2, full.get());
+        assertEquals(4, notModified.get());
+        assertEquals(4, connector.getHttpCache().getRevalidatedCount());
+
+        // changed responses are downloaded and stored again
+        version = "2";
+        assertTrue(read("etag").contains("\"version\": 2"));
+        assertTrue(read("etag").contains("\"version\": 2"));
+        assertEquals(3, full.get());
+        assertEquals(5, notModified.get());
+    }
+
+    @Test
+    void onlyCompleteResponsesWithValidatorsAreStored() throws IOException {
+        read("plain");
+        read("plain");
+        assertEquals(2, full.get());
+
+        // closed after first byte, rest is drained on close so it is still complete
+        try (InputStream stream = connector.makeRequest("etag")) {
+            assertEquals('{', stream.read());
+        }
+        assertEquals(1, connector.getHttpCache().getStoredCount());
+        assertTrue(read("etag").startsWith("{\"path\""));
+        assertEquals(1, notModified.get());
+
+        // the same for bodies larger than what is drained without cache
+        try (InputStream stream = connector.makeRequest("large/etag")) {
+            assertEquals('{', stream.read());
+        }
+        assertEquals(2, connector.getHttpCache().getStoredCount());
+        assertTrue(read("large/etag").length() > 100_000);
+        assertEquals(2, notModified.get());
+    }
+
+    @Test
+    void failureOfStoringDoesNotFailResponse() throws IOException {
+        try (InputStream stream = connector.makeRequest("etag")) {
+            assertEquals('{', stream.read());
+
+            // temporary file disappears, so it can't be moved to cache
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(path -> path.toFile().delete());
+            }
+
+            byte[] rest = new byte[1024];
+            assertTrue(stream.read(rest) > 0);
+            while (stream.read(rest) != -1) ;
+        }
+
+        assertEquals(0, connector.getHttpCache().getStoredCount());
+        assertTrue(read("etag").startsWith("{\"path\""));
+        assertEquals(0, notModified.get());
+    }
+
+    @Test
+    void leastRecentlyUsedResponsesAreEvicted() throws IOException, InterruptedException {
+        // room for two bodies
+        connector.setHttpCache(new HttpCache(directory, 2 * read("plain").length() + 10));
+
+        // apart, so that times of last use differ
+        for (String apiUrl : new String[]{"a/etag", "b/etag", "a/etag", "c/etag"}) {
+            read(apiUrl);
+            Thread.sleep(20);
+        }
+
+        assertEquals(1, connector.getHttpCache().getEvictedCount());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.filter(path -> path.toString().endsWith(".body")).count());
+        }
+
+        // "a" was used after "b", so it is kept
+        read("a/etag");
+        read("b/etag");
+        assertEquals(2, notModified.get());
+        assertEquals(5, full.get());
+    }
+
+}
@@ -0,0 +1,56 @@
+package pl.regzand.dataparser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    @Test
+    void rateIsNotExceeded() {
+        RateLimiter limiter = new RateLimiter(100, 10);
+
+        // burst and then 100 more permits from several threads, that should take about a second
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(CompletableFuture.runAsync(() -> {
+                try {
+                    for (int i = 0; i < 110 / 4 + 1; i++)
+                        limiter.acquire();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        threads.forEach(CompletableFuture::join);
+        long elapsed = System.nanoTime() - start;
+
+        // 112 permits, 10 of them from burst
+        assertTrue(elapsed >= 1_010_000_000L, "elapsed " + elapsed);
+        assertTrue(elapsed < 1_500_000_000L, "elapsed " + elapsed);
+        assertEquals(112, limiter.getAcquiredCount());
+        assertTrue(limiter.getDelayedCount() >= 100);
+        assertTrue(limiter.getTotalWaitNanos() > 0);
+    }
+
+    @Test
+    void burstIsAvailableAfterIdle() throws Exception {
+        RateLimiter limiter = new RateLimiter(1, 5);
+
+        for (int i = 0; i < 5; i++)
+            assertEquals(0, limiter.acquire());
+        assertEquals(0, limiter.getDelayedCount());
+
+        limiter.setRate(1000, 5);
+        Thread.sleep(20);
+        for (int i = 0; i < 5; i++)
+            assertEquals(0, limiter.acquire());
+        assertTrue(limiter.acquire() > 0);
+    }
+
+}
@@ -0,0 +1,80 @@
+package pl.regzand.dataparser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallsShareResult() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        // first call blocks until all others join it
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return flight.execute("key", () -> {
+                        calls.incrementAndGet();
+                        try {
+                            release.await();
+                        } catch (InterruptedException ignored) {
+                        }
+                        return "result";
+                    });
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+
+        while (calls.get() == 0)
+            Thread.sleep(1);
+        CompletableFuture<String> async = flight.executeAsync("key", () -> CompletableFuture.completedFuture("other"));
+        while (flight.getSharedCount() < 8)
+            Thread.sleep(1);
+
+        release.countDown();
+        for (CompletableFuture<String> result : results)
+            assertEquals("result", result.get());
+        assertEquals("result", async.get());
+
+        assertEquals(1, calls.get());
+        assertEquals(1, flight.getExecutedCount());
+        assertEquals(8, flight.getSharedCount());
+
+        // completed calls are executed again
+        assertEquals("again", flight.execute("key", () -> "again"));
+        assertEquals(2, flight.getExecutedCount());
+    }
+
+    @Test
+    void failuresAreSharedAndCancellationIsNot() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> request = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.executeAsync("key", () -> request);
+        CompletableFuture<String> second = flight.executeAsync("key", () -> CompletableFuture.completedFuture("other"));
+        CompletableFuture<String> third = flight.executeAsync("key", () -> CompletableFuture.completedFuture("other"));
+
+        first.cancel(false);
+        request.completeExceptionally(new IOException("failed"));
+
+        ExecutionException e = assertThrows(ExecutionException.class, second::get);
+        assertTrue(e.getCause() instanceof IOException);
+        assertThrows(ExecutionException.class, third::get);
+        assertEquals(2, flight.getSharedCount());
+    }
+
+}
@@ -0,0 +1,98 @@
+package pl.regzand.dataparser;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.regzand.dataparser.exceptions.UnexpectedHttpStatusCodeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransportTest {
+
+    private HttpServer server;
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            boolean missing = exchange.getRequestURI().getPath().endsWith("missing");
+            byte[] body = (missing ? "Not Found" : "[{\"path\": \"" + exchange.getRequestURI().getPath() + "\"}]").getBytes(StandardCharsets.UTF_8);
+
+            exchange.sendResponseHeaders(missing ? 404 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        directory = Files.createTempDirectory("recordings");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.stop(0);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static String read(InputStream stream) throws IOException {
+        try (InputStream in = stream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) != -1)
+                out.write(buffer, 0, n);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void recordedResponsesAreReplayed() throws IOException {
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+        // record responses
+        ApiConnector recording = new ApiConnector(baseUrl);
+        RecordingTransport recorder = new RecordingTransport(new HttpTransport(), directory);
+        recording.setTransport(recorder);
+
+        String first = read(recording.makeRequest("first"));
+        String second = read(recording.makeRequest("second"));
+        assertThrows(UnexpectedHttpStatusCodeException.class, () -> recording.makeRequest("missing"));
+        assertEquals(3, recorder.getRecordedCount());
+
+        // replay them without server
+        server.stop(0);
+        ApiConnector replaying = new ApiConnector(baseUrl);
+        ReplayTransport replay = new ReplayTransport(directory);
+        replaying.setTransport(replay);
+        RequestStatistics statistics = new RequestStatistics();
+        replaying.setRequestListener(statistics);
+
+        assertEquals(first, read(replaying.makeRequest("first")));
+        assertEquals(second, read(replaying.makeRequest("second")));
+        UnexpectedHttpStatusCodeException e = assertThrows(UnexpectedHttpStatusCodeException.class, () -> replaying.makeRequest("missing"));
+        assertEquals(404, e.getCode());
+        assertEquals(3, replay.getReplayedCount());
+
+        // responses that weren't recorded are not retried
+        assertThrows(FileNotFoundException.class, () -> replaying.makeRequest("third"));
+        assertEquals(4, statistics.getAttemptCount());
+    }
+
+}
@@ -0,0 +1,83 @@
+package pl.regzand.dataparser.events;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import pl.regzand.dataparser.DataAnalyser;
+import pl.regzand.dataparser.DataProvider;
+import pl.regzand.dataparser.exceptions.UnexpectedHttpStatusCodeException;
+import pl.regzand.dataparser.json.JSONConnector;
+import pl.regzand.dataparser.json.JSONSingleFetcher;
+import pl.regzand.nbpdata.data.FakeNBPServer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventsTest {
+
+    @Test
+    void eventsAreDisabledByDefault() {
+        assertNull(Events.beginAnalysis("average"));
+        assertNull(Events.beginFetch("fetcher"));
+    }
+
+    @Test
+    void defaultConfigurationDoesNotRecordEvents() throws Exception {
+        try (Recording recording = new Recording(Configuration.getConfiguration("default"))) {
+            recording.start();
+            assertNull(Events.beginAnalysis("average"));
+            assertNull(Events.beginFetch("fetcher"));
+            recording.stop();
+        }
+    }
+
+    @Test
+    void configurationRecordsRequestsParsingFetchingAndAnalysis() throws Exception {
+        Path file = Files.createTempFile("nbpdata", ".jfr");
+
+        try (FakeNBPServer server = new FakeNBPServer(0);
+             Recording recording = new Recording(Configuration.create(Paths.get("jfr", "nbpdata.jfc")))) {
+            JSONConnector connector = new JSONConnector(server.getBaseUrl());
+
+            recording.start();
+            new DataAnalyser<>(new DataProvider<>(new JSONSingleFetcher(connector, "cenyzlota/2018-01-02/2018-01-05", null)))
+                    .average(price -> price.getDouble("cena"));
+            assertThrows(UnexpectedHttpStatusCodeException.class, () -> connector.makeJSONObjectRequest("cenyzlota/2018-01-06"));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        List<RecordedEvent> requests = ofType(events, "pl.regzand.nbpdata.HttpRequest");
+        assertEquals(2, requests.size());
+        assertEquals(200, requests.get(0).getInt("status"));
+        assertTrue(requests.get(0).getLong("bytes") > 0);
+        assertEquals(404, requests.get(1).getInt("status"));
+        assertNotNull(requests.get(1).getString("error"));
+
+        List<RecordedEvent> parses = ofType(events, "pl.regzand.nbpdata.JSONParse");
+        assertEquals(1, parses.size());
+        assertEquals("cenyzlota/2018-01-02/2018-01-05", parses.get(0).getString("url"));
+
+        assertEquals(4, ofType(events, "pl.regzand.nbpdata.Fetch").stream().mapToInt(e -> e.getInt("records")).sum());
+        assertEquals("average", ofType(events, "pl.regzand.nbpdata.Analysis").get(0).getString("operation"));
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                .collect(Collectors.toList());
+    }
+
+}
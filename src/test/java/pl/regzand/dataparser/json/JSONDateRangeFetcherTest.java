@@ -0,0 +1,127 @@
+package pl.regzand.dataparser.json;
+
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.regzand.dataparser.AdaptiveConcurrencyLimit;
+import pl.regzand.dataparser.DataProvider;
+import pl.regzand.dataparser.exceptions.UnexpectedHttpStatusCodeException;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JSONDateRangeFetcherTest {
+
+    private HttpServer server;
+
+    private JSONConnector connector;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+
+        // responds with one entry per window, earlier windows respond slower
+        server.createContext("/range/", exchange -> {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String from = path[2];
+            int month = Integer.parseInt(from.substring(5, 7));
+
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep((12 - month) * 20);
+            } catch (InterruptedException ignored) {
+            } finally {
+                active.decrementAndGet();
+            }
+
+            byte[] body = ("[{\"from\": \"" + from + "\"}]").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+
+        // second window fails fast, first one hangs
+        server.createContext("/failing/", exchange -> {
+            String from = exchange.getRequestURI().getPath().split("/")[2];
+
+            if (from.endsWith("01-01")) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException ignored) {
+                }
+            }
+
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+
+        server.start();
+        connector = new JSONConnector("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void parallelFetchingKeepsOrder() throws Exception {
+        Date start = new GregorianCalendar(2017, 0, 1).getTime();
+        Date end = new GregorianCalendar(2017, 11, 31).getTime();
+
+        JSONDateRangeFetcher serial = new JSONDateRangeFetcher(connector, start, end, Calendar.MONTH, 1, "range/%tF/%tF", true, null);
+        JSONDateRangeFetcher parallel = new JSONDateRangeFetcher(connector, start, end, Calendar.MONTH, 1, "range/%tF/%tF", true, null);
+        parallel.setParallelism(4);
+
+        List<JSONObject> expected = new DataProvider<>(serial).getAll();
+        List<JSONObject> actual = new DataProvider<>(parallel).getAll();
+
+        assertEquals(6, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals(expected.get(i).getString("from"), actual.get(i).getString("from"));
+    }
+
+    @Test
+    void parallelFetchingFollowsConcurrencyLimitOfConnector() throws Exception {
+        Date start = new GregorianCalendar(2017, 0, 1).getTime();
+        Date end = new GregorianCalendar(2017, 11, 31).getTime();
+
+        connector.setConcurrencyLimit(new AdaptiveConcurrencyLimit(1, 1, 1, 100));
+        JSONDateRangeFetcher fetcher = new JSONDateRangeFetcher(connector, start, end, Calendar.MONTH, 1, "range/%tF/%tF", true, null);
+        fetcher.setParallelism(4);
+
+        assertEquals(6, new DataProvider<>(fetcher).getAll().size());
+        assertEquals(1, maxActive.get());
+    }
+
+    @Test
+    void parallelFetchingFailsFast() {
+        Date start = new GregorianCalendar(2017, 0, 1).getTime();
+        Date end = new GregorianCalendar(2017, 11, 31).getTime();
+
+        JSONDateRangeFetcher fetcher = new JSONDateRangeFetcher(connector, start, end, Calendar.MONTH, 1, "failing/%tF/%tF", true, null);
+        fetcher.setParallelism(4);
+
+        long begin = System.nanoTime();
+        assertThrows(UnexpectedHttpStatusCodeException.class, fetcher::fetch);
+        assertTrue(System.nanoTime() - begin < 4_000_000_000L);
+    }
+
+}
@@ -0,0 +1,80 @@
+package pl.regzand.dataparser.json;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JSONPullParserTest {
+
+    private static final String TABLES = "[{\"table\":\"A\",\"no\":\"001/A/NBP/2018\",\"effectiveDate\":\"2018-01-02\",\"rates\":["
+            + "{\"currency\":\"bat (Tajlandia)\",\"code\":\"THB\",\"mid\":0.1069},"
+            + "{\"currency\":\"dolar ameryka\\u0144ski\",\"code\":\"USD\",\"mid\":3.4616},"
+            + "{\"currency\":\"jen \\\"japo\\u0144ski\\\"\",\"code\":\"JPY\",\"mid\":0.030788,\"flags\":[true,false,null,-1.5e-3,12]}"
+            + "]}]";
+
+    @Test
+    void readValue() throws Exception {
+        JSONPullParser parser = new JSONPullParser(new StringReader(TABLES));
+
+        assertTrue(parser.seek(null));
+        JSONArray expected = new JSONArray(TABLES);
+        JSONArray actual = (JSONArray) parser.readValue();
+
+        assertTrue(expected.similar(actual));
+        assertEquals(JSONPullParser.Event.END_DOCUMENT, parser.next());
+    }
+
+    @Test
+    void seek() throws Exception {
+        JSONPullParser parser = new JSONPullParser(new StringReader(TABLES));
+        assertTrue(parser.seek("/0/rates/1/mid"));
+        assertEquals(JSONPullParser.Event.NUMBER, parser.current());
+        assertEquals(3.4616, parser.getDouble());
+
+        parser = new JSONPullParser(new StringReader(TABLES));
+        assertTrue(parser.seek("/0/effectiveDate"));
+        assertEquals("2018-01-02", parser.getString());
+
+        parser = new JSONPullParser(new StringReader(TABLES));
+        assertFalse(parser.seek("/0/missing"));
+
+        parser = new JSONPullParser(new StringReader(TABLES));
+        assertFalse(parser.seek("/1/rates"));
+    }
+
+    @Test
+    void numbers() throws Exception {
+        String[] numbers = {"0.1069", "3.4616", "-4.12345678", "0.030788", "12", "-1.5e-3", "1234567890.123456789", "1E5", "-0"};
+
+        for (String number : numbers) {
+            JSONPullParser parser = new JSONPullParser(new StringReader("[" + number + "]"));
+            parser.next();
+            parser.next();
+            assertEquals(Double.parseDouble(number), parser.getDouble(), number);
+        }
+    }
+
+    @Test
+    void arrayStream() throws Exception {
+        JSONArrayStream<JSONObject> stream = new JSONArrayStream<>(
+                new ByteArrayInputStream(TABLES.getBytes(StandardCharsets.UTF_8)),
+                "/0/rates",
+                JSONPullParser::readObject
+        );
+
+        assertTrue(stream.hasNext());
+        assertEquals("THB", stream.next().getString("code"));
+        assertEquals("USD", stream.next().getString("code"));
+        assertEquals(0.030788, stream.next().getDouble("mid"));
+        assertFalse(stream.hasNext());
+
+        stream.close();
+    }
+
+}
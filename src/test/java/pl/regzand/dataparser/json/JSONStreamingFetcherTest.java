@@ -0,0 +1,58 @@
+package pl.regzand.dataparser.json;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JSONStreamingFetcherTest {
+
+    private HttpServer server;
+
+    private JSONConnector connector;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+        // "broken" responds with array that is malformed after two elements
+        server.createContext("/", exchange -> {
+            byte[] body = (exchange.getRequestURI().getPath().endsWith("broken") ? "[1, 2, x]" : "[3]").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+
+        server.start();
+        connector = new JSONConnector("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void responseIsClosedWhenReadingFails() throws IOException {
+        try (JSONStreamingFetcher<Object> fetcher = new JSONStreamingFetcher<>(connector, Arrays.asList("broken", "good").iterator(), null, JSONPullParser::readValue)) {
+            assertEquals(Collections.singletonList(1), fetcher.fetch());
+            assertEquals(Collections.singletonList(2), fetcher.fetch());
+            assertThrows(RuntimeException.class, fetcher::fetch);
+
+            // broken response was dropped, so fetching continues with the next one
+            assertEquals(Collections.singletonList(3), fetcher.fetch());
+            assertTrue(fetcher.fetch().isEmpty());
+        }
+    }
+
+}
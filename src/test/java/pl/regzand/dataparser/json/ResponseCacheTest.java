@@ -0,0 +1,107 @@
+package pl.regzand.dataparser.json;
+
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private HttpServer server;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private JSONConnector connector;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+        // responds with 100 bytes long array
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+
+            StringBuilder body = new StringBuilder("[\"").append(exchange.getRequestURI().getPath());
+            while (body.length() < 98)
+                body.append(' ');
+            byte[] bytes = body.append("\"]").toString().getBytes(StandardCharsets.UTF_8);
+
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+
+        server.start();
+        connector = new JSONConnector("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void cachedResponsesAreReused() throws Exception {
+        ResponseCache cache = new ResponseCache(1000, (apiUrl, now) -> apiUrl.startsWith("past") ? CachePolicy.FOREVER : CachePolicy.NO_CACHE);
+        connector.setCache(cache);
+
+        JSONArray first = connector.makeJSONArrayRequest("past/1");
+        assertSame(first, connector.makeJSONArrayRequest("past/1"));
+        assertSame(first, connector.makeJSONArrayRequestAsync("past/1").join());
+        assertEquals(1, requests.get());
+
+        connector.makeJSONArrayRequest("today");
+        connector.makeJSONArrayRequest("today");
+        assertEquals(3, requests.get());
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(100, cache.getSize());
+    }
+
+    @Test
+    void leastRecentlyUsedAreEvicted() throws Exception {
+        ResponseCache cache = new ResponseCache(300, (apiUrl, now) -> CachePolicy.FOREVER);
+        connector.setCache(cache);
+
+        connector.makeJSONArrayRequest("1");
+        connector.makeJSONArrayRequest("2");
+        connector.makeJSONArrayRequest("3");
+        connector.makeJSONArrayRequest("1");
+        connector.makeJSONArrayRequest("4");
+        assertEquals(4, requests.get());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(300, cache.getSize());
+
+        // "2" was the least recently used
+        connector.makeJSONArrayRequest("1");
+        connector.makeJSONArrayRequest("2");
+        assertEquals(5, requests.get());
+    }
+
+    @Test
+    void expiredResponsesAreRequestedAgain() throws Exception {
+        connector.setCache(new ResponseCache(1000, (apiUrl, now) -> 50));
+
+        connector.makeJSONArrayRequest("short");
+        connector.makeJSONArrayRequest("short");
+        Thread.sleep(100);
+        connector.makeJSONArrayRequest("short");
+        assertEquals(2, requests.get());
+
+        // responses of other type are not returned
+        assertThrows(Exception.class, () -> connector.makeJSONObjectRequest("short"));
+        assertNull(connector.getCache().get("short", JSONObject.class));
+    }
+
+}
@@ -0,0 +1,65 @@
+package pl.regzand.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    @Test
+    void bucketsCoverAllValues() {
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int index = Histogram.index(value);
+            assertTrue(value <= Histogram.upperBound(index), "value " + value);
+            assertTrue(index == 0 || value > Histogram.upperBound(index - 1), "value " + value);
+        }
+    }
+
+    @Test
+    void histogramReturnsPercentiles() {
+        Histogram histogram = new MetricsRegistry().histogram("latency.nanos");
+        for (int i = 1; i <= 1000; i++)
+            histogram.record(i * 1000L);
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500, histogram.getMean(), 1e-9);
+        assertEquals(1_000_000, histogram.getMax());
+
+        // percentiles are never underestimated, by at most 12.5%
+        assertTrue(histogram.getP50() >= 500_000 && histogram.getP50() <= 500_000 * 1.125);
+        assertTrue(histogram.getP99() >= 990_000 && histogram.getP99() <= 1_000_000);
+        assertEquals(1_000_000, histogram.getPercentile(1));
+    }
+
+    @Test
+    void registryKeepsMetricsByName() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        Counter counter = registry.counter("requests");
+        assertSame(counter, registry.counter("requests"));
+        counter.add(5);
+        counter.increment();
+
+        registry.gauge("ratio", () -> 0.25);
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("requests"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        registry.dump(new PrintStream(out, true));
+        assertTrue(out.toString().contains("requests"));
+        assertTrue(out.toString().contains("6"));
+        assertTrue(out.toString().contains("0.2500"));
+
+        // metrics are exposed over JMX, also those created later
+        registry.registerMBeans("pl.regzand.test");
+        registry.counter("later").increment();
+        assertEquals(6L, ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName("pl.regzand.test:type=Counter,name=\"requests\""), "Count"));
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName("pl.regzand.test:type=Counter,name=\"later\""), "Count"));
+        assertEquals(0.25, ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName("pl.regzand.test:type=Gauge,name=\"ratio\""), "Value"));
+    }
+
+}
@@ -0,0 +1,97 @@
+package pl.regzand.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfilerTest {
+
+    @AfterEach
+    void stopProfiler() {
+        Profiler profiler = Profiler.getActive();
+        if (profiler != null)
+            profiler.stop();
+    }
+
+    @Test
+    void phasesAreNotMeasuredWithoutProfiler() {
+        Profiler.Section section = Profiler.begin("parse");
+        assertSame(section, Profiler.begin("analysis"));
+        section.close();
+        assertNull(Profiler.getActive());
+    }
+
+    @Test
+    void nestedPhaseIsNotCountedToEnclosingOne() throws Exception {
+        Profiler profiler = Profiler.start();
+
+        try (Profiler.Section ignored = Profiler.begin("analysis")) {
+            Thread.sleep(20);
+            try (Profiler.Section nested = Profiler.begin("fetch")) {
+                Thread.sleep(100);
+            }
+        }
+        try (Profiler.Section ignored = Profiler.begin("fetch")) {
+            Thread.sleep(20);
+        }
+        profiler.stop();
+
+        assertNull(Profiler.getActive());
+        assertEquals(1, profiler.getPhaseCount("analysis"));
+        assertEquals(2, profiler.getPhaseCount("fetch"));
+        assertTrue(profiler.getPhaseNanos("fetch") >= 120_000_000);
+        assertTrue(profiler.getPhaseNanos("analysis") >= 20_000_000);
+        assertTrue(profiler.getPhaseNanos("analysis") < 100_000_000);
+    }
+
+    @Test
+    void phasesOfOtherThreadsAreIgnored() throws Exception {
+        Profiler profiler = Profiler.start();
+
+        Thread thread = new Thread(() -> Profiler.begin("parse").close());
+        thread.start();
+        thread.join();
+        profiler.stop();
+
+        assertEquals(0, profiler.getPhaseCount("parse"));
+    }
+
+    @Test
+    void reportContainsPhasesAndRequests() throws Exception {
+        Profiler profiler = Profiler.start();
+
+        try (Profiler.Section ignored = Profiler.begin("parse")) {
+            long start = System.nanoTime();
+            try (InputStream body = profiler.requestSucceeded("http://localhost/a", 1, start, new ByteArrayInputStream(new byte[100]))) {
+                while (body.read(new byte[64]) >= 0) {
+                    // read whole body
+                }
+            }
+            profiler.requestFailed("http://localhost/b", 2, start, "HTTP 503");
+        }
+        profiler.stop();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        profiler.report(new PrintStream(output, true));
+        String report = output.toString();
+
+        assertTrue(report.contains("jvm startup"));
+        assertTrue(report.contains(Profiler.ROOT_PHASE));
+        assertTrue(report.contains("parse"));
+        assertTrue(report.matches("(?s).* 100 +1 +http://localhost/a\\R.*"), report);
+        assertTrue(report.contains("http://localhost/b (HTTP 503)"));
+    }
+
+    @Test
+    void onlyOneProfilerRuns() {
+        Profiler.start();
+        assertThrows(IllegalStateException.class, Profiler::start);
+    }
+
+}
@@ -0,0 +1,45 @@
+package pl.regzand.nbpdata;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchTest {
+
+    @Test
+    void outputIsPrintedInOrderOfLines() throws Exception {
+        StringBuilder commands = new StringBuilder("# comment\n\n");
+        for (int i = 0; i < 50; i++)
+            commands.append(i % 2 == 0 ? "gold price not-a-date" : "currency").append('\n');
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new Batch(4).execute(new BufferedReader(new StringReader(commands.toString())), new PrintStream(output, true));
+
+        String[] lines = output.toString().split("\\R");
+        int position = 0;
+        for (int i = 0; i < 50; i++) {
+            String expected = i % 2 == 0 ? "Wrong date format" : "nbpdata currency";
+            while (position < lines.length && !lines[position].contains(expected))
+                position++;
+            assertTrue(position < lines.length, "output of command " + i + " is missing or out of order");
+            position++;
+        }
+        assertFalse(output.toString().contains("comment"));
+    }
+
+    @Test
+    void commandsAreNotProfiled() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new Batch(2).execute(new BufferedReader(new StringReader("gold price not-a-date --profile\n")), new PrintStream(output, true));
+
+        assertTrue(output.toString().contains("Option --profile is ignored"));
+        assertTrue(output.toString().contains("Wrong date format"));
+        assertFalse(output.toString().contains("Profile:"));
+    }
+
+}
@@ -0,0 +1,82 @@
+package pl.regzand.nbpdata.daemon;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DaemonTest {
+
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("nbpdata-daemon");
+        file = directory.resolve("daemon");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.delete(directory);
+    }
+
+    @Test
+    void clientsExecuteCommandsInDaemon() throws Exception {
+        try (Daemon daemon = new Daemon(file)) {
+            DaemonClient client = new DaemonClient(file);
+
+            ByteArrayOutputStream gold = new ByteArrayOutputStream();
+            client.execute(new String[]{"gold"}, gold);
+            assertTrue(gold.toString("UTF-8").contains("nbpdata gold"));
+
+            ByteArrayOutputStream price = new ByteArrayOutputStream();
+            client.execute(new String[]{"gold", "price", "not-a-date"}, price);
+            assertTrue(price.toString("UTF-8").contains("Wrong date format"));
+
+            client.stop();
+            daemon.awaitStop();
+        }
+
+        assertFalse(Files.exists(file));
+        assertThrows(IOException.class, () -> new DaemonClient(file).execute(new String[0], new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void connectionsWithoutTokenAreRejected() throws Exception {
+        try (Daemon daemon = new Daemon(file);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+
+            OutputStream out = socket.getOutputStream();
+            out.write("wrong\n1\ngold\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void idleConnectionsAreClosed() throws Exception {
+        try (Daemon daemon = new Daemon(file);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+
+            // nothing is sent, daemon gives up after a few seconds
+            socket.setSoTimeout(30000);
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+}
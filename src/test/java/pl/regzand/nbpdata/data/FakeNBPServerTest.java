@@ -0,0 +1,90 @@
+package pl.regzand.nbpdata.data;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.regzand.dataparser.exceptions.UnexpectedHttpStatusCodeException;
+import pl.regzand.utils.EpochDays;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FakeNBPServerTest {
+
+    private FakeNBPServer server;
+
+    private NBPConnector connector;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new FakeNBPServer(0);
+        connector = new NBPConnector(server.getBaseUrl());
+        connector.setRateLimiter(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void serverAnswersLikeNBPApi() throws IOException {
+        // table A on every working day
+        JSONArray tables = connector.makeJSONArrayRequest("exchangerates/tables/a/2018-01-01/2018-01-31");
+        assertEquals(23, tables.length());
+        assertEquals("2018-01-01", tables.getJSONObject(0).getString("effectiveDate"));
+        assertEquals("001/A/NBP/2018", tables.getJSONObject(0).getString("no"));
+        assertTrue(tables.getJSONObject(0).getJSONArray("rates").getJSONObject(0).getDouble("mid") > 0);
+
+        // table C with bid and ask
+        JSONObject rate = connector.makeJSONArrayRequest("exchangerates/tables/c/2018-01-10").getJSONObject(0).getJSONArray("rates").getJSONObject(0);
+        assertTrue(rate.getDouble("bid") < rate.getDouble("ask"));
+
+        // rates of single currency and gold prices
+        JSONObject usd = connector.makeJSONObjectRequest("exchangerates/rates/a/usd/2018-01-08/2018-01-12");
+        assertEquals("USD", usd.getString("code"));
+        assertEquals(5, usd.getJSONArray("rates").length());
+        assertEquals(5, connector.makeJSONArrayRequest("cenyzlota/2018-01-06/2018-01-14").length());
+
+        // no data on weekends, limit of range
+        UnexpectedHttpStatusCodeException e = assertThrows(UnexpectedHttpStatusCodeException.class, () -> connector.makeJSONArrayRequest("cenyzlota/2018-01-06"));
+        assertEquals(404, e.getCode());
+        e = assertThrows(UnexpectedHttpStatusCodeException.class, () -> connector.makeJSONArrayRequest("exchangerates/tables/a/2018-01-01/2018-06-01"));
+        assertEquals(400, e.getCode());
+    }
+
+    @Test
+    void dataIsDeterministic() throws IOException {
+        String url = "exchangerates/rates/a/eur/2017-01-01/2017-03-01";
+        JSONObject first = connector.makeJSONObjectRequest(url);
+
+        try (FakeNBPServer other = new FakeNBPServer(0)) {
+            JSONObject second = new NBPConnector(other.getBaseUrl()).makeJSONObjectRequest(url);
+            assertEquals(first.toString(), second.toString());
+        }
+    }
+
+    @Test
+    void storeLoadsYearFromServer() throws IOException {
+        Path directory = Files.createTempDirectory("rate-store");
+        try {
+            RateSeries series = new RateStore(directory, connector).load(RateStore.Table.A, EpochDays.of(2017, 1, 1), EpochDays.of(2017, 12, 31));
+
+            // 260 working days and 12 currencies
+            assertEquals(260 * 12, series.size());
+            assertEquals(5, server.getRequestCount());
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package pl.regzand.nbpdata.data;
+
+import org.junit.jupiter.api.Test;
+import pl.regzand.dataparser.json.CachePolicy;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NBPCachePolicyTest {
+
+    private static final NBPCachePolicy POLICY = new NBPCachePolicy();
+
+    private static long warsaw(int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, ZoneId.of("Europe/Warsaw")).toInstant().toEpochMilli();
+    }
+
+    @Test
+    void pastDatesNeverExpire() {
+        long now = warsaw(2018, 1, 10, 9, 0);
+
+        assertEquals(CachePolicy.FOREVER, POLICY.getTimeToLive("exchangerates/tables/c/2018-01-09", now));
+        assertEquals(CachePolicy.FOREVER, POLICY.getTimeToLive("exchangerates/rates/a/USD/2017-10-01/2018-01-09", now));
+    }
+
+    @Test
+    void openEndedExpireAtPublication() {
+        // wednesday before publication
+        long now = warsaw(2018, 1, 10, 12, 0);
+        assertEquals(15 * 60 * 1000, POLICY.getTimeToLive("exchangerates/tables/a/2018-01-10", now));
+        assertEquals(15 * 60 * 1000, POLICY.getTimeToLive("exchangerates/rates/a/USD/2017-10-01/2018-01-10", now));
+        assertEquals(15 * 60 * 1000, POLICY.getTimeToLive("cenyzlota", now));
+
+        // table C was already published, next one is tomorrow
+        assertEquals(60 * 60 * 1000, POLICY.getTimeToLive("exchangerates/tables/c", now));
+        assertEquals(60 * 60 * 1000, POLICY.getTimeToLive("exchangerates/tables/c/today", now));
+
+        // friday evening
+        assertEquals(60 * 60 * 1000, POLICY.getTimeToLive("exchangerates/tables/a", warsaw(2018, 1, 12, 20, 0)));
+    }
+
+}
@@ -0,0 +1,61 @@
+package pl.regzand.nbpdata.data;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateSeriesTest {
+
+    private static RateSeries series() {
+        RateSeries series = new RateSeries();
+        for (int day = 0; day < 1000; day++) {
+            series.append("USD", day, 3.0 + day / 1000.0, Double.NaN, Double.NaN);
+            series.append("EUR", day, 4.0 + day / 1000.0, Double.NaN, Double.NaN);
+        }
+        series.append(new GoldPrice(1000, 150.5));
+        return series;
+    }
+
+    @Test
+    void append() {
+        RateSeries series = series();
+
+        assertEquals(2001, series.size());
+        assertEquals(3, series.getCurrencyCount());
+        assertEquals("EUR", series.getCode(1));
+        assertEquals(4.001, series.getMid(3));
+        assertTrue(Double.isNaN(series.getBid(3)));
+        assertEquals(RateSeries.GOLD, series.getCode(2000));
+
+        assertThrows(IllegalArgumentException.class, () -> series.append("USD", 999, 1, 1, 1));
+    }
+
+    @Test
+    void slice() {
+        RateSeries slice = series().slice(10, 19);
+
+        assertEquals(20, slice.size());
+        assertEquals(10, slice.getEpochDay(0));
+        assertEquals(19, slice.getEpochDay(19));
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.getEpochDay(20));
+        assertThrows(IllegalStateException.class, () -> slice.append("USD", 2000, 1, 1, 1));
+
+        assertEquals(0, series().slice(2000, 3000).size());
+        assertEquals(1, series().slice(1000, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    void filter() {
+        RateSeries usd = series().slice(100, 199).filter("USD");
+
+        assertEquals(100, usd.size());
+        assertEquals(1, usd.getCurrencyCount());
+
+        double[] sum = {0};
+        usd.forEach((currency, day, mid, bid, ask) -> sum[0] += mid);
+        assertEquals(100 * 3.0 + (100 + 199) * 50 / 1000.0, sum[0], 1e-9);
+
+        assertEquals(0, series().filter("GBP").size());
+    }
+
+}
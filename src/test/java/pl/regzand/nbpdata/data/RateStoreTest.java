@@ -0,0 +1,217 @@
+package pl.regzand.nbpdata.data;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.regzand.dataparser.json.JSONConnector;
+import pl.regzand.utils.EpochDays;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateStoreTest {
+
+    private HttpServer server;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger currencyRequests = new AtomicInteger();
+
+    // requests of table A wait until it is counted down, if set
+    private volatile CountDownLatch release;
+
+    private Path directory;
+
+    private JSONConnector connector;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+        // table A with two currencies for every working day, 404 if there is no working day in range
+        server.createContext("/exchangerates/tables/a/", exchange -> {
+            requests.incrementAndGet();
+
+            CountDownLatch latch = release;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            int from = EpochDays.parse(path[4]);
+            int to = EpochDays.parse(path[5]);
+
+            StringBuilder body = new StringBuilder("[");
+            for (int day = from; day <= to; day++) {
+                if (EpochDays.dayOfWeek(day) == 0 || EpochDays.dayOfWeek(day) == 6)
+                    continue;
+                if (body.length() > 1)
+                    body.append(',');
+                body.append("{\"table\":\"A\",\"effectiveDate\":\"").append(EpochDays.format(day)).append("\",\"rates\":[")
+                        .append("{\"code\":\"USD\",\"mid\":").append(3 + day % 100 / 100.0).append("},")
+                        .append("{\"code\":\"EUR\",\"mid\":").append(4 + day % 100 / 100.0).append("}]}");
+            }
+            body.append(']');
+
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            if (bytes.length == 2) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+
+        // rates of single currency of table A
+        server.createContext("/exchangerates/rates/a/", exchange -> {
+            currencyRequests.incrementAndGet();
+
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            int from = EpochDays.parse(path[5]);
+            int to = EpochDays.parse(path[6]);
+
+            StringBuilder body = new StringBuilder("{\"table\":\"A\",\"code\":\"" + path[4].toUpperCase() + "\",\"rates\":[");
+            for (int day = from; day <= to; day++) {
+                if (EpochDays.dayOfWeek(day) == 0 || EpochDays.dayOfWeek(day) == 6)
+                    continue;
+                if (body.charAt(body.length() - 1) == '}')
+                    body.append(',');
+                body.append("{\"effectiveDate\":\"").append(EpochDays.format(day)).append("\",\"mid\":").append(3 + day % 100 / 100.0).append('}');
+            }
+            body.append("]}");
+
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        connector = new JSONConnector("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        directory = Files.createTempDirectory("rate-store");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.stop(0);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void loadDownloadsOnlyMissingDays() throws IOException {
+        int from = EpochDays.of(2016, 11, 1);
+        int to = EpochDays.of(2017, 2, 28);
+
+        RateSeries first = new RateStore(directory, connector).load(RateStore.Table.A, from, to);
+        assertEquals(2, requests.get());
+        assertEquals(2 * 86, first.size());
+        assertEquals(from, first.getEpochDay(0));
+
+        // second store reads the same days from disk
+        RateSeries second = new RateStore(directory, connector).load(RateStore.Table.A, from, to);
+        assertEquals(2, requests.get());
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.getCode(i), second.getCode(i));
+            assertEquals(first.getEpochDay(i), second.getEpochDay(i));
+            assertEquals(first.getMid(i), second.getMid(i));
+        }
+
+        // only days around stored range are downloaded, days without data are remembered
+        RateStore store = new RateStore(directory, connector);
+        RateSeries wider = store.load(RateStore.Table.A, EpochDays.of(2016, 10, 29), EpochDays.of(2017, 3, 5));
+        assertEquals(4, requests.get());
+        assertEquals(2 * 90, wider.size());
+
+        assertEquals(2 * 22, store.load(RateStore.Table.A, EpochDays.of(2017, 1, 1), EpochDays.of(2017, 1, 31)).size());
+        assertEquals(0, store.load(RateStore.Table.A, EpochDays.of(2017, 3, 4), EpochDays.of(2017, 3, 5)).size());
+        assertEquals(4, requests.get());
+    }
+
+    @Test
+    void currenciesAreSynchronizedWithoutTables() throws IOException {
+        int from = EpochDays.of(2016, 11, 1);
+        int to = EpochDays.of(2017, 2, 28);
+
+        RateSeries first = new RateStore(directory, connector).load(RateStore.Table.A, "usd", from, to);
+        assertEquals(0, requests.get());
+        assertEquals(2, currencyRequests.get());
+        assertEquals(86, first.size());
+        assertEquals("USD", first.getCode(0));
+
+        // the same days are read from disk, and agree with table
+        RateStore store = new RateStore(directory, connector);
+        RateSeries second = store.load(RateStore.Table.A, "USD", from, to);
+        RateSeries table = store.load(RateStore.Table.A, from, to).filter("USD");
+        assertEquals(2, currencyRequests.get());
+        assertEquals(first.size(), second.size());
+        assertEquals(table.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(table.getEpochDay(i), second.getEpochDay(i));
+            assertEquals(table.getMid(i), second.getMid(i));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> store.load(RateStore.Table.A, "../a", from, to));
+    }
+
+    @Test
+    void dataIsDownloadedWhenStoreCantBeCreated() throws IOException {
+        // directory of store is a file
+        Path file = directory.resolve("file");
+        Files.createFile(file);
+
+        RateStore store = new RateStore(file, connector);
+        assertEquals(2 * 22, store.load(RateStore.Table.A, EpochDays.of(2017, 1, 1), EpochDays.of(2017, 1, 31)).size());
+        assertEquals(2 * 22, store.load(RateStore.Table.A, EpochDays.of(2017, 1, 1), EpochDays.of(2017, 1, 31)).size());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void tablesAreLoadedIndependently() throws Exception {
+        release = new CountDownLatch(1);
+        RateStore store = new RateStore(directory, connector);
+
+        CompletableFuture<RateSeries> table = CompletableFuture.supplyAsync(() -> {
+            try {
+                return store.load(RateStore.Table.A, EpochDays.of(2017, 1, 1), EpochDays.of(2017, 1, 31));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        while (requests.get() == 0)
+            Thread.sleep(10);
+
+        // gold prices are not served at all, so they are empty, but they don't wait for table A
+        assertEquals(0, store.load(RateStore.Table.GOLD, EpochDays.of(2017, 1, 1), EpochDays.of(2017, 1, 31)).size());
+        assertFalse(table.isDone());
+
+        release.countDown();
+        assertEquals(2 * 22, table.get().size());
+    }
+
+}
@@ -0,0 +1,86 @@
+package pl.regzand.nbpdata.data;
+
+import org.junit.jupiter.api.Test;
+import pl.regzand.dataparser.json.JSONArrayStream;
+import pl.regzand.dataparser.json.JSONElementParser;
+import pl.regzand.utils.EpochDays;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RatesParsingTest {
+
+    private static <T> JSONArrayStream<T> stream(String json, String jsonPointer, JSONElementParser<T> parser) throws IOException {
+        return new JSONArrayStream<>(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), jsonPointer, parser);
+    }
+
+    @Test
+    void midRateSeries() throws Exception {
+        String json = "{\"table\":\"A\",\"currency\":\"dolar amerykański\",\"code\":\"USD\",\"rates\":["
+                + "{\"no\":\"001/A/NBP/2018\",\"effectiveDate\":\"2018-01-02\",\"mid\":3.4616},"
+                + "{\"no\":\"002/A/NBP/2018\",\"effectiveDate\":\"2018-01-03\",\"mid\":3.4639}]}";
+
+        JSONArrayStream<MidRate> rates = stream(json, "/rates", MidRate.seriesParser("USD"));
+
+        MidRate first = rates.next();
+        assertEquals("USD", first.getCode());
+        assertEquals(EpochDays.of(2018, 1, 2), first.getEpochDay());
+        assertEquals(3.4616, first.getMid());
+
+        assertEquals(3.4639, rates.next().getMid());
+        assertFalse(rates.hasNext());
+    }
+
+    @Test
+    void midRateTables() throws Exception {
+        String json = "[{\"table\":\"A\",\"no\":\"001/A/NBP/2018\",\"effectiveDate\":\"2018-01-02\",\"rates\":["
+                + "{\"currency\":\"bat (Tajlandia)\",\"code\":\"THB\",\"mid\":0.1069},"
+                + "{\"currency\":\"dolar amerykański\",\"code\":\"USD\",\"mid\":3.4616}]},"
+                + "{\"table\":\"A\",\"no\":\"002/A/NBP/2018\",\"effectiveDate\":\"2018-01-03\",\"rates\":["
+                + "{\"currency\":\"bat (Tajlandia)\",\"code\":\"THB\",\"mid\":0.1071}]}]";
+
+        JSONArrayStream<List<MidRate>> tables = stream(json, null, MidRate.TABLE_PARSER);
+
+        List<MidRate> first = tables.next();
+        assertEquals(2, first.size());
+        assertEquals("USD", first.get(1).getCode());
+        assertEquals(EpochDays.of(2018, 1, 2), first.get(1).getEpochDay());
+
+        List<MidRate> second = tables.next();
+        assertEquals(1, second.size());
+        assertEquals(0.1071, second.get(0).getMid());
+        assertFalse(tables.hasNext());
+    }
+
+    @Test
+    void bidAskRates() throws Exception {
+        String json = "[{\"table\":\"C\",\"no\":\"001/C/NBP/2018\",\"tradingDate\":\"2017-12-29\",\"effectiveDate\":\"2018-01-02\",\"rates\":["
+                + "{\"currency\":\"dolar amerykański\",\"code\":\"USD\",\"bid\":3.4285,\"ask\":3.4977}]}]";
+
+        JSONArrayStream<BidAskRate> rates = stream(json, "/0/rates", BidAskRate.tableParser(EpochDays.of(2018, 1, 2)));
+
+        BidAskRate rate = rates.next();
+        assertEquals("USD", rate.getCode());
+        assertEquals(3.4285, rate.getBid());
+        assertEquals(3.4977, rate.getAsk());
+        assertFalse(rates.hasNext());
+    }
+
+    @Test
+    void goldPrices() throws Exception {
+        String json = "[{\"data\":\"2018-01-02\",\"cena\":135.71},{\"data\":\"2018-01-03\",\"cena\":136.13}]";
+
+        JSONArrayStream<GoldPrice> prices = stream(json, null, GoldPrice.PARSER);
+
+        GoldPrice price = prices.next();
+        assertEquals(EpochDays.of(2018, 1, 2), price.getEpochDay());
+        assertEquals(135.71, price.getPrice());
+        assertEquals(136.13, prices.next().getPrice());
+        assertFalse(prices.hasNext());
+    }
+
+}
@@ -0,0 +1,225 @@
+package pl.regzand.nbpdata.server;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.regzand.metrics.Counter;
+import pl.regzand.metrics.Gauge;
+import pl.regzand.metrics.MetricsRegistry;
+import pl.regzand.nbpdata.data.FakeNBPServer;
+import pl.regzand.nbpdata.data.NBPConnector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryServerTest {
+
+    private static FakeNBPServer api;
+    private static Path directory;
+
+    private QueryServer server;
+
+    @BeforeAll
+    static void startApi() throws IOException {
+        api = new FakeNBPServer(0);
+        directory = Files.createTempDirectory("nbpdata-server");
+
+        // commands use default connector, which has to be created by this test
+        System.setProperty("nbpdata.api", api.getBaseUrl());
+        System.setProperty("nbpdata.httpcache", directory.resolve("http").toString());
+        System.setProperty("nbpdata.store", directory.resolve("store").toString());
+        assertEquals(api.getBaseUrl(), NBPConnector.getDefault().getBaseUrl());
+    }
+
+    @AfterAll
+    static void stopApi() throws IOException {
+        api.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new QueryServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2, 4, 10000, 60000);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+        api.setLatency(0, 0);
+    }
+
+    @Test
+    void commandsAreAnsweredWithDataOfApi() throws IOException {
+        HttpURLConnection connection = open("/currency/price/USD/2017-06-13", "GET");
+
+        assertEquals(200, connection.getResponseCode());
+
+        JSONObject body = read(connection);
+        assertEquals("currency price USD 2017-06-13", body.getString("command"));
+        assertTrue(body.getJSONArray("output").getString(0).startsWith("Price of 1.00 USD according to NBP data from 2017-06-13 was"));
+    }
+
+    @Test
+    void argumentsWithSpacesDontShareResults() throws IOException {
+        assertEquals(400, open("/currency/price/USD%202017-06-14", "GET").getResponseCode());
+        assertEquals(200, open("/currency/price/USD/2017-06-14", "GET").getResponseCode());
+    }
+
+    @Test
+    void identicalConcurrentQueriesShareExecution() throws Exception {
+        api.setLatency(500, 0);
+        long before = api.getRequestCount();
+
+        CompletableFuture<String> first = readAsync(server, "/currency/price/USD/2017-06-15");
+        CompletableFuture<String> second = readAsync(server, "/currency/price/USD/2017-06-15");
+
+        assertEquals(first.get(), second.get());
+        assertEquals(1, ((Gauge) MetricsRegistry.getDefault().getMetrics().get("server.coalesced")).getValue());
+        assertEquals(before + 1, api.getRequestCount());
+    }
+
+    @Test
+    void queriesAboveQueueAreShed() throws Exception {
+        api.setLatency(1000, 0);
+        Counter shed = MetricsRegistry.getDefault().counter("server.shed");
+        long before = shed.getCount();
+
+        try (QueryServer small = new QueryServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, 1, 10000, 0)) {
+            // one query runs and one waits in queue
+            CompletableFuture<String> running = readAsync(small, "/currency/price/USD/2017-06-16");
+            Thread.sleep(200);
+            CompletableFuture<String> queued = readAsync(small, "/currency/price/USD/2017-06-19");
+            Thread.sleep(200);
+
+            HttpURLConnection connection = open(small, "/currency/price/USD/2017-06-20", "GET");
+            assertEquals(503, connection.getResponseCode());
+            assertEquals("1", connection.getHeaderField("Retry-After"));
+            assertEquals(before + 1, shed.getCount());
+
+            assertTrue(running.get().contains("2017-06-16"));
+            assertTrue(queued.get().contains("2017-06-19"));
+        }
+    }
+
+    @Test
+    void slowQueriesTimeOut() throws IOException {
+        api.setLatency(1000, 0);
+        Counter timeouts = MetricsRegistry.getDefault().counter("server.timeouts");
+        long before = timeouts.getCount();
+
+        try (QueryServer fast = new QueryServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, 1, 200, 0)) {
+            HttpURLConnection connection = open(fast, "/currency/price/USD/2017-06-21", "GET");
+            assertEquals(504, connection.getResponseCode());
+            assertTrue(read(connection).getString("error").contains("200 ms"));
+            assertEquals(before + 1, timeouts.getCount());
+        }
+    }
+
+    @Test
+    void wrongArgumentsAreBadRequest() throws IOException {
+        HttpURLConnection connection = open("/gold/price/not-a-date", "GET");
+
+        assertEquals(400, connection.getResponseCode());
+
+        JSONObject body = read(connection);
+        assertEquals("gold price not-a-date", body.getString("command"));
+        assertTrue(body.getString("error").contains("Wrong date format"));
+        assertFalse(body.getJSONArray("output").toString().contains("\u001b"));
+    }
+
+    @Test
+    void outputIsReturnedAsLines() throws IOException {
+        HttpURLConnection connection = open("/currency/price", "GET");
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("application/json; charset=utf-8", connection.getContentType());
+
+        JSONObject body = read(connection);
+        assertFalse(body.has("error"));
+        assertEquals("Usage", body.getJSONArray("output").getString(0));
+        assertTrue(body.getJSONArray("output").toString().contains("nbpdata currency price"));
+    }
+
+    @Test
+    void pathsWithoutCommandAreNotFound() throws IOException {
+        Counter cached = MetricsRegistry.getDefault().counter("server.cached");
+        long before = cached.getCount();
+
+        for (String path : new String[]{"/", "/favicon.ico", "/currency", "/currency/unknown"}) {
+            HttpURLConnection connection = open(path, "GET");
+            assertEquals(404, connection.getResponseCode(), path);
+            assertTrue(read(connection).has("error"));
+        }
+        assertEquals(404, open("/", "GET").getResponseCode());
+        assertEquals(before, cached.getCount());
+    }
+
+    @Test
+    void repeatedQueriesAreCached() throws IOException {
+        Counter cached = MetricsRegistry.getDefault().counter("server.cached");
+
+        String first = read(open("/gold/average/not-a-date/2017-01-01", "GET")).toString();
+        long before = cached.getCount();
+        String second = read(open("/gold/average/not-a-date/2017-01-01", "GET")).toString();
+
+        assertEquals(first, second);
+        assertEquals(before + 1, cached.getCount());
+    }
+
+    @Test
+    void onlyGetIsAllowed() throws IOException {
+        assertEquals(405, open("/currency", "POST").getResponseCode());
+    }
+
+    private HttpURLConnection open(String path, String method) throws IOException {
+        return open(server, path, method);
+    }
+
+    private static HttpURLConnection open(QueryServer server, String path, String method) throws IOException {
+        URL url = new URL("http", "127.0.0.1", server.getAddress().getPort(), path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        return connection;
+    }
+
+    private static CompletableFuture<String> readAsync(QueryServer server, String path) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return read(open(server, path, "GET")).toString();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static JSONObject read(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (InputStream ignored = in) {
+            byte[] bytes = new byte[8192];
+            for (int n; (n = in.read(bytes)) >= 0; )
+                buffer.write(bytes, 0, n);
+        }
+        return new JSONObject(new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+}
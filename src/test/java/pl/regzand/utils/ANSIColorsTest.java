@@ -36,4 +36,24 @@ class ANSIColorsTest {
 
     }
 
+    @Test
+    void strip() {
+
+        assertEquals(
+                "129.43 PLN",
+                ANSIColors.strip(ANSIColors.highlite("129.43 PLN"))
+        );
+
+        assertEquals(
+                "Price was 129.43 PLN",
+                ANSIColors.strip("Price was " + ANSIColors.highlite("129.43 PLN"))
+        );
+
+        assertEquals(
+                "text  with code",
+                ANSIColors.strip("text \u001b[31m with code\u001b[0m")
+        );
+
+    }
+
 }
\ No newline at end of file